@@ -47,6 +47,7 @@ public class Options
 		op.option("Tab Size:", IntChoice.of("tabSize", ed.tabSizeProperty(), 0, 1, 3, 4, 8, 16));
 		// FIX
 		op.option(new BooleanChoice("wrapText", "wrap text", ed.wrapTextProperty()));
+		op.option(new BooleanChoice("wordWrap", "wrap at word boundaries", ed.wordWrapProperty()));
 		{
 			Button b1 = new Button("Select 0");
 			b1.setOnAction((ev) ->
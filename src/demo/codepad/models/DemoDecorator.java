@@ -19,4 +19,11 @@ public class DemoDecorator
 	{
 		return new DemoParagraph(index, text);
 	}
+
+
+	@Override
+	public boolean isConcurrent()
+	{
+		return true;
+	}
 }
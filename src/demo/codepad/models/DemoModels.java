@@ -2,6 +2,7 @@
 package demo.codepad.models;
 import goryachev.codepad.model.CodeModel;
 import goryachev.codepad.model.EditableCodeModel;
+import goryachev.codepad.model.PieceTableCodeModelContent;
 import goryachev.codepad.model.StringArrayCodeModelContent;
 import java.util.function.Supplier;
 
@@ -12,6 +13,7 @@ import java.util.function.Supplier;
 public enum DemoModels
 {
 	EDITABLE("Editable", () -> new EditableCodeModel()),
+	EDITABLE_PIECE_TABLE("Editable (Piece Table)", () -> new EditableCodeModel(new PieceTableCodeModelContent())),
 	AVERAGE("Average Size", () ->
 	{
 		return ofDecoratedStrings
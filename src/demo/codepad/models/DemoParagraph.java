@@ -77,36 +77,35 @@ public class DemoParagraph
 	@Override
 	public CellStyle getCellStyle(int cix)
 	{
-		String s = getCellText(cix);
-		switch(s)
+		switch(text.charAt(cix))
 		{
-		case "u":
-		case "U":
+		case 'u':
+		case 'U':
 			return UNDERLINE;
-		case "n":
+		case 'n':
 			return STRIKETHROUGH;
-		case "a":
-		case "e":
-		case "o":
+		case 'a':
+		case 'e':
+		case 'o':
 			return GRAY;
-		case "i":
+		case 'i':
 			return ITALIC;
-		case "b":
+		case 'b':
 			return BOLD;
-		case "L":
+		case 'L':
 			return BOLD_ITALIC;
-		case "x":
+		case 'x':
 			return GREEN;
-		case "0":
-		case "1":
-		case "2":
-		case "3":
-		case "4":
-		case "5":
-		case "6":
-		case "7":
-		case "8":
-		case "9":
+		case '0':
+		case '1':
+		case '2':
+		case '3':
+		case '4':
+		case '5':
+		case '6':
+		case '7':
+		case '8':
+		case '9':
 			return RED;
 		}
 		return null;
@@ -116,7 +115,7 @@ public class DemoParagraph
 	@Override
 	public boolean hasTabs()
 	{
-		return false;
+		return text.indexOf('\t') >= 0;
 	}
 	
 	
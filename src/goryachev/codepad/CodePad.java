@@ -1,17 +1,22 @@
 // Copyright © 2024-2026 Andy Goryachev <andy@goryachev.com>
 package goryachev.codepad;
 import goryachev.codepad.internal.Defaults;
+import goryachev.codepad.internal.IntervalTree;
 import goryachev.codepad.internal.SelectionModel;
 import goryachev.codepad.model.CodeModel;
 import goryachev.codepad.model.CodeParagraph;
+import goryachev.codepad.model.PlaintextConsumer;
 import goryachev.common.util.SB;
 import goryachev.fx.CssStyle;
 import goryachev.fx.FX;
+import goryachev.fx.FxBoolean;
 import goryachev.fx.FxObject;
 import goryachev.fx.LineEnding;
 import goryachev.fx.input.Func;
 import goryachev.fx.input.InputMap;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.IntegerProperty;
@@ -111,7 +116,10 @@ public class CodePad
 	private final InputMap inputMap;
 	private final FxObject<CodeModel> model = new FxObject<>(this, "model");
 	private FxObject<LineEnding> lineEnding;
+	private FxBoolean followTail;
+	private FxBoolean wordWrap;
 	final SelectionModel selectionModel = new SelectionModel();
+	private final IntervalTree<Highlight> highlights = new IntervalTree<>();
 	DoubleProperty aspectRatio;
 	StyleableObjectProperty<Color> backgroundColor;
 	StyleableObjectProperty<Color> caretColor;
@@ -203,6 +211,82 @@ public class CodePad
 	}
 
 
+	/// Adds the highlight overlay, see [Highlight].
+	public final void addHighlight(Highlight h)
+	{
+		highlights.add(key(h.getStart()), key(h.getEnd()), h);
+		repaintHighlights();
+	}
+
+
+	/// Adds the highlights, repainting the view once.
+	public final void addHighlights(Collection<Highlight> hs)
+	{
+		for(Highlight h: hs)
+		{
+			highlights.add(key(h.getStart()), key(h.getEnd()), h);
+		}
+		repaintHighlights();
+	}
+
+
+	/// Removes the highlight added earlier.
+	public final void removeHighlight(Highlight h)
+	{
+		if(highlights.remove(key(h.getStart()), h))
+		{
+			repaintHighlights();
+		}
+	}
+
+
+	/// Removes all the highlights.
+	public final void clearHighlights()
+	{
+		if(highlights.size() > 0)
+		{
+			highlights.clear();
+			repaintHighlights();
+		}
+	}
+
+
+	public final int getHighlightCount()
+	{
+		return highlights.size();
+	}
+
+
+	/// Passes the highlights intersecting the paragraphs `[startIndex ... endIndex]` to the consumer,
+	/// in the order of their start positions.
+	public final void visitHighlights(int startIndex, int endIndex, Consumer<Highlight> out)
+	{
+		highlights.query(key(startIndex, 0), key(endIndex, Integer.MAX_VALUE), out);
+	}
+
+
+	private static long key(TextPos p)
+	{
+		return key(p.index(), p.offset());
+	}
+
+
+	private static long key(int index, int offset)
+	{
+		return (((long)index) << 32) | (offset & 0xffff_ffffL);
+	}
+
+
+	private void repaintHighlights()
+	{
+		Object v = getSkin();
+		if(v instanceof CodePadSkin skin)
+		{
+			skin.handleHighlightsChange();
+		}
+	}
+
+
 	@Override
 	protected CodePadSkin createDefaultSkin()
 	{
@@ -295,16 +379,17 @@ public class CodePad
 	}
 	
 	
+	/// Returns the text, up to `maxLength` characters, using the current line endings.
 	public String getText(int maxLength)
 	{
 		SB sb = new SB();
 		export(TextPos.ZERO, getDocumentEnd(), (s) ->
 		{
 			boolean proceed = true;
-			int sz = sb.getLength() + s.length() - maxLength;
-			if(sz > 0)
+			int over = sb.getLength() + s.length() - maxLength;
+			if(over >= 0)
 			{
-				s = s.substring(0, sz);
+				s = s.substring(0, s.length() - over);
 				proceed = false;
 			}
 			sb.append(s);
@@ -314,18 +399,15 @@ public class CodePad
 	}
 	
 	
-	// TODO in own file?
-	@FunctionalInterface
-	public interface PlaintextConsumer
-	{
-		public boolean consumePlaintextFragment(String s);
-	}
-	
-	
-	// TODO move to model?
+	/// Exports the text between the two positions using the current line endings,
+	/// see [CodeModel#export(TextPos, TextPos, LineEnding, PlaintextConsumer)].
 	public final void export(TextPos start, TextPos end, PlaintextConsumer out)
 	{
-		// TODO
+		CodeModel m = getModel();
+		if(m != null)
+		{
+			m.export(start, end, getLineEnding(), out);
+		}
 	}
 	
 	
@@ -774,6 +856,33 @@ public class CodePad
 	}
 	
 	
+	/// When enabled, keeps the end of the document in view as new paragraphs
+	/// are appended to the model, such as with a log viewer.
+	///
+	/// @defaultValue false
+	///
+	public final BooleanProperty followTailProperty()
+	{
+		if(followTail == null)
+		{
+			followTail = new FxBoolean();
+		}
+		return followTail;
+	}
+	
+	
+	public final boolean isFollowTail()
+	{
+		return followTail == null ? false : followTail.get();
+	}
+	
+	
+	public final void setFollowTail(boolean on)
+	{
+		followTailProperty().set(on);
+	}
+	
+	
 	/// Defines the vertical space between lines, in pixels.
 	///
 	/// @defaultValue 0
@@ -1021,6 +1130,33 @@ public class CodePad
 	}
 	
 	
+	/// When enabled, the wrapped rows are broken at whitespace and punctuation
+	/// rather than at the last column.  Has no effect unless [#wrapTextProperty()] is `true`.
+	///
+	/// @defaultValue false
+	///
+	public final BooleanProperty wordWrapProperty()
+	{
+		if(wordWrap == null)
+		{
+			wordWrap = new FxBoolean(Defaults.WORD_WRAP);
+		}
+		return wordWrap;
+	}
+	
+	
+	public final boolean isWordWrap()
+	{
+		return wordWrap == null ? Defaults.WORD_WRAP : wordWrap.get();
+	}
+	
+	
+	public final void setWordWrap(boolean on)
+	{
+		wordWrapProperty().set(on);
+	}
+	
+	
 	/// Determines whether the text should be wrapped to fin the viewable area width.
 	///
 	/// The horizontal scrolling will be disabled when this property is set to `true`,
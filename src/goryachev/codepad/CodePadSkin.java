@@ -5,6 +5,7 @@ import goryachev.codepad.internal.CodePadBehavior;
 import goryachev.codepad.internal.Defaults;
 import goryachev.codepad.model.ChangeListener;
 import goryachev.codepad.model.CodeModel;
+import goryachev.codepad.model.ContentChange;
 import goryachev.fx.FX;
 import goryachev.fx.FxDisconnector;
 import javafx.beans.Observable;
@@ -54,6 +55,27 @@ public class CodePadSkin
 			{
 				handleContentChange();
 			}
+
+
+			@Override
+			public void onContentChange(ContentChange ch)
+			{
+				grid.handleContentChange(ch);
+			}
+
+
+			@Override
+			public void onParagraphsAppended(int start, int count)
+			{
+				grid.handleParagraphsAppended(start, count);
+			}
+
+
+			@Override
+			public void onStyleChange(int start, int count)
+			{
+				grid.handleStyleChange(start, count);
+			}
 		};
 		
 		// TODO use the skin input map!
@@ -69,9 +91,11 @@ public class CodePadSkin
 			ed.textColorProperty()
 		);
 		disconnector.addChangeListener(ed.contentPaddingProperty(), true, grid::setContentPadding);
+		disconnector.addChangeListener(ed.followTailProperty(), true, grid::setFollowTail);
 		disconnector.addChangeListener(ed.fontProperty(), true, grid::setFont);
 		disconnector.addInvalidationListener(ed.lineSpacingProperty(), grid::handleLineSpacingChange);
 		disconnector.addChangeListener(ed.modelProperty(), true, this::handleModelChange);
+		disconnector.addChangeListener(ed.wordWrapProperty(), true, grid::setWordWrap);
 		disconnector.addChangeListener(ed.wrapTextProperty(), true, grid::setWrapText);
 		disconnector.addInvalidationListener(grid::handleVerticalScroll, vscroll.valueProperty());
 		disconnector.addInvalidationListener(grid::handleHorizontalScroll, hscroll.valueProperty());
@@ -165,6 +189,12 @@ public class CodePadSkin
 	{
 		grid.clearPhantomX();
 	}
+
+	
+	public void handleHighlightsChange()
+	{
+		grid.handleHighlightsChange();
+	}
 	
 	
 	private void handleModelChange(Observable prop, CodeModel old, CodeModel m)
@@ -0,0 +1,59 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad;
+import javafx.scene.paint.Color;
+
+
+/// A colored range of text painted by [CodePad] on top of the text, independently of
+/// the paragraph decorations.  Typically used to mark the search hits.
+///
+/// The highlight positions are not adjusted when the model changes.
+/// The color should be translucent so the text remains legible.
+public final class Highlight
+{
+	private final TextRange range;
+	private final Color color;
+
+
+	public Highlight(TextRange range, Color color)
+	{
+		this.range = range;
+		this.color = color;
+	}
+
+
+	public Highlight(TextPos start, TextPos end, Color color)
+	{
+		this(new TextRange(start, end), color);
+	}
+
+
+	public TextRange getRange()
+	{
+		return range;
+	}
+
+
+	public TextPos getStart()
+	{
+		return range.getStart();
+	}
+
+
+	public TextPos getEnd()
+	{
+		return range.getEnd();
+	}
+
+
+	public Color getColor()
+	{
+		return color;
+	}
+
+
+	@Override
+	public String toString()
+	{
+		return "Highlight{" + range + ", color=" + color + "}";
+	}
+}
@@ -0,0 +1,82 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad;
+import goryachev.common.util.FH;
+
+
+/// Immutable range of text between two positions, the `start` being before or equal to the `end`.
+public final class TextRange
+{
+	private final TextPos start;
+	private final TextPos end;
+
+
+	public TextRange(TextPos start, TextPos end)
+	{
+		if(start.compareTo(end) <= 0)
+		{
+			this.start = start;
+			this.end = end;
+		}
+		else
+		{
+			this.start = end;
+			this.end = start;
+		}
+	}
+
+
+	/// Creates the range within a single paragraph.
+	public TextRange(int index, int startOffset, int endOffset)
+	{
+		this(new TextPos(index, startOffset), new TextPos(index, endOffset));
+	}
+
+
+	public TextPos getStart()
+	{
+		return start;
+	}
+
+
+	public TextPos getEnd()
+	{
+		return end;
+	}
+
+
+	public boolean isEmpty()
+	{
+		return start.equals(end);
+	}
+
+
+	@Override
+	public boolean equals(Object x)
+	{
+		if(x == this)
+		{
+			return true;
+		}
+		else if(x instanceof TextRange r)
+		{
+			return start.equals(r.start) && end.equals(r.end);
+		}
+		return false;
+	}
+
+
+	@Override
+	public int hashCode()
+	{
+		int h = FH.hash(TextRange.class);
+		h = FH.hash(h, start);
+		return FH.hash(h, end);
+	}
+
+
+	@Override
+	public String toString()
+	{
+		return "TextRange{start=" + start.index() + ":" + start.offset() + ", end=" + end.index() + ":" + end.offset() + "}";
+	}
+}
@@ -0,0 +1,289 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.internal;
+import java.util.List;
+import java.util.Random;
+
+
+/// Indexed list of items stored in blocks arranged in a balanced tree (treap),
+/// annotated with the number of items in each subtree.
+///
+/// Indexed access is O(log n), and [#splice(int, int, List)] which removes N items and inserts M items
+/// is O(log n + M), regardless of N.
+///
+/// The tree nodes are immutable, so [#copy()] is O(1).
+public final class BlockList<T>
+{
+	private static final int BLOCK_SIZE = 256;
+	private final Random random;
+	private Node root;
+
+
+	public BlockList()
+	{
+		random = new Random();
+	}
+
+
+	private BlockList(Node root, Random random)
+	{
+		this.root = root;
+		this.random = random;
+	}
+
+
+	public int size()
+	{
+		return size(root);
+	}
+
+
+	@SuppressWarnings("unchecked")
+	public T get(int index)
+	{
+		checkIndex(index);
+
+		Node n = root;
+		for(;;)
+		{
+			int ls = size(n.left);
+			if(index < ls)
+			{
+				n = n.left;
+			}
+			else
+			{
+				index -= ls;
+				if(index < n.items.length)
+				{
+					return (T)n.items[index];
+				}
+				index -= n.items.length;
+				n = n.right;
+			}
+		}
+	}
+
+
+	public void set(int index, T value)
+	{
+		checkIndex(index);
+		root = set(root, index, value);
+	}
+
+
+	public void add(T value)
+	{
+		splice(size(), 0, List.of(value));
+	}
+
+
+	/// Removes `count` items starting at `index`, and inserts the specified items in their place.
+	public void splice(int index, int count, List<? extends T> items)
+	{
+		int sz = size();
+		if((index < 0) || (count < 0) || (index + count > sz))
+		{
+			throw new IndexOutOfBoundsException("index=" + index + " count=" + count + " size=" + sz);
+		}
+
+		Node[] r = split(root, index);
+		Node left = r[0];
+		Node right = split(r[1], count)[1];
+
+		int len = items.size();
+		for(int i=0; i<len; i+=BLOCK_SIZE)
+		{
+			int n = Math.min(BLOCK_SIZE, len - i);
+			Object[] b = items.subList(i, i + n).toArray();
+			left = join(left, new Node(b, null, null, random.nextInt()));
+		}
+
+		root = join(left, right);
+	}
+
+
+	/// Returns an independent copy of this list.
+	public BlockList<T> copy()
+	{
+		return new BlockList<>(root, random);
+	}
+
+
+	private void checkIndex(int index)
+	{
+		int sz = size();
+		if((index < 0) || (index >= sz))
+		{
+			throw new IndexOutOfBoundsException("index=" + index + " size=" + sz);
+		}
+	}
+
+
+	private static Node set(Node n, int index, Object value)
+	{
+		int ls = size(n.left);
+		if(index < ls)
+		{
+			return n.with(set(n.left, index, value), n.right);
+		}
+
+		index -= ls;
+		if(index < n.items.length)
+		{
+			Object[] b = n.items.clone();
+			b[index] = value;
+			return new Node(b, n.left, n.right, n.priority);
+		}
+		return n.with(n.left, set(n.right, index - n.items.length, value));
+	}
+
+
+	// merges two trees, combining the adjacent blocks at the seam if they are small enough
+	private static Node join(Node a, Node b)
+	{
+		if((a != null) && (b != null))
+		{
+			Object[] x = rightmost(a).items;
+			Object[] y = leftmost(b).items;
+			if(x.length + y.length <= BLOCK_SIZE)
+			{
+				Object[] m = new Object[x.length + y.length];
+				System.arraycopy(x, 0, m, 0, x.length);
+				System.arraycopy(y, 0, m, x.length, y.length);
+				a = replaceRightmost(a, m);
+				b = removeLeftmost(b);
+			}
+		}
+		return merge(a, b);
+	}
+
+
+	private static Node merge(Node a, Node b)
+	{
+		if(a == null)
+		{
+			return b;
+		}
+		else if(b == null)
+		{
+			return a;
+		}
+		else if(a.priority > b.priority)
+		{
+			return a.with(a.left, merge(a.right, b));
+		}
+		else
+		{
+			return b.with(merge(a, b.left), b.right);
+		}
+	}
+
+
+	// splits the tree into the first `index` items and the rest
+	private static Node[] split(Node n, int index)
+	{
+		if(n == null)
+		{
+			return new Node[2];
+		}
+
+		int ls = size(n.left);
+		if(index <= ls)
+		{
+			Node[] r = split(n.left, index);
+			r[1] = n.with(r[1], n.right);
+			return r;
+		}
+
+		int ix = index - ls;
+		int len = n.items.length;
+		if(ix < len)
+		{
+			Object[] b1 = new Object[ix];
+			Object[] b2 = new Object[len - ix];
+			System.arraycopy(n.items, 0, b1, 0, ix);
+			System.arraycopy(n.items, ix, b2, 0, b2.length);
+			// the second block keeps the priority, the first becomes its left subtree
+			Node left = new Node(b1, n.left, null, n.priority);
+			Node right = new Node(b2, null, n.right, n.priority);
+			return new Node[] { left, right };
+		}
+
+		Node[] r = split(n.right, ix - len);
+		r[0] = n.with(n.left, r[0]);
+		return r;
+	}
+
+
+	private static Node leftmost(Node n)
+	{
+		while(n.left != null)
+		{
+			n = n.left;
+		}
+		return n;
+	}
+
+
+	private static Node rightmost(Node n)
+	{
+		while(n.right != null)
+		{
+			n = n.right;
+		}
+		return n;
+	}
+
+
+	private static Node replaceRightmost(Node n, Object[] items)
+	{
+		if(n.right == null)
+		{
+			return new Node(items, n.left, null, n.priority);
+		}
+		return n.with(n.left, replaceRightmost(n.right, items));
+	}
+
+
+	private static Node removeLeftmost(Node n)
+	{
+		if(n.left == null)
+		{
+			return n.right;
+		}
+		return n.with(removeLeftmost(n.left), n.right);
+	}
+
+
+	private static int size(Node n)
+	{
+		return n == null ? 0 : n.size;
+	}
+
+
+	/// Immutable tree node containing a block of items.
+	private static final class Node
+	{
+		public final Object[] items;
+		public final Node left;
+		public final Node right;
+		public final int priority;
+		public final int size;
+
+
+		public Node(Object[] items, Node left, Node right, int priority)
+		{
+			this.items = items;
+			this.left = left;
+			this.right = right;
+			this.priority = priority;
+			this.size = size(left) + items.length + size(right);
+		}
+
+
+		public Node with(Node left, Node right)
+		{
+			return new Node(items, left, right, priority);
+		}
+	}
+}
@@ -0,0 +1,127 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.internal;
+import java.io.IOException;
+
+
+/// Base class for the ParReaders which read the text incrementally into a fixed size buffer.
+/// A line longer than the buffer is returned as several consecutive `String` tokens.
+public abstract class BufferedParReader
+	extends ParReader
+{
+	protected static final int BUFFER_SIZE = 65536;
+	private final char[] buf = new char[BUFFER_SIZE];
+	private int pos;
+	private int len;
+	private boolean skipLF;
+	private boolean skipBOM;
+	private boolean eof;
+
+
+	/// Reads the next portion of text into the buffer.
+	/// Returns the number of characters read, or -1 when the end of input has been reached.
+	/// Blocks until at least one character is available.
+	protected abstract int read(char[] buf) throws IOException;
+
+
+	/// @param skipBOM when true, skips the leading byte order mark
+	protected BufferedParReader(boolean skipBOM)
+	{
+		this.skipBOM = skipBOM;
+	}
+
+
+	private boolean fill() throws IOException
+	{
+		if(eof)
+		{
+			return false;
+		}
+
+		int n;
+		do
+		{
+			n = read(buf);
+		}
+		while(n == 0);
+
+		if(n < 0)
+		{
+			eof = true;
+			return false;
+		}
+		pos = 0;
+		len = n;
+		return true;
+	}
+
+
+	@Override
+	public Object nextToken() throws IOException
+	{
+		for(;;)
+		{
+			if(pos >= len)
+			{
+				if(!fill())
+				{
+					return null;
+				}
+			}
+
+			char c = buf[pos];
+			if(skipBOM)
+			{
+				skipBOM = false;
+				if(c == '\ufeff')
+				{
+					pos++;
+					continue;
+				}
+			}
+
+			if(skipLF)
+			{
+				// CR at the end of the previous buffer
+				skipLF = false;
+				if(c == '\n')
+				{
+					pos++;
+					continue;
+				}
+			}
+
+			switch(c)
+			{
+			case '\r':
+				pos++;
+				if(pos < len)
+				{
+					if(buf[pos] == '\n')
+					{
+						pos++;
+					}
+				}
+				else
+				{
+					skipLF = true;
+				}
+				return NEWLINE;
+			case '\n':
+				pos++;
+				return NEWLINE;
+			}
+
+			int start = pos;
+			while(pos < len)
+			{
+				c = buf[pos];
+				if((c == '\r') || (c == '\n'))
+				{
+					break;
+				}
+				pos++;
+			}
+			return new String(buf, start, pos - start);
+		}
+	}
+}
@@ -0,0 +1,60 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.internal;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/// Pool of the direct ByteBuffers of the same size.
+///
+/// Allocating direct buffers is expensive, and their memory is released only when they get
+/// garbage collected, so the buffers used for the file I/O are recycled instead.
+public final class ByteBufferPool
+{
+	private final int bufferSize;
+	private final int maxPooled;
+	private final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger count = new AtomicInteger();
+
+
+	/// Creates the pool.
+	///
+	/// @param bufferSize the buffer capacity, in bytes
+	/// @param maxPooled the maximum number of idle buffers kept in the pool
+	public ByteBufferPool(int bufferSize, int maxPooled)
+	{
+		this.bufferSize = bufferSize;
+		this.maxPooled = maxPooled;
+	}
+
+
+	/// Returns a cleared buffer, either pooled or newly allocated.
+	public ByteBuffer acquire()
+	{
+		ByteBuffer b = buffers.poll();
+		if(b == null)
+		{
+			return ByteBuffer.allocateDirect(bufferSize);
+		}
+		count.decrementAndGet();
+		b.clear();
+		return b;
+	}
+
+
+	/// Returns the buffer to the pool.  The buffer must not be used after this call.
+	public void release(ByteBuffer b)
+	{
+		if((b != null) && b.isDirect() && (b.capacity() == bufferSize))
+		{
+			if(count.incrementAndGet() <= maxPooled)
+			{
+				buffers.offer(b);
+			}
+			else
+			{
+				count.decrementAndGet();
+			}
+		}
+	}
+}
@@ -2,51 +2,187 @@
 package goryachev.codepad.internal;
 import goryachev.codepad.model.CodeModel;
 import goryachev.codepad.model.CodeParagraph;
-import goryachev.common.util.CMap;
+import java.util.Arrays;
 
 
-/// Caches WrapInfo objects.
+/// Caches WrapInfo objects, keyed by the paragraph index.
 ///
+/// The entries are kept in a ring of fixed capacity, evicted in the approximate LRU order
+/// using the second chance (clock) algorithm: an entry accessed since the last pass of the hand survives.
+/// The lookup uses an open addressing hash table of ring slots with linear probing,
+/// so neither lookups nor insertions allocate.
 public class CellCache
 {
 	private CodeModel model;
 	private int tabSize;
 	private int wrapLimit;
-	// TODO implement circular buffer instead.  but for now, just clear the cache when it gets too big
-	private static final int MAX_SIZE = 1024;
-	private final CMap<Integer,WrapInfo> data;
-	
-	
+	private boolean wordWrap;
+	private int capacity;
+	/// ring slot + 1, or 0 if empty
+	private int[] table;
+	private int mask;
+	private int[] keys;
+	private WrapInfo[] values;
+	private boolean[] referenced;
+	/// the slots freed by invalidation
+	private int[] free;
+	private int freeCount;
+	/// the number of ring slots in use, including the freed ones
+	private int used;
+	private int hand;
+	private long hits;
+	private long misses;
+	private long evictions;
+	/// incremented whenever the cached entries become stale
+	private int generation;
+
+
 	public CellCache(int capacity)
 	{
-		data = new CMap<>(capacity);
+		allocate(capacity);
 	}
-	
-	
-	// TODO clear or invalidate?
+
+
+	private void allocate(int cap)
+	{
+		capacity = Math.max(1, cap);
+		table = new int[tableSize(capacity)];
+		mask = table.length - 1;
+		keys = new int[capacity];
+		values = new WrapInfo[capacity];
+		referenced = new boolean[capacity];
+		free = new int[capacity];
+		freeCount = 0;
+		used = 0;
+		hand = 0;
+	}
+
+
+	// power of two, at least twice the capacity to keep the probe sequences short
+	private static int tableSize(int cap)
+	{
+		return Integer.highestOneBit(Math.max(2, cap) * 2 - 1) << 1;
+	}
+
+
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+
+	/// Grows the cache to hold at least the specified number of entries, retaining the existing entries.
+	public void ensureCapacity(int cap)
+	{
+		if(cap <= capacity)
+		{
+			return;
+		}
+
+		int[] oldKeys = keys;
+		WrapInfo[] oldValues = values;
+		int oldUsed = used;
+		allocate(cap);
+		for(int i=0; i<oldUsed; i++)
+		{
+			WrapInfo wi = oldValues[i];
+			if(wi != null)
+			{
+				insert(oldKeys[i], wi);
+			}
+		}
+	}
+
+
+	/// Returns the number of entries.
+	public int size()
+	{
+		return used - freeCount;
+	}
+
+
 	public void clear()
 	{
-		data.clear();
+		generation++;
+		Arrays.fill(table, 0);
+		Arrays.fill(values, 0, used, null);
+		Arrays.fill(referenced, 0, used, false);
+		freeCount = 0;
+		used = 0;
+		hand = 0;
 	}
-	
-	
+
+
+	/// Removes the entries for the paragraphs in the specified range (inclusive).
+	public void invalidate(int start, int end)
+	{
+		generation++;
+		for(int i=0; i<used; i++)
+		{
+			if(values[i] != null)
+			{
+				int k = keys[i];
+				if((k >= start) && (k <= end))
+				{
+					remove(i);
+					free[freeCount++] = i;
+				}
+			}
+		}
+	}
+
+
+	/// Moves the entries for the paragraphs at or after `start` by `delta` paragraphs,
+	/// after the paragraphs have been inserted or removed.
+	/// The entries for the changed paragraphs must be invalidated first, so the moved entries do not collide.
+	public void shift(int start, int delta)
+	{
+		if(delta == 0)
+		{
+			return;
+		}
+
+		generation++;
+		int[] moved = new int[used];
+		int n = 0;
+		for(int i=0; i<used; i++)
+		{
+			if((values[i] != null) && (keys[i] >= start))
+			{
+				unlink(i);
+				moved[n++] = i;
+			}
+		}
+
+		for(int i=0; i<n; i++)
+		{
+			int slot = moved[i];
+			int k = keys[slot] + delta;
+			keys[slot] = k;
+			values[slot].setIndex(k);
+			link(slot);
+		}
+	}
+
+
 	// checks whether cache is still applicable for these parameters,
 	// clearing it if not.
-	public void check(CodeModel model, int tabSize, int wrapLimit)
+	public void check(CodeModel model, int tabSize, int wrapLimit, boolean wordWrap)
 	{
-		if((model != this.model) || (tabSize != this.tabSize) || (wrapLimit != this.wrapLimit))
+		if((model != this.model) || (tabSize != this.tabSize) || (wrapLimit != this.wrapLimit) || (wordWrap != this.wordWrap))
 		{
-			data.clear();
+			clear();
 			this.model = model;
 			this.tabSize = tabSize;
 			this.wrapLimit = wrapLimit;
+			this.wordWrap = wordWrap;
 		}
 	}
-	
-	
+
+
 	/**
 	 * Returns a non-null WrapInfo.  This method either returns a cached instance,
-	 * or creates and places one in the cache. 
+	 * or creates and places one in the cache.
 	 */
 	public WrapInfo getWrapInfo(int modelIndex)
 	{
@@ -54,26 +190,203 @@ public class CellCache
 		{
 			return null;
 		}
-		
-		Integer k = Integer.valueOf(modelIndex);
-		WrapInfo wi = data.get(k);
-		if(wi == null)
+
+		int slot = find(modelIndex);
+		if(slot >= 0)
 		{
-			if(modelIndex >= model.size())
+			hits++;
+			referenced[slot] = true;
+			return values[slot];
+		}
+
+		if(modelIndex >= model.size())
+		{
+			return null;
+		}
+
+		misses++;
+		CodeParagraph par = model.getParagraph(modelIndex);
+		WrapInfo wi = WrapInfo.create(par, tabSize, wrapLimit, wordWrap);
+		insert(modelIndex, wi);
+		return wi;
+	}
+
+
+	/// Returns the value which changes whenever the cached entries become stale,
+	/// see [#put(int, int, WrapInfo)].
+	public int getGeneration()
+	{
+		return generation;
+	}
+	
+	
+	/// Returns true if the cache contains the entry for the specified paragraph.
+	/// Unlike [#getWrapInfo(int)], this method does not affect the eviction order or the statistics.
+	public boolean contains(int modelIndex)
+	{
+		return find(modelIndex) >= 0;
+	}
+	
+	
+	/// Places the entry created elsewhere, such as by [WrapInfoPrefetcher], into the cache,
+	/// unless the cache has been invalidated since the generation was obtained,
+	/// or the entry is already present.
+	public void put(int generation, int modelIndex, WrapInfo wi)
+	{
+		if((generation == this.generation) && (find(modelIndex) < 0))
+		{
+			insert(modelIndex, wi);
+		}
+	}
+
+
+	/// Returns the number of lookups satisfied by the cache.
+	public long getHitCount()
+	{
+		return hits;
+	}
+
+
+	/// Returns the number of lookups which required creating a new WrapInfo.
+	public long getMissCount()
+	{
+		return misses;
+	}
+
+
+	/// Returns the number of entries evicted to make room for the new ones.
+	public long getEvictionCount()
+	{
+		return evictions;
+	}
+
+
+	public void resetStatistics()
+	{
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+
+
+	private int home(int key)
+	{
+		int h = key * 0x9e3779b9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+
+	// returns the ring slot, or -1 if not found
+	private int find(int key)
+	{
+		for(int i=home(key); ; i=(i + 1) & mask)
+		{
+			int s = table[i];
+			if(s == 0)
+			{
+				return -1;
+			}
+			else if(keys[s - 1] == key)
+			{
+				return s - 1;
+			}
+		}
+	}
+
+
+	private void insert(int key, WrapInfo wi)
+	{
+		int slot;
+		if(freeCount > 0)
+		{
+			slot = free[--freeCount];
+		}
+		else if(used < capacity)
+		{
+			slot = used++;
+		}
+		else
+		{
+			slot = evict();
+		}
+
+		keys[slot] = key;
+		values[slot] = wi;
+		referenced[slot] = false;
+		link(slot);
+	}
+
+
+	// adds the ring slot to the hash table
+	private void link(int slot)
+	{
+		int i = home(keys[slot]);
+		while(table[i] != 0)
+		{
+			i = (i + 1) & mask;
+		}
+		table[i] = slot + 1;
+	}
+
+
+	// advances the clock hand to the first entry not referenced since the last pass, and removes it
+	private int evict()
+	{
+		for(;;)
+		{
+			int slot = hand;
+			hand = (hand + 1) % capacity;
+			if(referenced[slot])
+			{
+				referenced[slot] = false;
+			}
+			else
 			{
-				return null;
+				remove(slot);
+				evictions++;
+				return slot;
 			}
+		}
+	}
+
+
+	// removes the entry in the ring slot
+	private void remove(int slot)
+	{
+		unlink(slot);
+		values[slot] = null;
+		referenced[slot] = false;
+	}
+
 
-			// TODO replace with a circular buffer
-			if(data.size() > MAX_SIZE)
+	// removes the ring slot from the hash table, shifting back the entries which follow it in the probe sequence
+	private void unlink(int slot)
+	{
+		int i = home(keys[slot]);
+		while(table[i] != slot + 1)
+		{
+			i = (i + 1) & mask;
+		}
+
+		int j = i;
+		for(;;)
+		{
+			j = (j + 1) & mask;
+			int s = table[j];
+			if(s == 0)
 			{
-				data.clear();
+				break;
+			}
+
+			int h = home(keys[s - 1]);
+			// the entry at j can fill the hole at i unless its home is cyclically within (i, j]
+			boolean stays = (i <= j) ? ((h > i) && (h <= j)) : ((h > i) || (h <= j));
+			if(!stays)
+			{
+				table[i] = s;
+				i = j;
 			}
-			
-			CodeParagraph par = model.getParagraph(modelIndex);
-			wi = WrapInfo.create(par, tabSize, wrapLimit);
-			data.put(k, wi);
 		}
-		return wi;
+		table[i] = 0;
 	}
 }
@@ -1,14 +1,19 @@
 // Copyright © 2024-2026 Andy Goryachev <andy@goryachev.com>
 package goryachev.codepad.internal;
 import goryachev.codepad.CodePad;
+import goryachev.codepad.Highlight;
 import goryachev.codepad.SelectionRange;
 import goryachev.codepad.TextPos;
 import goryachev.codepad.model.CellStyle;
+import goryachev.codepad.model.CellStylePalette;
 import goryachev.codepad.model.CodeModel;
+import goryachev.codepad.model.ContentChange;
 import goryachev.common.log.Log;
+import goryachev.common.util.CList;
 import goryachev.fx.FX;
 import goryachev.fx.FxBooleanBinding;
 import goryachev.fx.TextCellMetrics;
+import java.util.Arrays;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.beans.binding.BooleanExpression;
@@ -46,6 +51,7 @@ public class CellGrid
 	private static final Log log = Log.get("CellGrid");
 	final CodePad editor;
 	private final CellCache cache = new CellCache(64);
+	private final WrapInfoPrefetcher prefetcher = new WrapInfoPrefetcher(cache);
 	private final ScrollBar vscroll;
 	private final ScrollBar hscroll;
 	private Origin origin = Origin.ZERO;
@@ -57,7 +63,11 @@ public class CellGrid
 	private Font boldFont;
 	private Font boldItalicFont;
 	private Font italicFont;
+	/// fonts indexed by the CellStylePalette id
+	private Font[] fonts = new Font[0];
 	private boolean wrap;
+	private boolean wordWrap;
+	private boolean followTail;
 	private double aspectRatio;
 	private double contentPaddingTop;
 	private double contentPaddingBottom;
@@ -136,6 +146,7 @@ public class CellGrid
 		boldFont = null;
 		boldItalicFont = null;
 		italicFont = null;
+		fonts = new Font[0];
 		metrics = null;
 
 		invalidateCache();
@@ -218,10 +229,16 @@ public class CellGrid
 			return editor.getDocumentEnd();
 		}
 
-		// clamp to viewCols in wrapped mode
-		int cix = ar.cellIndexAtRow(row) + (wrap ? Math.min(ar.availableColumns(), col) : col);
 		WrapInfo wi = cache.getWrapInfo(ix);
-		return wi == null ? null : wi.atCell(cix);
+		if(wi == null)
+		{
+			return null;
+		}
+
+		// clamp to the row length in wrapped mode
+		int start = ar.cellIndexAtRow(row);
+		int cix = start + (wrap ? Math.min(wi.getRowLength(start), col) : col);
+		return wi.atCell(cix);
 	}
 
 	
@@ -307,6 +324,133 @@ public class CellGrid
 	}
 	
 	
+	/// Handles the content change by invalidating only the affected cache entries
+	/// and keeping the viewport stable.
+	public void handleContentChange(ContentChange ch)
+	{
+		int start = ch.getStart().index();
+		int delta = ch.getDelta();
+		cache.invalidate(start, ch.getEnd().index());
+		// the entries below the change move along with their paragraphs
+		cache.shift(ch.getEnd().index() + 1, delta);
+
+		int ix = origin.index();
+		if(ix > ch.getEnd().index())
+		{
+			// below the change: follow the content
+			setOrigin(ix + delta, origin.cellIndex(), origin.xoffset(), origin.yoffset());
+		}
+		else if(ix >= start)
+		{
+			// within the change: stay at the start of the changed range
+			int cix = origin.cellIndex();
+			if(ix > start)
+			{
+				ix = start;
+				if(wrap)
+				{
+					cix = 0;
+				}
+			}
+			else if(wrap)
+			{
+				WrapInfo wi = getWrapInfo(ix);
+				if((wi != null) && (cix >= wi.getCellCount()))
+				{
+					cix = wi.getCellIndexAtRow(wi.getRowCount() - 1);
+				}
+			}
+			setOrigin(ix, cix, origin.xoffset(), origin.yoffset());
+		}
+		requestLayout();
+	}
+
+
+	/// Handles the change in the paragraph decorations, the text remains the same.
+	public void handleStyleChange(int start, int count)
+	{
+		cache.invalidate(start, start + count - 1);
+		requestLayout();
+	}
+
+
+	/// Handles the paragraphs appended at the end of the model.
+	/// The existing paragraphs are unchanged, so the cache remains valid.
+	public void handleParagraphsAppended(int start, int count)
+	{
+		if(followTail)
+		{
+			scrollToTail();
+		}
+		requestLayout();
+	}
+
+
+	public void setFollowTail(boolean on)
+	{
+		followTail = on;
+		if(on)
+		{
+			scrollToTail();
+		}
+	}
+
+
+	// places the origin such that the last row of the document is at the bottom of the viewport,
+	// looking only at the paragraphs near the end of the document
+	private void scrollToTail()
+	{
+		if(editor.getModel() == null)
+		{
+			return;
+		}
+
+		int size = editor.getParagraphCount();
+		if(size == 0)
+		{
+			return;
+		}
+
+		int rows = (arrangement == null) ? computeAvailableRows() : arrangement.availableRows();
+		int ix = size - 1;
+		int cix = 0;
+		for(;;)
+		{
+			WrapInfo wi = getWrapInfo(ix);
+			if(wi == null)
+			{
+				break;
+			}
+
+			int rc = wi.getRowCount();
+			if(rc >= rows)
+			{
+				cix = wi.getCellIndexAtRow(rc - rows);
+				break;
+			}
+
+			rows -= rc;
+			if(ix == 0)
+			{
+				break;
+			}
+			ix--;
+		}
+
+		double yoff = (ix == 0) && (cix == 0) ? contentPaddingTop : 0.0;
+		setOrigin(ix, wrap ? cix : origin.cellIndex(), origin.xoffset(), yoff);
+	}
+
+
+	// rough estimate of the visible rows, without computing the arrangement
+	private int computeAvailableRows()
+	{
+		TextCellMetrics tm = textCellMetrics();
+		double height = snapSizeY(getHeight()) - snappedTopInset() - snappedBottomInset();
+		return Math.max(1, (int)Math.ceil((height - contentPaddingTop - contentPaddingBottom) / (tm.cellHeight + lineSpacing())));
+	}
+
+
 	public void handleLineSpacingChange()
 	{
 		invalidateCache();
@@ -349,6 +493,18 @@ public class CellGrid
 		invalidateCache();
 		requestLayout();
 	}
+
+
+	/// Enables breaking the wrapped rows at whitespace and punctuation.
+	/// Has no effect unless the text is wrapped.
+	public void setWordWrap(boolean on)
+	{
+		wordWrap = on;
+		if(wrap)
+		{
+			setWrapText(true);
+		}
+	}
 	
 	
 	/// number of rows that fit the viewport (including partial)
@@ -641,6 +797,27 @@ public class CellGrid
 	}
 	
 	
+	private Font getFont(int styleId, CellStyle st)
+	{
+		if(styleId == CellStylePalette.NOT_INTERNED)
+		{
+			return getFont(st);
+		}
+		else if(styleId >= fonts.length)
+		{
+			fonts = Arrays.copyOf(fonts, CellStylePalette.size());
+		}
+
+		Font f = fonts[styleId];
+		if(f == null)
+		{
+			f = getFont(st);
+			fonts[styleId] = f;
+		}
+		return f;
+	}
+	
+	
 	private Font getFont(CellStyle st)
 	{
 		if(st.isBold())
@@ -808,6 +985,9 @@ public class CellGrid
 			availableRows = (int)Math.ceil((height - contentPaddingTop - contentPaddingBottom) / (tm.cellHeight + lineSpacing));
 		}
 		
+		// the cache must hold the view port, the sliding window, and the prefetched paragraphs, with room for scrolling
+		cache.ensureCapacity(2 * (availableRows + 2 * Defaults.SLIDING_WINDOW_HALF + Defaults.PREFETCH_PARAGRAPHS));
+		
 		// here we assume the origin cell index is correct for the given width
 		int ix = origin.index();
 		int cix = origin.cellIndex();
@@ -971,6 +1151,12 @@ public class CellGrid
 		int slidingWindowRowCount = availableRows + nrows;
 		
 		ar.setSlidingWindow(topIndex, bottomIndex, slidingWindowRowCount, topRowCount);
+		CodeModel model = editor.getModel();
+		if(model != null)
+		{
+			model.setVisibleRange(topIndex, bottomIndex);
+		}
+		prefetcher.prefetch(model, topIndex, bottomIndex, tabSize, wrapLimit, wordWrap);
 		return ar;
 	}
 	
@@ -990,7 +1176,6 @@ public class CellGrid
 		highlightCaretLine = (editor.getCaretColor() != null);
 		
 		int maxy = ar.availableRows();
-		int wrapLimit = ar.wrapLimit();
 		TextCellMetrics tm = textCellMetrics();
 		double lineSpacing = lineSpacing();
 		
@@ -1010,11 +1195,90 @@ public class CellGrid
 					break;
 				}
 				int rowStartCellIndex = ar.cellIndexAtRow(i);
-				int ct = wrap ? Math.min(wrapLimit, wi.getCellCount() - rowStartCellIndex) : wi.getCellCount();
-				paintCells(tm, wi, rowStartCellIndex, ct, x, y);
+				int ct = wrap ? wi.getRowLength(rowStartCellIndex) : wi.getCellCount();
+				paintCells(tm, wi, ix, rowStartCellIndex, ct, x, y);
 				y = snapPositionY(y + tm.cellHeight + lineSpacing);
 			}
 		}
+		
+		if(editor.getHighlightCount() > 0)
+		{
+			paintHighlights(ar, tm, lineSpacing);
+		}
+	}
+	
+	
+	// paints the highlight overlay in a separate pass, visiting only the highlights within the visible rows
+	private void paintHighlights(Arrangement ar, TextCellMetrics tm, double lineSpacing)
+	{
+		int maxy = ar.availableRows();
+		int first = ar.indexAtRow(0);
+		if(first < 0)
+		{
+			return;
+		}
+
+		int last = first;
+		for(int i=maxy-1; i>0; i--)
+		{
+			int ix = ar.indexAtRow(i);
+			if(ix >= 0)
+			{
+				last = ix;
+				break;
+			}
+		}
+
+		CList<Highlight> hs = new CList<>();
+		editor.visitHighlights(first, last, hs::add);
+		if(hs.isEmpty())
+		{
+			return;
+		}
+
+		double lineH = tm.cellHeight + lineSpacing;
+		double x = origin.xoffset();
+		double y = origin.yoffset();
+		int start = 0;
+		for(int i=0; i<maxy; i++)
+		{
+			int ix = ar.indexAtRow(i);
+			if(ix < 0)
+			{
+				break;
+			}
+
+			WrapInfo wi = getWrapInfo(ix);
+			if(wi == null)
+			{
+				break;
+			}
+			int rowStartCellIndex = ar.cellIndexAtRow(i);
+			int ct = wrap ? wi.getRowLength(rowStartCellIndex) : wi.getCellCount();
+
+			// the highlights are sorted by start
+			while((start < hs.size()) && (hs.get(start).getEnd().index() < ix))
+			{
+				start++;
+			}
+
+			for(int k=start; k<hs.size(); k++)
+			{
+				Highlight h = hs.get(k);
+				if(h.getStart().index() > ix)
+				{
+					break;
+				}
+
+				Rectangle2D r = computeRangeRectangle(h.getStart(), h.getEnd(), ix, rowStartCellIndex, ct, x, y, tm.cellWidth, lineH);
+				if(r != null)
+				{
+					gx.setFill(h.getColor());
+					gx.fillRect(r.getMinX(), r.getMinY(), r.getWidth(), r.getHeight());
+				}
+			}
+			y = snapPositionY(y + lineH);
+		}
 	}
 	
 	
@@ -1071,15 +1335,18 @@ public class CellGrid
 		{
 			return null;
 		}
-
-		TextPos min = sel.getMin();
+		return computeRangeRectangle(sel.getMin(), sel.getMax(), index, rowStartCellIndex, count, x, y, cellWidth, height);
+	}
+	
+	
+	private Rectangle2D computeRangeRectangle(TextPos min, TextPos max, int index, int rowStartCellIndex, int count, double x, double y, double cellWidth, double height)
+	{
 		int minIndex = min.index(); 
 		if(minIndex > index)
 		{
 			return null;
 		}
 		
-		TextPos max = sel.getMax();
 		int maxIndex = max.index();
 		if(maxIndex < index)
 		{
@@ -1108,6 +1375,15 @@ public class CellGrid
 	}
 	
 	
+	public void handleHighlightsChange()
+	{
+		if((canvas != null) && (editor.getModel() != null))
+		{
+			repaintAll();
+		}
+	}
+	
+	
 	public void paintCaretLine()
 	{
 		// TODO optimize
@@ -1124,11 +1400,10 @@ public class CellGrid
 
 
 	// paints a single row horizontally
-	private void paintCells(TextCellMetrics tm, WrapInfo wi, int rowStartCellIndex, int count, double x, double y)
+	private void paintCells(TextCellMetrics tm, WrapInfo wi, int ix, int rowStartCellIndex, int count, double x, double y)
 	{
 		double maxx = canvas.getWidth();
 		Color textColor = editor.getTextColor();
-		int ix = wi.getIndex();
 		int len = wi.getCellCount();
 		SelectionRange sel = editor.getSelection();
 		boolean drawCaret = cursorOn && paintCaret.get() && (sel != null);
@@ -1176,69 +1451,91 @@ public class CellGrid
 		}
 
 		
-		for(int i=0; i<count; i++)
+		int end = rowStartCellIndex + count;
+		
+		// cell backgrounds, one rectangle per style run
+		double cx = x;
+		int cix = rowStartCellIndex;
+		while((cix < end) && (cx <= maxx))
 		{
-			int cix = rowStartCellIndex + i;
-
-			// style
 			CellStyle style = wi.getCellStyle(cix);
-			if(style == null)
+			int runEnd = Math.min(end, wi.getStyleRunEnd(cix));
+			double rx = cx;
+			for( ; (cix < runEnd) && (cx <= maxx); cix++)
 			{
-				style = CellStyle.EMPTY;
+				cx = snapPositionX(cx + tm.cellWidth);
 			}
 			
-			// cell background
-			Color cellBG = style.getBackgroundColor();
+			Color cellBG = (style == null) ? null : style.getBackgroundColor();
 			if(cellBG != null)
 			{
 				gx.setFill(cellBG);
-				gx.fillRect(x, y, tm.cellWidth, tm.cellHeight);
+				gx.fillRect(rx, y, cx - rx, tm.cellHeight);
 			}
-			
-			// caret
-			if(caretCellIndex == cix)
+		}
+		
+		// text, one font and color per style run
+		cx = x;
+		cix = rowStartCellIndex;
+		while((cix < end) && (cx <= maxx))
+		{
+			CellStyle style = wi.getCellStyle(cix);
+			if(style == null)
 			{
-				gx.setFill(editor.getCaretColor());
-				// TODO insert mode
-				double caretWidth = snapSizeX(Defaults.CARET_WIDTH);
-				gx.fillRect(x, y, caretWidth, tm.cellHeight);
+				style = CellStyle.EMPTY;
 			}
+			int runEnd = Math.min(end, wi.getStyleRunEnd(cix));
 			
-			if(style.isUnderline())
+			Color fg = style.getTextColor();
+			if(fg == null)
 			{
-				gx.setFill(textColor);
-				gx.fillRect(x, y + tm.cellHeight - 1, tm.cellWidth, 1);
+				fg = textColor;
 			}
-			
-			// text
-			if(cix < len)
+			gx.setFont(getFont(CellStylePalette.idOf(style), style));
+			gx.setFill(fg);
+
+			// the cell width is derived from the line height, so each cell is drawn separately
+			// to keep the glyphs aligned with the grid
+			double rx = cx;
+			double textEnd = cx;
+			for( ; (cix < runEnd) && (cx <= maxx); cix++)
 			{
-				String text = wi.getCellText(cix);
-				if(text != null)
+				// caret
+				if(caretCellIndex == cix)
 				{
-					Color fg = style.getTextColor();
-					if(fg == null)
-					{
-						fg = textColor;
-					}
-					
-					Font f = getFont(style);
-					gx.setFont(f);
+					gx.setFill(editor.getCaretColor());
+					// TODO insert mode
+					double caretWidth = snapSizeX(Defaults.CARET_WIDTH);
+					gx.fillRect(cx, y, caretWidth, tm.cellHeight);
 					gx.setFill(fg);
-					gx.fillText(text, x, y - tm.baseLine, tm.cellWidth);
+				}
 				
-					if(style.isStrikeThrough())
+				if(cix < len)
+				{
+					String text = wi.getCellText(cix);
+					if(text != null)
 					{
-						gx.setFill(textColor);
-						gx.fillRect(x, y + tm.cellHeight / 2.0, tm.cellWidth, 0.5);
+						gx.fillText(text, cx, y - tm.baseLine, tm.cellWidth * wi.getCellSpan(cix));
 					}
 				}
+				
+				cx = snapPositionX(cx + tm.cellWidth);
+				if(cix < len)
+				{
+					textEnd = cx;
+				}
 			}
 			
-			x = snapPositionX(x + tm.cellWidth);
-			if(x > maxx)
+			if(style.isUnderline())
 			{
-				break;
+				gx.setFill(textColor);
+				gx.fillRect(rx, y + tm.cellHeight - 1, cx - rx, 1);
+			}
+			
+			if(style.isStrikeThrough() && (textEnd > rx))
+			{
+				gx.setFill(textColor);
+				gx.fillRect(rx, y + tm.cellHeight / 2.0, textEnd - rx, 0.5);
 			}
 		}
 	}
@@ -1246,7 +1543,7 @@ public class CellGrid
 	
 	private WrapInfo getWrapInfo(int modelIndex)
 	{
-		cache.check(editor.getModel(), tabSize(), wrapLimit);
+		cache.check(editor.getModel(), tabSize(), wrapLimit, wordWrap);
 		return cache.getWrapInfo(modelIndex);
 	}
 	
@@ -1356,16 +1653,10 @@ public class CellGrid
 					lineStart = lineStartCellIndex(wi.atEnd());
 				}
 				
-				int n = lineStart / wrapLimit;
+				int n = wi.getRowAtCellIndex(lineStart);
 				if(ct <= n)
 				{
-					cix = lineStart - (ct * wrapLimit);
-					if(cix < 0)
-					{
-						throw new Error("cix=" + cix); // safeguard, should not happen
-					}
-
-					cix += col;
+					cix = cellIndexInRow(wi, wi.getCellIndexAtRow(n - ct), col);
 					return wi.atCell(cix);
 				}
 				else
@@ -1396,10 +1687,10 @@ public class CellGrid
 
 				int h = wi.getRowCount();
 				
-				int n = lineStart / wrapLimit;
+				int n = wi.getRowAtCellIndex(lineStart);
 				if(ct + n < h)
 				{
-					cix = lineStart + (ct * wrapLimit) + col;
+					cix = cellIndexInRow(wi, wi.getCellIndexAtRow(n + ct), col);
 					return wi.atCell(cix);
 				}
 				else
@@ -1418,7 +1709,7 @@ public class CellGrid
 	{
 		int ix = from.index();
 		WrapInfo wi = getWrapInfo(ix);
-		int cix = cellIndex(from) + delta;
+		int cix = wi.moveByCells(cellIndex(from), delta);
 		
 		if(delta < 0)
 		{
@@ -1507,7 +1798,7 @@ public class CellGrid
 			if(wrap)
 			{
 				ix = pos.index();
-				cix = (cellIndex(pos) / availableColumns()) * availableColumns();
+				cix = lineStartCellIndex(pos);
 				yoff = (ix == 0) ? contentPaddingTop : 0.0;
 				setOrigin(ix, cix, contentPaddingLeft, yoff);
 			}
@@ -1536,8 +1827,7 @@ public class CellGrid
 			if(wrap)
 			{
 				TextPos p = goVertically(pos, 1 - availableRows(), false);
-				cix = cellIndex(p);
-				cix = (cix / wrapLimit) * wrapLimit;
+				cix = lineStartCellIndex(p);
 				ix = p.index();
 				setOrigin(ix, cix, contentPaddingLeft, 0.0); 
 			}
@@ -1651,10 +1941,13 @@ public class CellGrid
 		WrapInfo wi = getWrapInfo(ix);
 		if(wrap)
 		{
-			int cix = cellIndex(from);
-			int row = wi.getRowAtCellIndex(cix);
-			cix = wi.getCellIndexAtRow(row + 1) - 1;
-			return wi.atCell(cix);
+			int cix = lineStartCellIndex(from);
+			int next = wi.nextRow(cix);
+			if(next < 0)
+			{
+				return wi.atEnd();
+			}
+			return wi.atCell(next - 1);
 		}
 		else
 		{
@@ -1665,8 +1958,21 @@ public class CellGrid
 	
 	private int lineStartCellIndex(TextPos p)
 	{
-		int cix = cellIndex(p);
-		int row = cix / wrapLimit;
-		return row * wrapLimit;
+		WrapInfo wi = getWrapInfo(p.index());
+		int row = wi.getRowAtCellIndex(cellIndex(p));
+		return wi.getCellIndexAtRow(row);
+	}
+	
+	
+	// cell index at the column within the row which starts at the specified cell index,
+	// clamped to the last cell of the row unless it is the last row of the paragraph
+	private static int cellIndexInRow(WrapInfo wi, int rowStart, int col)
+	{
+		int next = wi.nextRow(rowStart);
+		if(next < 0)
+		{
+			return rowStart + col;
+		}
+		return rowStart + Math.min(col, next - rowStart - 1);
 	}
 }
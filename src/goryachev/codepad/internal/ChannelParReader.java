@@ -0,0 +1,78 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.internal;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+
+/// ParReader over a channel (such as `FileChannel`), decoding the bytes read
+/// into a direct buffer with the specified charset.  The leading byte order mark is skipped.
+public class ChannelParReader
+	extends BufferedParReader
+{
+	private final ReadableByteChannel channel;
+	private final CharsetDecoder decoder;
+	private final ByteBuffer bytes;
+	private boolean endOfInput;
+	private boolean flushed;
+
+
+	public ChannelParReader(ReadableByteChannel ch, Charset cs)
+	{
+		super(true);
+		this.channel = ch;
+		this.decoder = cs.newDecoder().
+			onMalformedInput(CodingErrorAction.REPLACE).
+			onUnmappableCharacter(CodingErrorAction.REPLACE);
+		bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		bytes.flip();
+	}
+
+
+	@Override
+	protected int read(char[] buf) throws IOException
+	{
+		CharBuffer out = CharBuffer.wrap(buf);
+		for(;;)
+		{
+			decoder.decode(bytes, out, endOfInput);
+			if(out.position() > 0)
+			{
+				return out.position();
+			}
+
+			if(endOfInput)
+			{
+				if(!flushed)
+				{
+					decoder.flush(out);
+					flushed = true;
+					if(out.position() > 0)
+					{
+						return out.position();
+					}
+				}
+				return -1;
+			}
+
+			bytes.compact();
+			int n = channel.read(bytes);
+			bytes.flip();
+			if(n < 0)
+			{
+				endOfInput = true;
+			}
+		}
+	}
+
+
+	@Override
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+}
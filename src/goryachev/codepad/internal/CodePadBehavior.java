@@ -680,8 +680,22 @@ public class CodePadBehavior
 	
 	public void redo()
 	{
-		// TODO
-		D.print("redo");
+		if(canEdit())
+		{
+			CodePad ed = control();
+			try
+			{
+				TextPos p = ed.getModel().redo();
+				if(p != null)
+				{
+					ed.moveCaret(p, false, true);
+				}
+			}
+			catch(Exception e)
+			{
+				errorFeedback(e);
+			}
+		}
 	}
 	
 	
@@ -809,8 +823,22 @@ public class CodePadBehavior
 	
 	public void undo()
 	{
-		// TODO
-		D.print("undo");
+		if(canEdit())
+		{
+			CodePad ed = control();
+			try
+			{
+				TextPos p = ed.getModel().undo();
+				if(p != null)
+				{
+					ed.moveCaret(p, false, true);
+				}
+			}
+			catch(Exception e)
+			{
+				errorFeedback(e);
+			}
+		}
 	}
 
 	
@@ -52,6 +52,10 @@ public class Defaults
 	
 	public static final double PREF_WIDTH = 100;
 	
+	/// The number of paragraphs beyond the sliding window to lay out in background
+	/// in the direction of scrolling.
+	public static final int PREFETCH_PARAGRAPHS = 64;
+	
 	/// The number of rows to scroll using the mouse scroll wheel.
 	public static final int SCROLL_WHEEL_STEP_ROWS = 2;
 	
@@ -69,8 +73,17 @@ public class Defaults
 	
 	public static final int TRACK_PAD_STEP_AMOUNT = 3;
 	
+	/// The approximate memory budget of the undo/redo journal, in bytes.
+	public static final long UNDO_BUDGET = 64L * 1024 * 1024;
+	
+	/// The removed text longer than this number of characters is stored in a temporary file.
+	public static final long UNDO_SPILL_THRESHOLD = 1024 * 1024;
+	
 	public static final int VIEWPORT_ROW_COUNT_ESTIMATE = 128;
 	
+	/// the `wordWrap` property default value
+	public static final boolean WORD_WRAP = false;
+	
 	/// the `wrapText` property default value
 	public static final boolean WRAP_TEXT = false;
 	
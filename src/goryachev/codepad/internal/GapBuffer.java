@@ -0,0 +1,148 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.internal;
+
+
+/// Mutable text with a gap at the last edit position,
+/// making the repeated edits at or near the same position O(1) amortized.
+///
+/// The `String` representation is created on demand and cached until the next modification.
+public final class GapBuffer
+	implements CharSequence
+{
+	private static final int MIN_GAP = 64;
+	private char[] buf;
+	private int gapStart;
+	private int gapEnd;
+	private String text;
+
+
+	public GapBuffer(String s)
+	{
+		int len = s.length();
+		buf = new char[len + Math.max(MIN_GAP, len >>> 4)];
+		s.getChars(0, len, buf, 0);
+		gapStart = len;
+		gapEnd = buf.length;
+		text = s;
+	}
+
+
+	@Override
+	public int length()
+	{
+		return buf.length - (gapEnd - gapStart);
+	}
+
+
+	@Override
+	public char charAt(int ix)
+	{
+		return buf[(ix < gapStart) ? ix : ix + (gapEnd - gapStart)];
+	}
+
+
+	@Override
+	public String subSequence(int start, int end)
+	{
+		return substring(start, end);
+	}
+
+
+	public String substring(int start)
+	{
+		return substring(start, length());
+	}
+
+
+	public String substring(int start, int end)
+	{
+		if((start < 0) || (end > length()) || (start > end))
+		{
+			throw new IndexOutOfBoundsException("start=" + start + " end=" + end + " length=" + length());
+		}
+
+		if(end <= gapStart)
+		{
+			return new String(buf, start, end - start);
+		}
+
+		int gap = gapEnd - gapStart;
+		if(start >= gapStart)
+		{
+			return new String(buf, start + gap, end - start);
+		}
+
+		char[] cs = new char[end - start];
+		int n = gapStart - start;
+		System.arraycopy(buf, start, cs, 0, n);
+		System.arraycopy(buf, gapEnd, cs, n, cs.length - n);
+		return new String(cs);
+	}
+
+
+	/// Replaces the text between `start` and `end` with the specified text.
+	public void replace(int start, int end, String s)
+	{
+		if((start < 0) || (end > length()) || (start > end))
+		{
+			throw new IndexOutOfBoundsException("start=" + start + " end=" + end + " length=" + length());
+		}
+
+		moveGap(start);
+		// delete by extending the gap
+		gapEnd += (end - start);
+
+		int len = s.length();
+		if(len > (gapEnd - gapStart))
+		{
+			grow(len);
+		}
+		s.getChars(0, len, buf, gapStart);
+		gapStart += len;
+		text = null;
+	}
+
+
+	@Override
+	public String toString()
+	{
+		if(text == null)
+		{
+			text = substring(0, length());
+		}
+		return text;
+	}
+
+
+	private void moveGap(int pos)
+	{
+		if(pos < gapStart)
+		{
+			int n = gapStart - pos;
+			System.arraycopy(buf, pos, buf, gapEnd - n, n);
+			gapStart -= n;
+			gapEnd -= n;
+		}
+		else if(pos > gapStart)
+		{
+			int n = pos - gapStart;
+			System.arraycopy(buf, gapEnd, buf, gapStart, n);
+			gapStart += n;
+			gapEnd += n;
+		}
+	}
+
+
+	private void grow(int required)
+	{
+		int len = length();
+		int cap = len + required;
+		cap = cap + Math.max(MIN_GAP, cap >>> 2);
+		char[] b = new char[cap];
+		System.arraycopy(buf, 0, b, 0, gapStart);
+		int tail = buf.length - gapEnd;
+		System.arraycopy(buf, gapEnd, b, cap - tail, tail);
+		gapEnd = cap - tail;
+		buf = b;
+	}
+}
@@ -0,0 +1,237 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.internal;
+import java.util.Random;
+import java.util.function.Consumer;
+
+
+/// Set of closed intervals `[start, end]` with the associated values, stored in a balanced tree (treap)
+/// ordered by the interval start and annotated with the maximum end in each subtree.
+///
+/// Adding and removing an interval is O(log n), finding all the intervals which intersect the given range
+/// is O(log n + k), where k is the number of intervals found, which makes it suitable for painting only
+/// the intervals within the visible area.
+public final class IntervalTree<T>
+{
+	private final Random random = new Random();
+	private Node<T> root;
+	private int size;
+
+
+	public IntervalTree()
+	{
+	}
+
+
+	public int size()
+	{
+		return size;
+	}
+
+
+	public void clear()
+	{
+		root = null;
+		size = 0;
+	}
+
+
+	/// Adds the interval.
+	public void add(long start, long end, T value)
+	{
+		root = insert(root, new Node<>(start, end, value, random.nextInt()));
+		size++;
+	}
+
+
+	/// Removes the interval with the specified start and value (compared by identity).
+	/// Returns true if the interval has been found and removed.
+	public boolean remove(long start, T value)
+	{
+		int sz = size;
+		root = remove(root, start, value);
+		return (size != sz);
+	}
+
+
+	/// Passes the values of all the intervals intersecting the range `[from, to]` to the consumer,
+	/// in the order of the interval start.
+	public void query(long from, long to, Consumer<? super T> out)
+	{
+		query(root, from, to, out);
+	}
+
+
+	private static <T> void query(Node<T> n, long from, long to, Consumer<? super T> out)
+	{
+		while(n != null)
+		{
+			if(n.maxEnd < from)
+			{
+				// nothing in this subtree reaches the range
+				return;
+			}
+
+			query(n.left, from, to, out);
+
+			if(n.start > to)
+			{
+				// the right subtree starts even later
+				return;
+			}
+
+			if(n.end >= from)
+			{
+				out.accept(n.value);
+			}
+			n = n.right;
+		}
+	}
+
+
+	private static <T> Node<T> insert(Node<T> n, Node<T> x)
+	{
+		if(n == null)
+		{
+			return x;
+		}
+
+		if(x.start < n.start)
+		{
+			n.left = insert(n.left, x);
+			if(n.left.priority > n.priority)
+			{
+				n = rotateRight(n);
+			}
+		}
+		else
+		{
+			n.right = insert(n.right, x);
+			if(n.right.priority > n.priority)
+			{
+				n = rotateLeft(n);
+			}
+		}
+		n.update();
+		return n;
+	}
+
+
+	private Node<T> remove(Node<T> n, long start, T value)
+	{
+		if(n == null)
+		{
+			return null;
+		}
+
+		if((n.start == start) && (n.value == value))
+		{
+			size--;
+			return merge(n.left, n.right);
+		}
+
+		if(start < n.start)
+		{
+			n.left = remove(n.left, start, value);
+		}
+		else if(start > n.start)
+		{
+			n.right = remove(n.right, start, value);
+		}
+		else
+		{
+			// the equal keys might end up on either side after the rotations
+			int sz = size;
+			n.left = remove(n.left, start, value);
+			if(sz == size)
+			{
+				n.right = remove(n.right, start, value);
+			}
+		}
+		n.update();
+		return n;
+	}
+
+
+	private static <T> Node<T> merge(Node<T> a, Node<T> b)
+	{
+		if(a == null)
+		{
+			return b;
+		}
+		else if(b == null)
+		{
+			return a;
+		}
+		else if(a.priority > b.priority)
+		{
+			a.right = merge(a.right, b);
+			a.update();
+			return a;
+		}
+		else
+		{
+			b.left = merge(a, b.left);
+			b.update();
+			return b;
+		}
+	}
+
+
+	private static <T> Node<T> rotateRight(Node<T> n)
+	{
+		Node<T> x = n.left;
+		n.left = x.right;
+		x.right = n;
+		n.update();
+		return x;
+	}
+
+
+	private static <T> Node<T> rotateLeft(Node<T> n)
+	{
+		Node<T> x = n.right;
+		n.right = x.left;
+		x.left = n;
+		n.update();
+		return x;
+	}
+
+
+	/// Tree node.
+	private static final class Node<T>
+	{
+		public final long start;
+		public final long end;
+		public final T value;
+		public final int priority;
+		public Node<T> left;
+		public Node<T> right;
+		/// the maximum end in this subtree
+		public long maxEnd;
+
+
+		public Node(long start, long end, T value, int priority)
+		{
+			this.start = start;
+			this.end = end;
+			this.value = value;
+			this.priority = priority;
+			this.maxEnd = end;
+		}
+
+
+		public void update()
+		{
+			long m = end;
+			if((left != null) && (left.maxEnd > m))
+			{
+				m = left.maxEnd;
+			}
+			if((right != null) && (right.maxEnd > m))
+			{
+				m = right.maxEnd;
+			}
+			maxEnd = m;
+		}
+	}
+}
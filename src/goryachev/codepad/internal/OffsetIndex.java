@@ -0,0 +1,93 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.internal;
+
+
+/// Append-only index of `long` offsets, stored in fixed size pages
+/// to avoid allocating (and copying) a single huge array.
+///
+/// The index supports a single writer thread and any number of reader threads:
+/// the values become visible to the readers after the [#size()] has been updated.
+public final class OffsetIndex
+{
+	private static final int PAGE_BITS = 16;
+	private static final int PAGE_SIZE = 1 << PAGE_BITS;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+	private volatile long[][] pages;
+	private volatile int size;
+
+
+	public OffsetIndex()
+	{
+		pages = new long[16][];
+	}
+
+
+	/// Returns the number of offsets in this index.
+	public int size()
+	{
+		return size;
+	}
+
+
+	/// Returns the offset at the specified index.
+	/// The index must be less than [#size()].
+	public long get(int index)
+	{
+		long[][] ps = pages;
+		return ps[index >>> PAGE_BITS][index & PAGE_MASK];
+	}
+
+
+	/// Appends the offset.  This method must be called from a single writer thread.
+	public void add(long offset)
+	{
+		int ix = size;
+		if(ix == Integer.MAX_VALUE)
+		{
+			throw new IllegalStateException("too many offsets");
+		}
+
+		int p = ix >>> PAGE_BITS;
+		long[][] ps = pages;
+		if(p >= ps.length)
+		{
+			long[][] a = new long[ps.length * 2][];
+			System.arraycopy(ps, 0, a, 0, ps.length);
+			ps = a;
+			pages = ps;
+		}
+
+		long[] page = ps[p];
+		if(page == null)
+		{
+			page = new long[PAGE_SIZE];
+			ps[p] = page;
+		}
+		page[ix & PAGE_MASK] = offset;
+		size = ix + 1;
+	}
+
+
+	/// Finds the index of the largest offset less than or equal to the specified value,
+	/// or -1 if no such offset exists.  Assumes the offsets are sorted in ascending order.
+	public int findIndex(long offset)
+	{
+		int low = 0;
+		int high = size - 1;
+		int rv = -1;
+		while(low <= high)
+		{
+			int mid = (low + high) >>> 1;
+			if(get(mid) <= offset)
+			{
+				rv = mid;
+				low = mid + 1;
+			}
+			else
+			{
+				high = mid - 1;
+			}
+		}
+		return rv;
+	}
+}
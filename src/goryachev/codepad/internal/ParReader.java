@@ -1,11 +1,18 @@
 // Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
 package goryachev.codepad.internal;
 import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 
 
 /// Paragraph Reader.
 /// Supports reading lines of text, as well as new line separator tokens.
 /// A line is considered to be terminated by any one of a LF ('\n'), a CR ('\r'), or a CRLF ("\r\n").
+/// A long line might be returned as several consecutive `String` tokens.
 public abstract class ParReader
 	implements Closeable
 {
@@ -18,11 +25,34 @@ public abstract class ParReader
 	/// - ParReader#NEWLINE for a line separator
 	/// - `null` when an end of file is reached 
 	/// @return the next token
-	public abstract Object nextToken();
+	/// @throws IOException if an I/O error occurs
+	public abstract Object nextToken() throws IOException;
 
 
 	public static ParReader of(String text)
 	{
 		return new StringParReader(text);
 	}
+
+
+	public static ParReader of(Reader rd)
+	{
+		return new ReaderParReader(rd);
+	}
+
+
+	/// Creates the ParReader which decodes the input stream with the specified charset,
+	/// skipping the leading byte order mark.
+	public static ParReader of(InputStream in, Charset cs)
+	{
+		return new ReaderParReader(new InputStreamReader(in, cs), true);
+	}
+
+
+	/// Creates the ParReader which decodes the file with the specified charset,
+	/// skipping the leading byte order mark.
+	public static ParReader of(FileChannel ch, Charset cs)
+	{
+		return new ChannelParReader(ch, cs);
+	}
 }
@@ -0,0 +1,72 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.internal;
+import goryachev.common.log.Log;
+import goryachev.fx.FX;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javafx.animation.AnimationTimer;
+
+
+/// Coalesces notifications coming from any thread into at most one invocation
+/// of the callback per JavaFX pulse.
+/// The callback is always invoked in the FX application thread.
+public class PulseNotifier
+{
+	private static final Log log = Log.get("PulseNotifier");
+	private final Runnable callback;
+	private final AtomicBoolean pending = new AtomicBoolean();
+	private final AnimationTimer timer;
+
+
+	public PulseNotifier(Runnable callback)
+	{
+		this.callback = callback;
+		this.timer = new AnimationTimer()
+		{
+			@Override
+			public void handle(long now)
+			{
+				handlePulse();
+			}
+		};
+	}
+
+
+	/// Requests the callback to be invoked during the next pulse.
+	/// This method can be called from any thread.
+	public void signal()
+	{
+		if(pending.compareAndSet(false, true))
+		{
+			FX.inFX(timer::start);
+		}
+	}
+
+
+	/// Stops the notifications.  Must be called from the FX application thread.
+	public void stop()
+	{
+		pending.set(false);
+		timer.stop();
+	}
+
+
+	private void handlePulse()
+	{
+		if(pending.getAndSet(false))
+		{
+			try
+			{
+				callback.run();
+			}
+			catch(Throwable e)
+			{
+				log.error(e);
+			}
+		}
+		else
+		{
+			// idle, no need to request more pulses
+			timer.stop();
+		}
+	}
+}
@@ -0,0 +1,39 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.internal;
+import java.io.IOException;
+import java.io.Reader;
+
+
+/// ParReader over a `Reader`.
+public class ReaderParReader
+	extends BufferedParReader
+{
+	private final Reader in;
+
+
+	public ReaderParReader(Reader in, boolean skipBOM)
+	{
+		super(skipBOM);
+		this.in = in;
+	}
+
+
+	public ReaderParReader(Reader in)
+	{
+		this(in, false);
+	}
+
+
+	@Override
+	protected int read(char[] buf) throws IOException
+	{
+		return in.read(buf);
+	}
+
+
+	@Override
+	public void close() throws IOException
+	{
+		in.close();
+	}
+}
@@ -3,11 +3,18 @@ package goryachev.codepad.internal;
 import goryachev.codepad.TextPos;
 import goryachev.codepad.model.CellStyle;
 import goryachev.codepad.model.CodeParagraph;
+import goryachev.common.util.ElasticIntArray;
+import goryachev.common.util.text.IBreakIterator;
+import java.text.BreakIterator;
 import javafx.scene.paint.Color;
 
 
 /// WrapInfo represents a CodeParagraph laid out within the view port with wrapping
 /// and tab stops computed when necessary.
+///
+/// The cell index used by this class is the visual column within the paragraph, which is different
+/// from the [CodeParagraph] cell index when the paragraph contains tabs, since a tab occupies
+/// one or more columns up to the next tab stop.
 // TODO rename: CellUnit? WrapBlock?
 public abstract class WrapInfo
 {
@@ -32,22 +39,36 @@ public abstract class WrapInfo
 	
 	//
 	
+	/// the chars below this value occupy a single cell each (U+0300 is the first combining mark)
+	private static final char COMPLEX_START = '\u0300';
 	protected final CodeParagraph paragraph;
+	/// the model index, which changes when the paragraphs are inserted or removed above
+	private int index;
 	
 	
 	WrapInfo(CodeParagraph p)
 	{
 		this.paragraph = p;
+		this.index = p.getIndex();
 	}
 	
 	
 	public final int getIndex()
 	{
-		return paragraph.getIndex();
+		return index;
 	}
 	
 	
-	public final int getCellCount()
+	/// Updates the model index after the paragraphs have been inserted or removed above,
+	/// see [CellCache#shift(int, int)].
+	void setIndex(int ix)
+	{
+		index = ix;
+	}
+	
+	
+	/// Returns the number of visual cells (columns).
+	public int getCellCount()
 	{
 		return paragraph.getCellCount();
 	}
@@ -60,10 +81,26 @@ public abstract class WrapInfo
 	
 	
 	/// Returns cellIndex at the specified offset (clamped to the paragraph bounds)
-	public final int cellIndexAtOffset(int offset)
+	public int cellIndexAtOffset(int offset)
 	{
 		return paragraph.cellIndexAtOffset(offset);
 	}
+	
+	
+	/// Returns the number of cells available to the text returned by [#getCellText(int)]
+	/// for the same cell index, for example 2 for a double-width character.
+	public int getCellSpan(int cellIndex)
+	{
+		return 1;
+	}
+	
+	
+	/// Returns the cell index of the paragraph cell `delta` cells away from the one at the specified cell index,
+	/// which may be negative or exceed [#getCellCount()] when moving past the paragraph bounds.
+	public int moveByCells(int cellIndex, int delta)
+	{
+		return cellIndex + delta;
+	}
 
 	
 	public final int getTextLength()
@@ -79,7 +116,7 @@ public abstract class WrapInfo
 	
 	
 	/// Returns the cell style for the given cell index.
-	public final CellStyle getCellStyle(int cix)
+	public CellStyle getCellStyle(int cix)
 	{
 		if(cix < paragraph.getTextLength())
 		{
@@ -88,6 +125,20 @@ public abstract class WrapInfo
 		return null;
 	}
 	
+	
+	/// Returns the index of the cell following the run of cells with the same style
+	/// which starts at the given cell index.  The cells past the end of text have no style,
+	/// forming a single run.
+	public int getStyleRunEnd(int cix)
+	{
+		int len = paragraph.getTextLength();
+		if(cix < len)
+		{
+			return Math.min(paragraph.getStyleRunEnd(cix), len);
+		}
+		return Integer.MAX_VALUE;
+	}
+	
 
 	int clampCellIndex(int cellIndex)
 	{
@@ -107,12 +158,44 @@ public abstract class WrapInfo
 	}
 	
 	
+	/// Returns the number of cells in the row which starts at the specified cell index.
+	public final int getRowLength(int rowStartCellIndex)
+	{
+		int next = nextRow(rowStartCellIndex);
+		return ((next < 0) ? getCellCount() : next) - rowStartCellIndex;
+	}
+	
+	
 	/// Creates mapping between `CodeParagraph` cells and their visual positioning in the grid.
 	public static WrapInfo create(CodeParagraph p, int tabSize, int wrapLimit)
 	{
-		// TODO complex is (cellCount != charCount)
-		// TODO tabs
-		if(wrapLimit > 0)
+		return create(p, tabSize, wrapLimit, false);
+	}
+	
+	
+	/// Creates mapping between `CodeParagraph` cells and their visual positioning in the grid.
+	/// When `wordWrap` is `true`, the rows are broken at whitespace and punctuation rather than
+	/// at the wrap limit, unless a single word does not fit.
+	public static WrapInfo create(CodeParagraph p, int tabSize, int wrapLimit, boolean wordWrap)
+	{
+		if(wordWrap && (wrapLimit > 0))
+		{
+			WrapInfo wi = create(p, tabSize, -1, false);
+			if(wi.getCellCount() > wrapLimit)
+			{
+				return new WordWrapped(wi, wrapLimit);
+			}
+			return wi;
+		}
+		else if(!isSimple(p.getPlainText()))
+		{
+			return new Complex(p, tabSize, wrapLimit);
+		}
+		else if(p.hasTabs())
+		{
+			return new Tabbed(p, tabSize, wrapLimit);
+		}
+		else if(wrapLimit > 0)
 		{
 			return new WrappedSimple(p, wrapLimit);
 		}
@@ -124,6 +207,21 @@ public abstract class WrapInfo
 	}
 
 
+	// returns true if every char occupies a single cell: no surrogates, combining marks, or wide characters
+	private static boolean isSimple(String text)
+	{
+		int len = text.length();
+		for(int i=0; i<len; i++)
+		{
+			if(text.charAt(i) >= COMPLEX_START)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+
 	/// Single row, no tabs.
 	private static class SingleRow extends WrapInfo
 	{
@@ -239,4 +337,828 @@ public abstract class WrapInfo
 			return new TextPos(getIndex(), offset);
 		}
 	}
+	
+	
+	/// Paragraph with tabs, with or without wrapping.
+	///
+	/// Stores only the cell indexes of the tabs and the prefix sums of the extra columns they add,
+	/// so the conversion between the paragraph cells and the columns is O(log tabs).
+	/// When wrapping, the tab stops are computed as if the paragraph was not wrapped.
+	private static class Tabbed extends WrapInfo
+	{
+		/// wrap limit, or 0 if not wrapping
+		private final int cols;
+		/// paragraph cell indexes of the tabs
+		private final int[] tabs;
+		/// the number of extra columns added by the tabs up to and including the tab at the same index
+		private final int[] extra;
+		private final int columnCount;
+		
+		
+		Tabbed(CodeParagraph p, int tabSize, int wrapLimit)
+		{
+			super(p);
+			this.cols = Math.max(0, wrapLimit);
+
+			String text = p.getPlainText();
+			int len = p.getCellCount();
+			ElasticIntArray ts = new ElasticIntArray();
+			ElasticIntArray ex = new ElasticIntArray();
+			int added = 0;
+			for(int i=0; i<len; i++)
+			{
+				// cells correspond to chars
+				if(text.charAt(i) == '\t')
+				{
+					int col = i + added;
+					added += (tabSize - (col % tabSize)) - 1;
+					ts.add(i);
+					ex.add(added);
+				}
+			}
+			tabs = ts.toArray();
+			extra = ex.toArray();
+			columnCount = len + added;
+		}
+		
+		
+		// the number of extra columns added by the tabs before tab k
+		private int extraBefore(int k)
+		{
+			return (k == 0) ? 0 : extra[k - 1];
+		}
+		
+		
+		// the column of tab k
+		private int tabColumn(int k)
+		{
+			return tabs[k] + extraBefore(k);
+		}
+		
+		
+		// the number of columns occupied by tab k
+		private int tabWidth(int k)
+		{
+			return extra[k] - extraBefore(k) + 1;
+		}
+		
+		
+		// the number of tabs before the paragraph cell
+		private int tabsBefore(int cell)
+		{
+			int low = 0;
+			int high = tabs.length - 1;
+			while(low <= high)
+			{
+				int mid = (low + high) >>> 1;
+				if(tabs[mid] < cell)
+				{
+					low = mid + 1;
+				}
+				else
+				{
+					high = mid - 1;
+				}
+			}
+			return low;
+		}
+		
+		
+		// the last tab at or before the column, or -1
+		private int tabAtColumn(int col)
+		{
+			int low = 0;
+			int high = tabs.length - 1;
+			while(low <= high)
+			{
+				int mid = (low + high) >>> 1;
+				if(tabColumn(mid) <= col)
+				{
+					low = mid + 1;
+				}
+				else
+				{
+					high = mid - 1;
+				}
+			}
+			return high;
+		}
+		
+		
+		private int toColumn(int cell)
+		{
+			return cell + extraBefore(tabsBefore(cell));
+		}
+		
+		
+		// returns the paragraph cell at the column, a column within a tab maps to the tab
+		private int toCell(int col)
+		{
+			int k = tabAtColumn(col);
+			if(k < 0)
+			{
+				return col;
+			}
+			else if(col < tabColumn(k) + tabWidth(k))
+			{
+				return tabs[k];
+			}
+			return col - extra[k];
+		}
+		
+		
+		// returns true if the column is occupied by a tab
+		private boolean isTab(int col)
+		{
+			int k = tabAtColumn(col);
+			return (k >= 0) && (col < tabColumn(k) + tabWidth(k));
+		}
+		
+		
+		@Override
+		public int getCellCount()
+		{
+			return columnCount;
+		}
+		
+		
+		@Override
+		public int getRowCount()
+		{
+			if(cols == 0)
+			{
+				return 1;
+			}
+			return 1 + (columnCount - 1) / cols;
+		}
+
+
+		@Override
+		public String getCellText(int cix)
+		{
+			if(isTab(cix))
+			{
+				return null;
+			}
+			return paragraph.getCellText(toCell(cix));
+		}
+		
+		
+		@Override
+		public CellStyle getCellStyle(int cix)
+		{
+			if(cix < columnCount)
+			{
+				return paragraph.getCellStyle(toCell(cix));
+			}
+			return null;
+		}
+		
+		
+		@Override
+		public int getStyleRunEnd(int cix)
+		{
+			if(cix < columnCount)
+			{
+				int end = paragraph.getStyleRunEnd(toCell(cix));
+				return Math.max(toColumn(Math.min(end, paragraph.getCellCount())), cix + 1);
+			}
+			return Integer.MAX_VALUE;
+		}
+		
+		
+		@Override
+		public int cellIndexAtOffset(int offset)
+		{
+			return toColumn(paragraph.cellIndexAtOffset(offset));
+		}
+		
+		
+		@Override
+		public int moveByCells(int cix, int delta)
+		{
+			int len = paragraph.getCellCount();
+			int cell = toCell(clampCellIndex(cix)) + delta;
+			if(cell < 0)
+			{
+				return cell;
+			}
+			else if(cell > len)
+			{
+				return columnCount + (cell - len);
+			}
+			return toColumn(cell);
+		}
+
+
+		@Override
+		public int getCellIndexAtRow(int row)
+		{
+			return row * cols;
+		}
+
+
+		@Override
+		public int getRowAtCellIndex(int cix)
+		{
+			if(cols == 0)
+			{
+				return 0;
+			}
+			return cix / cols;
+		}
+		
+		
+		@Override
+		protected int nextRow(int cellIndex)
+		{
+			if(cols == 0)
+			{
+				return -1;
+			}
+
+			int r = (cellIndex / cols) + 1;
+			if(r < getRowCount())
+			{
+				return r * cols;
+			}
+			return -1;
+		}
+
+
+		@Override
+		public TextPos atCell(int cix)
+		{
+			cix = clampCellIndex(cix);
+			int k = tabAtColumn(cix);
+			int cell;
+			if((k >= 0) && (cix < tabColumn(k) + tabWidth(k)))
+			{
+				// within a tab: the nearest side
+				int pos = cix - tabColumn(k);
+				cell = (2 * pos < tabWidth(k)) ? tabs[k] : tabs[k] + 1;
+			}
+			else
+			{
+				cell = (k < 0) ? cix : cix - extra[k];
+			}
+			// cells correspond to chars
+			return new TextPos(getIndex(), cell);
+		}
+	}
+	
+	
+	/// Paragraph with the graphemes spanning several chars (surrogate pairs, combining marks),
+	/// the double-width East Asian characters which take two cells, and possibly tabs, with or without wrapping.
+	///
+	/// Stores the char offset and the column of each grapheme.  When wrapping, a double-width character
+	/// which does not fit at the end of a row is moved to the next row, leaving an empty cell.
+	private static class Complex extends WrapInfo
+	{
+		/// wrap limit, or 0 if not wrapping
+		private final int cols;
+		/// char offset of each grapheme, followed by the text length
+		private final int[] offsets;
+		/// column of each grapheme, followed by the column count
+		private final int[] columns;
+		private final String text;
+		
+		
+		Complex(CodeParagraph p, int tabSize, int wrapLimit)
+		{
+			super(p);
+			this.cols = Math.max(0, wrapLimit);
+			this.text = p.getPlainText();
+
+			ElasticIntArray offs = new ElasticIntArray(text.length() + 1);
+			ElasticIntArray cs = new ElasticIntArray(text.length() + 1);
+			IBreakIterator br = IBreakIterator.wrap(BreakIterator.getCharacterInstance());
+			br.setText(text);
+			int col = 0;
+			int start = br.first();
+			for(int end=br.next(); end!=IBreakIterator.DONE; start=end, end=br.next())
+			{
+				int w;
+				int cp = text.codePointAt(start);
+				if(cp == '\t')
+				{
+					w = tabSize - (col % tabSize);
+				}
+				else if(isWide(cp))
+				{
+					w = 2;
+					if((cols > 1) && ((col % cols) == (cols - 1)))
+					{
+						// does not fit, moves to the next row
+						col++;
+					}
+				}
+				else
+				{
+					w = 1;
+				}
+
+				offs.add(start);
+				cs.add(col);
+				col += w;
+			}
+			offs.add(text.length());
+			cs.add(col);
+
+			offsets = offs.toArray();
+			columns = cs.toArray();
+		}
+		
+		
+		// East Asian Wide and Fullwidth characters, and the emoji presentation ranges
+		private static boolean isWide(int cp)
+		{
+			if(cp < 0x1100)
+			{
+				return false;
+			}
+			return
+				(cp <= 0x115f) ||
+				((cp >= 0x2e80) && (cp <= 0x303e)) ||
+				((cp >= 0x3041) && (cp <= 0x33ff)) ||
+				((cp >= 0x3400) && (cp <= 0x4dbf)) ||
+				((cp >= 0x4e00) && (cp <= 0x9fff)) ||
+				((cp >= 0xa000) && (cp <= 0xa4cf)) ||
+				((cp >= 0xac00) && (cp <= 0xd7a3)) ||
+				((cp >= 0xf900) && (cp <= 0xfaff)) ||
+				((cp >= 0xfe30) && (cp <= 0xfe4f)) ||
+				((cp >= 0xff00) && (cp <= 0xff60)) ||
+				((cp >= 0xffe0) && (cp <= 0xffe6)) ||
+				((cp >= 0x1f300) && (cp <= 0x1f64f)) ||
+				((cp >= 0x1f900) && (cp <= 0x1f9ff)) ||
+				((cp >= 0x20000) && (cp <= 0x3fffd));
+		}
+		
+		
+		private int graphemeCount()
+		{
+			return offsets.length - 1;
+		}
+		
+		
+		// the last grapheme starting at or before the column, or -1 if the column is negative
+		private int graphemeAtColumn(int col)
+		{
+			return floor(columns, col);
+		}
+		
+		
+		// the last grapheme starting at or before the offset
+		private int graphemeAtOffset(int offset)
+		{
+			return floor(offsets, offset);
+		}
+		
+		
+		private static int floor(int[] a, int v)
+		{
+			int low = 0;
+			int high = a.length - 1;
+			while(low <= high)
+			{
+				int mid = (low + high) >>> 1;
+				if(a[mid] <= v)
+				{
+					low = mid + 1;
+				}
+				else
+				{
+					high = mid - 1;
+				}
+			}
+			return high;
+		}
+		
+		
+		@Override
+		public int getCellCount()
+		{
+			return columns[graphemeCount()];
+		}
+		
+		
+		@Override
+		public int getRowCount()
+		{
+			if(cols == 0)
+			{
+				return 1;
+			}
+			return 1 + (getCellCount() - 1) / cols;
+		}
+
+
+		@Override
+		public String getCellText(int cix)
+		{
+			int g = graphemeAtColumn(cix);
+			if((g < 0) || (g >= graphemeCount()) || (columns[g] != cix))
+			{
+				// the second cell of a wide character, or the padding
+				return null;
+			}
+
+			int start = offsets[g];
+			if(text.charAt(start) == '\t')
+			{
+				return null;
+			}
+			return text.substring(start, offsets[g + 1]);
+		}
+		
+		
+		@Override
+		public int getCellSpan(int cix)
+		{
+			int g = graphemeAtColumn(cix);
+			if((g >= 0) && (g < graphemeCount()))
+			{
+				return columns[g + 1] - columns[g];
+			}
+			return 1;
+		}
+		
+		
+		@Override
+		public CellStyle getCellStyle(int cix)
+		{
+			int g = graphemeAtColumn(cix);
+			if((g >= 0) && (g < graphemeCount()))
+			{
+				// cells correspond to chars
+				return paragraph.getCellStyle(offsets[g]);
+			}
+			return null;
+		}
+		
+		
+		@Override
+		public int getStyleRunEnd(int cix)
+		{
+			int g = graphemeAtColumn(cix);
+			if((g >= 0) && (g < graphemeCount()))
+			{
+				int end = paragraph.getStyleRunEnd(offsets[g]);
+				int g2 = graphemeAtOffset(end - 1) + 1;
+				return Math.max(columns[Math.min(g2, graphemeCount())], cix + 1);
+			}
+			return Integer.MAX_VALUE;
+		}
+		
+		
+		@Override
+		public int cellIndexAtOffset(int offset)
+		{
+			if(offset <= 0)
+			{
+				return 0;
+			}
+			else if(offset >= text.length())
+			{
+				return getCellCount();
+			}
+			return columns[graphemeAtOffset(offset)];
+		}
+		
+		
+		@Override
+		public int moveByCells(int cix, int delta)
+		{
+			int count = graphemeCount();
+			int g = Math.max(0, graphemeAtColumn(clampCellIndex(cix)));
+			if((g < count) && (cix > columns[g]) && (delta < 0))
+			{
+				// from the middle of a grapheme, the first step left goes to its start
+				delta++;
+			}
+
+			g += delta;
+			if(g < 0)
+			{
+				return g;
+			}
+			else if(g > count)
+			{
+				return getCellCount() + (g - count);
+			}
+			return columns[g];
+		}
+
+
+		@Override
+		public int getCellIndexAtRow(int row)
+		{
+			return row * cols;
+		}
+
+
+		@Override
+		public int getRowAtCellIndex(int cix)
+		{
+			if(cols == 0)
+			{
+				return 0;
+			}
+			return cix / cols;
+		}
+		
+		
+		@Override
+		protected int nextRow(int cellIndex)
+		{
+			if(cols == 0)
+			{
+				return -1;
+			}
+
+			int r = (cellIndex / cols) + 1;
+			if(r < getRowCount())
+			{
+				return r * cols;
+			}
+			return -1;
+		}
+
+
+		@Override
+		public TextPos atCell(int cix)
+		{
+			cix = clampCellIndex(cix);
+			int g = Math.max(0, graphemeAtColumn(cix));
+			int offset;
+			if((g < graphemeCount()) && (cix > columns[g]))
+			{
+				// within a wide character or a tab: the nearest side
+				int pos = cix - columns[g];
+				int width = columns[g + 1] - columns[g];
+				offset = (2 * pos < width) ? offsets[g] : offsets[g + 1];
+			}
+			else
+			{
+				offset = offsets[g];
+			}
+			return new TextPos(getIndex(), offset);
+		}
+	}
+	
+	
+	/// Wraps at word boundaries.  Delegates the cell layout to an unwrapped [WrapInfo],
+	/// adding the table of row start cell indexes computed once at creation.
+	private static class WordWrapped extends WrapInfo
+	{
+		private final WrapInfo layout;
+		private final int cols;
+		/// cell index at the start of each row
+		private final int[] rows;
+		
+		
+		WordWrapped(WrapInfo layout, int wrapLimit)
+		{
+			super(layout.paragraph);
+			this.layout = layout;
+			this.cols = wrapLimit;
+
+			String text = paragraph.getPlainText();
+			int[] breaks = isAscii(text) ? asciiBreaks(text) : breaks(text);
+			
+			ElasticIntArray rs = new ElasticIntArray();
+			rs.add(0);
+			int rowStart = 0;
+			// the last break which fits the current row
+			int last = 0;
+			int sz = breaks.length;
+			for(int i=0; i<=sz; i++)
+			{
+				// the trailing whitespace is allowed to hang past the wrap limit
+				int off = (i < sz) ? breaks[i] : text.length();
+				int cix = (i < sz) ? layout.cellIndexAtOffset(off) : layout.getCellCount();
+				int fit = layout.cellIndexAtOffset(trimTrailingWhitespace(text, off));
+				while(fit - rowStart > cols)
+				{
+					rowStart = (last > rowStart) ? last : forceBreak(rowStart);
+					rs.add(rowStart);
+				}
+				last = cix;
+			}
+			rows = rs.toArray();
+		}
+
+
+		@Override
+		void setIndex(int ix)
+		{
+			super.setIndex(ix);
+			layout.setIndex(ix);
+		}
+		
+		
+		private static boolean isAscii(String text)
+		{
+			int len = text.length();
+			for(int i=0; i<len; i++)
+			{
+				if(text.charAt(i) >= 0x80)
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		
+		// break opportunities: after whitespace, or after punctuation followed by a word character
+		private static int[] asciiBreaks(String text)
+		{
+			ElasticIntArray rv = new ElasticIntArray();
+			int len = text.length();
+			for(int i=1; i<len; i++)
+			{
+				char prev = text.charAt(i - 1);
+				char c = text.charAt(i);
+				if(isWhitespace(prev))
+				{
+					if(!isWhitespace(c))
+					{
+						rv.add(i);
+					}
+				}
+				else if(!isWordChar(prev) && isWordChar(c))
+				{
+					rv.add(i);
+				}
+			}
+			return rv.toArray();
+		}
+		
+		
+		private static int[] breaks(String text)
+		{
+			ElasticIntArray rv = new ElasticIntArray();
+			IBreakIterator br = IBreakIterator.wrap(BreakIterator.getLineInstance());
+			br.setText(text);
+			int len = text.length();
+			for(int off=br.next(); (off != IBreakIterator.DONE) && (off < len); off=br.next())
+			{
+				rv.add(off);
+			}
+			return rv.toArray();
+		}
+		
+		
+		private static boolean isWhitespace(char c)
+		{
+			return (c == ' ') || (c == '\t');
+		}
+		
+		
+		private static boolean isWordChar(char c)
+		{
+			return Character.isLetterOrDigit(c) || (c == '_');
+		}
+		
+		
+		private static int trimTrailingWhitespace(String text, int off)
+		{
+			while((off > 0) && Character.isWhitespace(text.charAt(off - 1)))
+			{
+				off--;
+			}
+			return off;
+		}
+		
+		
+		// breaks a word which does not fit at the last grapheme boundary within the wrap limit
+		private int forceBreak(int rowStart)
+		{
+			int lim = rowStart + cols;
+			int cix = layout.cellIndexAtOffset(layout.atCell(lim).offset());
+			if(cix > lim)
+			{
+				cix = layout.moveByCells(cix, -1);
+			}
+			
+			if(cix <= rowStart)
+			{
+				// a single grapheme wider than the row
+				cix = layout.moveByCells(rowStart, 1);
+			}
+			return cix;
+		}
+
+
+		@Override
+		public int getCellCount()
+		{
+			return layout.getCellCount();
+		}
+
+
+		@Override
+		public int getRowCount()
+		{
+			return rows.length;
+		}
+
+
+		@Override
+		public String getCellText(int cix)
+		{
+			return layout.getCellText(cix);
+		}
+		
+		
+		@Override
+		public int getCellSpan(int cix)
+		{
+			return layout.getCellSpan(cix);
+		}
+		
+		
+		@Override
+		public CellStyle getCellStyle(int cix)
+		{
+			return layout.getCellStyle(cix);
+		}
+		
+		
+		@Override
+		public int getStyleRunEnd(int cix)
+		{
+			return layout.getStyleRunEnd(cix);
+		}
+		
+		
+		@Override
+		public int cellIndexAtOffset(int offset)
+		{
+			return layout.cellIndexAtOffset(offset);
+		}
+		
+		
+		@Override
+		public int moveByCells(int cix, int delta)
+		{
+			return layout.moveByCells(cix, delta);
+		}
+
+
+		@Override
+		public int getCellIndexAtRow(int row)
+		{
+			if(row < 0)
+			{
+				return 0;
+			}
+			else if(row >= rows.length)
+			{
+				return getCellCount();
+			}
+			return rows[row];
+		}
+
+
+		@Override
+		public int getRowAtCellIndex(int cix)
+		{
+			int low = 0;
+			int high = rows.length - 1;
+			while(low <= high)
+			{
+				int mid = (low + high) >>> 1;
+				if(rows[mid] <= cix)
+				{
+					low = mid + 1;
+				}
+				else
+				{
+					high = mid - 1;
+				}
+			}
+			return Math.max(0, high);
+		}
+		
+		
+		@Override
+		protected int nextRow(int cellIndex)
+		{
+			int r = getRowAtCellIndex(cellIndex) + 1;
+			if(r < rows.length)
+			{
+				return rows[r];
+			}
+			return -1;
+		}
+
+
+		@Override
+		public TextPos atCell(int cix)
+		{
+			return layout.atCell(cix);
+		}
+	}
 }
@@ -0,0 +1,135 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.internal;
+import goryachev.codepad.model.CodeModel;
+import goryachev.codepad.model.CodeParagraph;
+import goryachev.common.log.Log;
+import goryachev.common.util.ParallelExecutor;
+import goryachev.fx.FX;
+
+
+/// Lays out the paragraphs beyond the sliding window in the predicted direction of scrolling
+/// in background, placing the results into the [CellCache], so the next layout pass gets mostly cache hits.
+///
+/// The direction is predicted from the movement of the sliding window between the layout passes.
+/// The paragraph text is obtained in the FX application thread, while the decoration and wrapping
+/// is done in background, provided the decorator allows it, see [CodeModel#decorateConcurrently(int, String)].
+/// The results are discarded if the cache has been invalidated in the meantime.
+public class WrapInfoPrefetcher
+{
+	private static final Log log = Log.get("WrapInfoPrefetcher");
+	private static final ParallelExecutor exec = new ParallelExecutor("WrapInfoPrefetcher");
+	private final CellCache cache;
+	private int lastTop = -1;
+	/// 1 when scrolling down, -1 when scrolling up
+	private int direction = 1;
+	private boolean busy;
+
+
+	public WrapInfoPrefetcher(CellCache cache)
+	{
+		this.cache = cache;
+	}
+
+
+	/// Called in the FX application thread after the sliding window has been computed.
+	public void prefetch(CodeModel model, int topIndex, int bottomIndex, int tabSize, int wrapLimit, boolean wordWrap)
+	{
+		if(lastTop >= 0)
+		{
+			if(topIndex > lastTop)
+			{
+				direction = 1;
+			}
+			else if(topIndex < lastTop)
+			{
+				direction = -1;
+			}
+		}
+		lastTop = topIndex;
+
+		if(busy || (model == null) || !model.canDecorateConcurrently())
+		{
+			return;
+		}
+
+		int start;
+		int end;
+		if(direction > 0)
+		{
+			start = bottomIndex + 1;
+			end = Math.min(model.size(), start + Defaults.PREFETCH_PARAGRAPHS);
+		}
+		else
+		{
+			end = topIndex;
+			start = Math.max(0, end - Defaults.PREFETCH_PARAGRAPHS);
+		}
+
+		int n = end - start;
+		if(n <= 0)
+		{
+			return;
+		}
+
+		int[] indexes = new int[n];
+		String[] texts = new String[n];
+		int count = 0;
+		for(int ix=start; ix<end; ix++)
+		{
+			if(!cache.contains(ix))
+			{
+				indexes[count] = ix;
+				texts[count] = model.getPlainText(ix);
+				count++;
+			}
+		}
+
+		if(count == 0)
+		{
+			return;
+		}
+
+		int gen = cache.getGeneration();
+		int ct = count;
+		busy = true;
+		exec.submit(() -> process(model, indexes, texts, ct, gen, tabSize, wrapLimit, wordWrap));
+	}
+
+
+	// decorates and wraps the paragraphs in background
+	private void process(CodeModel model, int[] indexes, String[] texts, int count, int gen, int tabSize, int wrapLimit, boolean wordWrap)
+	{
+		WrapInfo[] result = new WrapInfo[count];
+		try
+		{
+			for(int i=0; i<count; i++)
+			{
+				CodeParagraph p = model.decorateConcurrently(indexes[i], texts[i]);
+				if(p == null)
+				{
+					// the decorator requires the FX application thread
+					break;
+				}
+				result[i] = WrapInfo.create(p, tabSize, wrapLimit, wordWrap);
+			}
+		}
+		catch(Throwable e)
+		{
+			log.error(e);
+		}
+
+		FX.later(() ->
+		{
+			busy = false;
+			for(int i=0; i<count; i++)
+			{
+				WrapInfo wi = result[i];
+				if(wi == null)
+				{
+					break;
+				}
+				cache.put(gen, indexes[i], wi);
+			}
+		});
+	}
+}
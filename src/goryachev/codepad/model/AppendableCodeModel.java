@@ -0,0 +1,65 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.model;
+import goryachev.codepad.internal.PulseNotifier;
+
+
+/// Append-only [CodeModel] which can be fed from any thread, such as a log viewer.
+///
+/// The appended paragraphs become visible at most once per pulse, with the listeners
+/// receiving a single [ChangeListener#onParagraphsAppended(int, int)] event for all the
+/// paragraphs appended since the previous pulse.
+public class AppendableCodeModel
+	extends CodeModel
+{
+	private final AppendableCodeModelContent appendable;
+	private final PulseNotifier notifier;
+
+
+	public AppendableCodeModel(ParagraphDecorator d)
+	{
+		this(new AppendableCodeModelContent(d));
+	}
+
+
+	public AppendableCodeModel()
+	{
+		this(new AppendableCodeModelContent());
+	}
+
+
+	private AppendableCodeModel(AppendableCodeModelContent c)
+	{
+		super(c);
+		appendable = c;
+		notifier = new PulseNotifier(this::handlePulse);
+	}
+
+
+	/// Appends a single paragraph.  The text must not contain line separators.
+	/// This method can be called from any thread.
+	public void appendLine(String text)
+	{
+		appendable.appendLine(text);
+		notifier.signal();
+	}
+
+
+	/// Appends the text as one or more paragraphs, split at the line separators.
+	/// This method can be called from any thread.
+	public void appendLines(String text)
+	{
+		appendable.appendLines(text);
+		notifier.signal();
+	}
+
+
+	private void handlePulse()
+	{
+		int start = appendable.publish();
+		int count = appendable.size() - start;
+		if(count > 0)
+		{
+			fireParagraphsAppended(start, count);
+		}
+	}
+}
@@ -0,0 +1,153 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.model;
+import goryachev.codepad.TextPos;
+
+
+/// Append-only [CodeModelContent], suitable for logs and other output streams.
+///
+/// The paragraphs are stored in fixed size pages, so appending never copies the existing data.
+/// Any thread can append (the appends are serialized by a lock), while the readers see only
+/// the paragraphs made visible by [#publish()], see [AppendableCodeModel].
+public class AppendableCodeModelContent
+	extends DecoratedContent
+{
+	private static final int PAGE_BITS = 12;
+	private static final int PAGE_SIZE = 1 << PAGE_BITS;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+	private volatile String[][] pages;
+	/// the number of paragraphs appended
+	private volatile int count;
+	/// the number of paragraphs visible to the readers
+	private volatile int size;
+
+
+	public AppendableCodeModelContent(ParagraphDecorator d)
+	{
+		super(d);
+		pages = new String[16][];
+	}
+
+
+	public AppendableCodeModelContent()
+	{
+		this(null);
+	}
+
+
+	@Override
+	public boolean isWritable()
+	{
+		return false;
+	}
+
+
+	@Override
+	public boolean isAppendable()
+	{
+		return true;
+	}
+
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+
+	@Override
+	public String getPlainText(int ix)
+	{
+		String[][] ps = pages;
+		return ps[ix >>> PAGE_BITS][ix & PAGE_MASK];
+	}
+
+
+	@Override
+	public InsertResult replace(TextPos start, TextPos end, String text, boolean undoEnabled)
+	{
+		return null;
+	}
+
+
+	/// Appends a single paragraph.  The text must not contain line separators.
+	/// This method can be called from any thread.
+	public synchronized void appendLine(String text)
+	{
+		add(text);
+	}
+
+
+	/// Appends the text as one or more paragraphs, split at the line separators
+	/// (LF, CR, or CRLF).  A trailing line separator does not create an empty paragraph.
+	/// This method can be called from any thread.
+	public synchronized void appendLines(String text)
+	{
+		int len = text.length();
+		int start = 0;
+		for(int i=0; i<len; i++)
+		{
+			char c = text.charAt(i);
+			switch(c)
+			{
+			case '\n':
+				add(text.substring(start, i));
+				start = i + 1;
+				break;
+			case '\r':
+				add(text.substring(start, i));
+				if((i + 1 < len) && (text.charAt(i + 1) == '\n'))
+				{
+					i++;
+				}
+				start = i + 1;
+				break;
+			}
+		}
+
+		if(start < len)
+		{
+			add(text.substring(start));
+		}
+	}
+
+
+	/// Makes all the appended paragraphs visible to the readers.
+	/// Returns the previous size.
+	int publish()
+	{
+		int old = size;
+		size = count;
+		return old;
+	}
+
+
+	// called under the lock
+	private void add(String text)
+	{
+		int ix = count;
+		if(ix == Integer.MAX_VALUE)
+		{
+			throw new IllegalStateException("too many paragraphs");
+		}
+
+		int p = ix >>> PAGE_BITS;
+		String[][] ps = pages;
+		if(p >= ps.length)
+		{
+			String[][] a = new String[ps.length * 2][];
+			System.arraycopy(ps, 0, a, 0, ps.length);
+			ps = a;
+			pages = ps;
+		}
+
+		String[] page = ps[p];
+		if(page == null)
+		{
+			page = new String[PAGE_SIZE];
+			ps[p] = page;
+		}
+		page[ix & PAGE_MASK] = text;
+		count = ix + 1;
+	}
+}
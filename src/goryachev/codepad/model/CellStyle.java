@@ -4,6 +4,8 @@ import javafx.scene.paint.Color;
 
 
 /// Contains text cell attributes.
+///
+/// The instances created by the [Builder] are interned, and can be compared by identity.
 public interface CellStyle
 {
 	public Color getTextColor();
@@ -87,51 +89,10 @@ public interface CellStyle
 		}
 		
 		
+		/// Returns the interned style, see [CellStylePalette].
 		public CellStyle build()
 		{
-			return new CellStyle()
-			{
-				@Override
-				public Color getTextColor()
-				{
-					return textColor;
-				}
-
-
-				@Override
-				public Color getBackgroundColor()
-				{
-					return backgroundColor;
-				}
-
-
-				@Override
-				public boolean isUnderline()
-				{
-					return underline;
-				}
-
-
-				@Override
-				public boolean isStrikeThrough()
-				{
-					return strikeThrough;
-				}
-
-
-				@Override
-				public boolean isBold()
-				{
-					return bold;
-				}
-
-
-				@Override
-				public boolean isItalic()
-				{
-					return italic;
-				}
-			};
+			return CellStylePalette.intern(textColor, backgroundColor, bold, italic, strikeThrough, underline);
 		}
 	}
 }
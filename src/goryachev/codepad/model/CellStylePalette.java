@@ -0,0 +1,231 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.model;
+import goryachev.common.log.Log;
+import goryachev.common.util.FH;
+import java.util.HashMap;
+import java.util.Objects;
+import javafx.scene.paint.Color;
+
+
+/// Global registry of the interned [CellStyle]s.
+///
+/// Each distinct combination of the style attributes is represented by a single instance
+/// identified by a small non-negative `int` id which fits into a `short`, so the paragraphs can store
+/// the styles as compact arrays of ids, and the renderer can look up the per-style resources by indexing
+/// an array.  The id of [CellStyle#EMPTY] (and of a `null` style) is 0.
+///
+/// The styles created by [CellStyle.Builder] are interned automatically.
+/// The interned styles are never removed.  Once the palette is full, the new styles are no longer interned:
+/// each is a separate instance with the id [#NOT_INTERNED], which the callers must handle by using the style itself.
+/// This class is thread-safe.
+public final class CellStylePalette
+{
+	private static final Log log = Log.get("CellStylePalette");
+	/// the maximum number of styles
+	public static final int MAX_SIZE = Short.MAX_VALUE + 1;
+	/// the id of a style which could not be interned because the palette is full
+	public static final int NOT_INTERNED = -1;
+	private static final HashMap<Style,Style> styles = new HashMap<>();
+	/// replaced on each addition, for lock-free reads
+	private static volatile Style[] byId = new Style[0];
+	private static boolean full;
+	static
+	{
+		intern(null, null, false, false, false, false);
+	}
+
+
+	private CellStylePalette()
+	{
+	}
+
+
+	/// Returns the interned style with the same attributes as the specified one.
+	public static CellStyle intern(CellStyle s)
+	{
+		if(s == null)
+		{
+			return byId[0];
+		}
+		else if(s instanceof Style)
+		{
+			return s;
+		}
+		return intern(s.getTextColor(), s.getBackgroundColor(), s.isBold(), s.isItalic(), s.isStrikeThrough(), s.isUnderline());
+	}
+
+
+	/// Returns the id of the style, interning it if necessary.  Returns 0 for `null`,
+	/// or [#NOT_INTERNED] if the palette is full.
+	public static int idOf(CellStyle s)
+	{
+		if(s == null)
+		{
+			return 0;
+		}
+		else if(s instanceof Style st)
+		{
+			return st.id;
+		}
+		return ((Style)intern(s)).id;
+	}
+
+
+	/// Returns the style with the specified non-negative id.
+	public static CellStyle get(int id)
+	{
+		return byId[id];
+	}
+
+
+	/// Returns the number of interned styles, the ids are less than this value.
+	public static int size()
+	{
+		return byId.length;
+	}
+
+
+	static synchronized CellStyle intern(Color textColor, Color backgroundColor, boolean bold, boolean italic, boolean strikeThrough, boolean underline)
+	{
+		Style s = new Style(-1, textColor, backgroundColor, bold, italic, strikeThrough, underline);
+		Style st = styles.get(s);
+		if(st == null)
+		{
+			int id = byId.length;
+			if(id >= MAX_SIZE)
+			{
+				if(!full)
+				{
+					full = true;
+					log.warn("the palette is full, the new styles will not be interned");
+				}
+				return notInterned(textColor, backgroundColor, bold, italic, strikeThrough, underline);
+			}
+
+			st = new Style(id, textColor, backgroundColor, bold, italic, strikeThrough, underline);
+			styles.put(st, st);
+
+			Style[] a = new Style[id + 1];
+			System.arraycopy(byId, 0, a, 0, id);
+			a[id] = st;
+			byId = a;
+		}
+		return st;
+	}
+
+
+	/// Creates the style which is not interned, see [#NOT_INTERNED].
+	static CellStyle notInterned(Color textColor, Color backgroundColor, boolean bold, boolean italic, boolean strikeThrough, boolean underline)
+	{
+		return new Style(NOT_INTERNED, textColor, backgroundColor, bold, italic, strikeThrough, underline);
+	}
+
+
+	/// The interned style, or the one which could not be interned.
+	private static final class Style
+		implements CellStyle
+	{
+		private final int id;
+		private final Color textColor;
+		private final Color backgroundColor;
+		private final boolean bold;
+		private final boolean italic;
+		private final boolean strikeThrough;
+		private final boolean underline;
+
+
+		public Style(int id, Color textColor, Color backgroundColor, boolean bold, boolean italic, boolean strikeThrough, boolean underline)
+		{
+			this.id = id;
+			this.textColor = textColor;
+			this.backgroundColor = backgroundColor;
+			this.bold = bold;
+			this.italic = italic;
+			this.strikeThrough = strikeThrough;
+			this.underline = underline;
+		}
+
+
+		@Override
+		public Color getTextColor()
+		{
+			return textColor;
+		}
+
+
+		@Override
+		public Color getBackgroundColor()
+		{
+			return backgroundColor;
+		}
+
+
+		@Override
+		public boolean isUnderline()
+		{
+			return underline;
+		}
+
+
+		@Override
+		public boolean isStrikeThrough()
+		{
+			return strikeThrough;
+		}
+
+
+		@Override
+		public boolean isBold()
+		{
+			return bold;
+		}
+
+
+		@Override
+		public boolean isItalic()
+		{
+			return italic;
+		}
+
+
+		@Override
+		public boolean equals(Object x)
+		{
+			if(x == this)
+			{
+				return true;
+			}
+			else if(x instanceof Style s)
+			{
+				return
+					(bold == s.bold) &&
+					(italic == s.italic) &&
+					(strikeThrough == s.strikeThrough) &&
+					(underline == s.underline) &&
+					Objects.equals(textColor, s.textColor) &&
+					Objects.equals(backgroundColor, s.backgroundColor);
+			}
+			return false;
+		}
+
+
+		@Override
+		public int hashCode()
+		{
+			int h = FH.hash(Style.class);
+			h = FH.hash(h, textColor);
+			h = FH.hash(h, backgroundColor);
+			h = FH.hash(h, bold);
+			h = FH.hash(h, italic);
+			h = FH.hash(h, strikeThrough);
+			return FH.hash(h, underline);
+		}
+
+
+		@Override
+		public String toString()
+		{
+			return "CellStyle{id=" + id + "}";
+		}
+	}
+}
@@ -8,6 +8,40 @@ public interface ChangeListener
 	// TODO make it a @FunctionalInterface
 	
 	
-	// TODO or create ContentChange and its .Listener?
+	/// Invoked when the content has changed in a way that cannot be described by a [ContentChange],
+	/// the listeners should assume the whole content has been changed.
 	public void onContentChange();
+	
+	
+	/// Invoked when the text between the specified positions has been replaced.
+	/// The default implementation calls [#onContentChange()].
+	///
+	/// @param ch the change description
+	public default void onContentChange(ContentChange ch)
+	{
+		onContentChange();
+	}
+	
+	
+	/// Invoked when new paragraphs are appended at the end of the model,
+	/// without changing any of the existing paragraphs.
+	/// The default implementation calls [#onContentChange()].
+	///
+	/// @param start the index of the first appended paragraph
+	/// @param count the number of appended paragraphs
+	public default void onParagraphsAppended(int start, int count)
+	{
+		onContentChange();
+	}
+	
+	
+	/// Invoked when the decorations (but not the text) of the paragraphs have changed,
+	/// for example when a background highlighter has determined the correct styles.
+	/// The default implementation does nothing.
+	///
+	/// @param start the index of the first affected paragraph
+	/// @param count the number of affected paragraphs
+	public default void onStyleChange(int start, int count)
+	{
+	}
 }
@@ -2,7 +2,22 @@
 package goryachev.codepad.model;
 import goryachev.codepad.CodePad;
 import goryachev.codepad.TextPos;
+import goryachev.codepad.internal.Defaults;
+import goryachev.codepad.internal.ParReader;
+import goryachev.common.io.DReader;
 import goryachev.common.log.Log;
+import goryachev.fx.LineEnding;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.util.Objects;
 import java.util.concurrent.CopyOnWriteArrayList;
 
@@ -17,15 +32,28 @@ import java.util.concurrent.CopyOnWriteArrayList;
 public class CodeModel
 {
 	private static Log log = Log.get("CodeModel");
+	private static final int EXPORT_CHUNK_SIZE = 65536;
 	protected final CodeModelContent content;
 	private final CopyOnWriteArrayList<ChangeListener> listeners = new CopyOnWriteArrayList<>();
 	private boolean undoRedoEnabled;
+	private UndoJournal journal;
+	private EditBatch batch;
+	private boolean dispatching;
+	private int pendingStyleStart;
+	private int pendingStyleCount;
 	
 	
 	public CodeModel(CodeModelContent content)
 	{
 		this.content = content;
 	}
+
+
+	CodeModel(CodeModelContent content, boolean undoRedoEnabled)
+	{
+		this.content = content;
+		this.undoRedoEnabled = undoRedoEnabled;
+	}
 	
 	
 	/// Determines whether the model can be modified by the user (i.e. supports editing).
@@ -60,6 +88,142 @@ public class CodeModel
 	public final void setUndoRedoEnabled(boolean on)
 	{
 		undoRedoEnabled = on;
+		if(!on && (journal != null))
+		{
+			journal.clear();
+			journal = null;
+		}
+	}
+
+
+	/// Sets the approximate memory budget for the undo/redo journal, in bytes.
+	/// The oldest records are discarded when the journal exceeds the budget.
+	public final void setUndoBudget(long bytes)
+	{
+		journal().setBudget(bytes);
+	}
+
+
+	/// Sets the number of characters above which the text removed by an edit
+	/// is stored in a temporary file rather than in memory.
+	public final void setUndoSpillThreshold(long chars)
+	{
+		journal().setSpillThreshold(chars);
+	}
+
+
+	private UndoJournal journal()
+	{
+		if(journal == null)
+		{
+			journal = new UndoJournal(Defaults.UNDO_BUDGET, Defaults.UNDO_SPILL_THRESHOLD);
+		}
+		return journal;
+	}
+
+
+	public final boolean canUndo()
+	{
+		return (journal != null) && isWritable() && journal.canUndo();
+	}
+
+
+	public final boolean canRedo()
+	{
+		return (journal != null) && isWritable() && journal.canRedo();
+	}
+
+
+	/// Reverts the last edit.
+	/// Returns the end of the restored text, or `null` if there is nothing to undo.
+	public final TextPos undo() throws Exception
+	{
+		if(!canUndo())
+		{
+			return null;
+		}
+
+		UndoJournal.Edit ed = journal.popUndo();
+		UndoJournal.Edit inverse = apply(ed);
+		journal.pushRedo(inverse);
+		return inverse.end();
+	}
+
+
+	/// Re-applies the last undone edit.
+	/// Returns the end of the restored text, or `null` if there is nothing to redo.
+	public final TextPos redo() throws Exception
+	{
+		if(!canRedo())
+		{
+			return null;
+		}
+
+		UndoJournal.Edit ed = journal.popRedo();
+		UndoJournal.Edit inverse = apply(ed);
+		journal.pushUndo(inverse);
+		return inverse.end();
+	}
+
+
+	// replaces the edit range with the removed text, returns the inverse edit
+	private UndoJournal.Edit apply(UndoJournal.Edit ed) throws Exception
+	{
+		if(ed.removed() instanceof UndoJournal.Edit[] subs)
+		{
+			// compound edit: revert in the reverse order, firing a single event
+			EditBatch b = new EditBatch(this);
+			batch = b;
+			try
+			{
+				UndoJournal.Edit[] inverse = new UndoJournal.Edit[subs.length];
+				for(int i=subs.length-1; i>=0; i--)
+				{
+					inverse[subs.length - 1 - i] = apply(subs[i]);
+				}
+				ContentChange ch = b.getChange();
+				return new UndoJournal.Edit(ch.getStart(), ch.getNewEnd(), inverse, false);
+			}
+			finally
+			{
+				batch = null;
+				fireEvent(b.getChange());
+			}
+		}
+
+		TextPos start = ed.start();
+		TextPos end = ed.end();
+		Object removed = ed.removed();
+		Object captured = journal.capture(content, start, end);
+
+		TextPos newEnd;
+		if(removed instanceof UndoJournal.Spill sp)
+		{
+			// re-insert paragraph by paragraph to avoid creating a huge string
+			newEnd = content.replace(start, end, "", false).getNewEnd();
+			try(DReader rd = sp.open())
+			{
+				int ct = sp.getParagraphCount();
+				for(int i=0; i<ct; i++)
+				{
+					String s = rd.readString();
+					if(i > 0)
+					{
+						s = "\n" + s;
+					}
+					newEnd = content.replace(newEnd, newEnd, s, false).getNewEnd();
+				}
+			}
+		}
+		else
+		{
+			String text = (removed == null) ? "" : (String)removed;
+			newEnd = content.replace(start, end, text, false).getNewEnd();
+		}
+
+		ed.dispose();
+		fireEvent(start, end, newEnd);
+		return new UndoJournal.Edit(start, newEnd, captured, false);
 	}
 	
 	
@@ -81,27 +245,67 @@ public class CodeModel
 	}
 	
 	
+	/// Creates the [CodeParagraph] for the specified text of the paragraph at the specified `index`,
+	/// same as [#getParagraph(int)], from a background thread.
+	/// Returns `null` if the paragraph cannot be created outside of the FX application thread,
+	/// see [ParagraphDecorator#isConcurrent()].
+	public CodeParagraph decorateConcurrently(int index, String text)
+	{
+		if(content instanceof DecoratedContent c)
+		{
+			return c.decorate(index, text);
+		}
+		return null;
+	}
+	
+	
+	/// Passes the range of paragraphs (inclusive) laid out by the view to the decorator,
+	/// see [ParagraphDecorator#setVisibleRange(int, int)].
+	public void setVisibleRange(int start, int end)
+	{
+		if(content instanceof DecoratedContent c)
+		{
+			ParagraphDecorator d = c.getDecorator();
+			if(d != null)
+			{
+				d.setVisibleRange(start, end);
+			}
+		}
+	}
+	
+	
+	/// Returns `true` if [#decorateConcurrently(int, String)] is able to create the paragraphs.
+	public boolean canDecorateConcurrently()
+	{
+		if(content instanceof DecoratedContent c)
+		{
+			ParagraphDecorator d = c.getDecorator();
+			return (d == null) || d.isConcurrent();
+		}
+		return false;
+	}
+	
+	
 	/// Returns the plain text (always non-null) of the paragraph at the specified `index`.
 	///
 	/// This index should never go beyond the number of paragraphs as determined by [#size()].
 	/// Doing so might result in an undetermined behavior (most likely an exception).
 	/// @implNote
-	/// The default implementation retrieves the [CodeParagraph] and obtains the plain text from it.
+	/// The default implementation delegates to [CodeModelContent#getPlainText(int)], bypassing the decorator.
 	/// The subclasses may override this method if a more efficient way of obtaining the plain text exist.
 	public String getPlainText(int index)
 	{
-		CodeParagraph p = getParagraph(index);
-		return p.getPlainText();
+		return content.getPlainText(index);
 	}
 
 	
 	/// Returns the length of the paragraph text (the character count) at the specified `index`.
 	///
-	/// The base class implementation simply invokes 'getParagraph(index).getTextLength();',
-	/// but subclasses may override this method if a more optimal implementation can be provided.
+	/// The base class implementation delegates to [CodeModelContent#getParagraphLength(int)],
+	/// subclasses may override this method if a more optimal implementation can be provided.
 	public int getParagraphLength(int index)
 	{
-		return getParagraph(index).getTextLength();
+		return content.getParagraphLength(index);
 	}
 	
 
@@ -167,6 +371,183 @@ public class CodeModel
 	}
 	
 	
+	/// Exports the text between the two positions, paragraph by paragraph, passing the fragments
+	/// (never longer than 64K characters) to the consumer, which can stop the export by returning `false`.
+	/// The memory usage does not depend on the size of the range.
+	///
+	/// @param start the start position
+	/// @param end the end position
+	/// @param lineEnding the line separator, or `null` for the platform default
+	/// @param out the consumer
+	public final void export(TextPos start, TextPos end, LineEnding lineEnding, PlaintextConsumer out)
+	{
+		try
+		{
+			exportFragments(start, end, lineEnding, out::consumePlaintextFragment);
+		}
+		catch(IOException e)
+		{
+			// the consumer does not throw checked exceptions
+			throw new UncheckedIOException(e);
+		}
+	}
+
+
+	/// Exports the text between the two positions to the specified `Writer`.
+	/// The writer is not closed.
+	public final void export(TextPos start, TextPos end, LineEnding lineEnding, Writer wr) throws IOException
+	{
+		exportFragments(start, end, lineEnding, (s) ->
+		{
+			wr.write(s);
+			return true;
+		});
+	}
+
+
+	/// Exports the text between the two positions to the specified channel,
+	/// encoding it with the given charset.  The channel is not closed.
+	public final void export(TextPos start, TextPos end, LineEnding lineEnding, Charset cs, WritableByteChannel ch) throws IOException
+	{
+		CharsetEncoder enc = cs.newEncoder().
+			onMalformedInput(CodingErrorAction.REPLACE).
+			onUnmappableCharacter(CodingErrorAction.REPLACE);
+		ByteBuffer buf = ByteBuffer.allocate(EXPORT_CHUNK_SIZE * 4);
+
+		exportFragments(start, end, lineEnding, (s) ->
+		{
+			encode(enc, CharBuffer.wrap(s), buf, ch, false);
+			return true;
+		});
+
+		finishEncoding(enc, buf, ch);
+	}
+
+
+	/// Saves the model text to the specified file in background, see [SaveJob].
+	/// The job operates on a [#snapshot()], so the model can be modified while the file is being written.
+	///
+	/// @param file the target file
+	/// @param cs the charset
+	/// @param lineEnding the line separator, or `null` for the platform default
+	/// @param onCompletion the callback invoked in a background thread when the job is finished, or `null`
+	/// @return the submitted job
+	public final SaveJob save(File file, Charset cs, LineEnding lineEnding, Runnable onCompletion)
+	{
+		Objects.requireNonNull(file, "file");
+		Objects.requireNonNull(cs, "charset");
+		SaveJob j = new SaveJob(snapshot(), file, cs, lineEnding, onCompletion);
+		j.submit();
+		return j;
+	}
+
+
+	/// Returns an immutable snapshot of the text, which can be read from any thread.
+	/// This method must be called from the thread that modifies the model.
+	public final TextSnapshot snapshot()
+	{
+		return content.snapshot();
+	}
+
+
+	static void finishEncoding(CharsetEncoder enc, ByteBuffer buf, WritableByteChannel ch) throws IOException
+	{
+		encode(enc, CharBuffer.allocate(0), buf, ch, true);
+		while(enc.flush(buf) == CoderResult.OVERFLOW)
+		{
+			drain(buf, ch);
+		}
+		drain(buf, ch);
+	}
+
+
+	static void encode(CharsetEncoder enc, CharBuffer in, ByteBuffer buf, WritableByteChannel ch, boolean endOfInput) throws IOException
+	{
+		for(;;)
+		{
+			CoderResult r = enc.encode(in, buf, endOfInput);
+			if(r.isOverflow())
+			{
+				drain(buf, ch);
+			}
+			else if(r.isUnderflow())
+			{
+				return;
+			}
+			else
+			{
+				r.throwException();
+			}
+		}
+	}
+
+
+	private static void drain(ByteBuffer buf, WritableByteChannel ch) throws IOException
+	{
+		buf.flip();
+		while(buf.hasRemaining())
+		{
+			ch.write(buf);
+		}
+		buf.clear();
+	}
+
+
+	@FunctionalInterface
+	private interface FragmentSink
+	{
+		public boolean accept(String s) throws IOException;
+	}
+
+
+	private void exportFragments(TextPos start, TextPos end, LineEnding lineEnding, FragmentSink out) throws IOException
+	{
+		start = clamp(start);
+		end = clamp(end);
+		if(start.compareTo(end) > 0)
+		{
+			TextPos t = start;
+			start = end;
+			end = t;
+		}
+
+		String nl = (lineEnding == null ? LineEnding.getDefault() : lineEnding).getText();
+		int ix = start.index();
+		int last = end.index();
+		for(;;)
+		{
+			String s = getPlainText(ix);
+			int from = (ix == start.index()) ? start.offset() : 0;
+			int to = (ix == last) ? end.offset() : s.length();
+			while(from < to)
+			{
+				int n = Math.min(to - from, EXPORT_CHUNK_SIZE);
+				if((n < to - from) && Character.isHighSurrogate(s.charAt(from + n - 1)))
+				{
+					// do not split a surrogate pair
+					n--;
+				}
+				if(!out.accept(s.substring(from, from + n)))
+				{
+					return;
+				}
+				from += n;
+			}
+
+			if(ix == last)
+			{
+				return;
+			}
+
+			if(!out.accept(nl))
+			{
+				return;
+			}
+			ix++;
+		}
+	}
+
+
 	protected void removeRange()
 	{
 		// TODO
@@ -176,6 +557,21 @@ public class CodeModel
 	public final TextPos replace(TextPos start, TextPos end, String text) throws Exception
 	{
 		log.trace("start={0} end={1} text={2}", start, end, text);
+		return replace(start, end, text, null);
+	}
+
+
+	/// Replaces the text between the two positions with the text read from the [ParReader],
+	/// which allows for inserting (or loading) large amounts of text without creating a huge `String`.
+	/// The reader is not closed.
+	public final TextPos replace(TextPos start, TextPos end, ParReader rd) throws Exception
+	{
+		return replace(start, end, null, rd);
+	}
+
+
+	private TextPos replace(TextPos start, TextPos end, String text, ParReader rd) throws Exception
+	{
 		Objects.nonNull(start);
 		Objects.nonNull(end);
 		
@@ -192,14 +588,23 @@ public class CodeModel
 		}
 
 		boolean undoEnabled = isUndoRedoEnabled();
-		InsertResult r = content.replace(start, end, text, undoEnabled);
+		Object removed = undoEnabled ? journal().capture(content, start, end) : null;
+		InsertResult r = (rd == null) ? content.replace(start, end, text, undoEnabled) : content.replace(start, end, rd, undoEnabled);
 		
 		if(undoEnabled)
 		{
-			// TODO update undo
+			boolean typing = (text != null) && start.equals(end) && (text.length() == 1) && (text.charAt(0) != '\n') && (text.charAt(0) != '\r');
+			UndoJournal.Edit ed = new UndoJournal.Edit(start, r.getNewEnd(), removed, typing);
+			if(batch == null)
+			{
+				journal().add(ed);
+			}
+			else
+			{
+				batch.addEdit(ed);
+			}
 		}
 		
-		// TODO fire event
 		TextPos newEnd = r.getNewEnd();
 		fireEvent(start, end, newEnd);
 		
@@ -207,11 +612,130 @@ public class CodeModel
 	}
 
 
+	/// Applies a number of edits as a single operation: the listeners receive one
+	/// [ContentChange] covering all the edits, and a single undo record is created.
+	/// The positions passed to [EditBatch#replace(TextPos, TextPos, String)] reflect
+	/// the edits made earlier in the same batch.
+	///
+	/// The nested calls are merged into the outer batch.
+	///
+	/// @param op the operation
+	/// @throws Exception if the operation throws an exception.  The edits made before
+	/// the exception are kept, and can be undone.
+	public final void edit(EditBatch.Operation op) throws Exception
+	{
+		checkWritable();
+
+		if(batch != null)
+		{
+			op.apply(batch);
+			return;
+		}
+
+		EditBatch b = new EditBatch(this);
+		batch = b;
+		try
+		{
+			op.apply(b);
+		}
+		finally
+		{
+			batch = null;
+			UndoJournal.Edit ed = b.getUndoRecord();
+			if(ed != null)
+			{
+				journal().add(ed);
+			}
+			fireEvent(b.getChange());
+		}
+	}
+
+
 	private void fireEvent(TextPos start, TextPos end, TextPos newEnd)
+	{
+		if(batch == null)
+		{
+			fireEvent(new ContentChange(start, end, newEnd));
+		}
+		else
+		{
+			batch.merge(start, end, newEnd);
+		}
+	}
+
+
+	private void fireEvent(ContentChange ch)
+	{
+		if(ch != null)
+		{
+			dispatching = true;
+			try
+			{
+				for(ChangeListener li: listeners)
+				{
+					li.onContentChange(ch);
+				}
+			}
+			finally
+			{
+				dispatching = false;
+			}
+
+			if(pendingStyleCount > 0)
+			{
+				int start = pendingStyleStart;
+				int count = pendingStyleCount;
+				pendingStyleCount = 0;
+				fireStyleChange(start, count);
+			}
+		}
+	}
+
+
+	/// Notifies the listeners that the decorations of the specified paragraphs have changed.
+	/// When called from a listener handling a [ContentChange], the notification is deferred
+	/// until all the listeners have received the change.
+	/// Must be called from the FX application thread.
+	///
+	/// @param start the index of the first affected paragraph
+	/// @param count the number of affected paragraphs
+	public final void fireStyleChange(int start, int count)
+	{
+		if(count <= 0)
+		{
+			return;
+		}
+
+		if(dispatching)
+		{
+			if(pendingStyleCount == 0)
+			{
+				pendingStyleStart = start;
+				pendingStyleCount = count;
+			}
+			else
+			{
+				int end = Math.max(pendingStyleStart + pendingStyleCount, start + count);
+				pendingStyleStart = Math.min(pendingStyleStart, start);
+				pendingStyleCount = end - pendingStyleStart;
+			}
+			return;
+		}
+
+		for(ChangeListener li: listeners)
+		{
+			li.onStyleChange(start, count);
+		}
+	}
+	
+	
+	/// Notifies the listeners that the paragraphs have been appended at the end of the model.
+	/// Must be called from the FX application thread.
+	protected final void fireParagraphsAppended(int start, int count)
 	{
 		for(ChangeListener li: listeners)
 		{
-			li.onContentChange();
+			li.onParagraphsAppended(start, count);
 		}
 	}
 }
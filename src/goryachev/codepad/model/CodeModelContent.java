@@ -1,6 +1,7 @@
 // Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
 package goryachev.codepad.model;
 import goryachev.codepad.TextPos;
+import goryachev.codepad.internal.ParReader;
 
 
 /// CodeModel Content.
@@ -28,6 +29,16 @@ public interface CodeModelContent
 	public String getPlainText(int index);
 	
 	
+	/// Returns the length of the paragraph text at the specified `index`.
+	///
+	/// The default implementation returns the length of [#getPlainText(int)],
+	/// implementations may override this method if the length is known without creating the `String`.
+	public default int getParagraphLength(int index)
+	{
+		return getPlainText(index).length();
+	}
+	
+	
 	/// Replaces the content between `start` and `end` positions with the new text.
 	/// The `start` text position must be before or equal to the `end` position.
 	/// Returns `null` if the content is not writable.
@@ -39,4 +50,73 @@ public interface CodeModelContent
 	/// @return the result, or null
 	/// @throws Exception in case of an error
 	public InsertResult replace(TextPos start, TextPos end, String text, boolean undoEnabled) throws Exception;
-}
\ No newline at end of file
+	
+	
+	/// Replaces the content between `start` and `end` positions with the text read from the [ParReader].
+	/// The reader is not closed.
+	///
+	/// The default implementation reads the whole text into a `String` and invokes
+	/// [#replace(TextPos, TextPos, String, boolean)], implementations should override this method
+	/// to consume the input incrementally.
+	///
+	/// @param start the start position
+	/// @param end the end position
+	/// @param rd the reader
+	/// @param undoEnabled whether to create an undo record
+	/// @return the result, or null
+	/// @throws Exception in case of an error
+	public default InsertResult replace(TextPos start, TextPos end, ParReader rd, boolean undoEnabled) throws Exception
+	{
+		StringBuilder sb = new StringBuilder();
+		Object x;
+		while((x = rd.nextToken()) != null)
+		{
+			if(x == ParReader.NEWLINE)
+			{
+				sb.append('\n');
+			}
+			else
+			{
+				sb.append(x);
+			}
+		}
+		return replace(start, end, sb.toString(), undoEnabled);
+	}
+	
+	
+	/// Returns an immutable snapshot of the content, see [CodeModel#snapshot()].
+	///
+	/// The default implementation returns a view limited to the current number of paragraphs
+	/// if the content is not writable (the existing paragraphs never change), otherwise it copies
+	/// the text of all the paragraphs.  The writable implementations should override this method
+	/// to avoid copying.
+	public default TextSnapshot snapshot()
+	{
+		int sz = size();
+		if(!isWritable())
+		{
+			return new ContentSnapshot(this, sz);
+		}
+
+		String[] ps = new String[sz];
+		for(int i=0; i<sz; i++)
+		{
+			ps[i] = getPlainText(i);
+		}
+		return new TextSnapshot()
+		{
+			@Override
+			public int size()
+			{
+				return ps.length;
+			}
+
+
+			@Override
+			public String getPlainText(int index)
+			{
+				return ps[index];
+			}
+		};
+	}
+}
@@ -8,6 +8,10 @@ import javafx.scene.paint.Color;
 /// text and its breakdown into cells.
 public abstract class CodeParagraph
 {
+	/// the shared single-character strings, in pages of 256 created on demand
+	private static final String[][] CELL_TEXT = new String[256][];
+
+
 	/// Returns the model index of this paragraph.
 	public abstract int getIndex();
 	
@@ -38,6 +42,25 @@ public abstract class CodeParagraph
 	public abstract CellStyle getCellStyle(int cellIndex);
 	
 	
+	/// Returns the index of the cell following the run of cells which starts at the given cell index
+	/// and shares the same style, a value between `cellIndex + 1` and [#getCellCount()] inclusive.
+	/// The renderer paints each run using a single font and color.
+	///
+	/// The base class implementation compares the styles of the subsequent cells;
+	/// subclasses which store the styles as runs (see [StyleRuns]) should override this method.
+	public int getStyleRunEnd(int cellIndex)
+	{
+		int len = getCellCount();
+		CellStyle st = getCellStyle(cellIndex);
+		int ix = cellIndex + 1;
+		while((ix < len) && (getCellStyle(ix) == st))
+		{
+			ix++;
+		}
+		return Math.max(ix, cellIndex + 1);
+	}
+	
+	
 	/// Returns true when the text contains tab characters.
 	public abstract boolean hasTabs();
 	
@@ -52,6 +75,27 @@ public abstract class CodeParagraph
 	}
 
 
+	/// Returns the shared single-character string, so [#getCellText(int)] need not allocate on each paint.
+	protected static String cellText(char c)
+	{
+		// the races are benign: at worst, a page or a string is created more than once
+		String[] page = CELL_TEXT[c >>> 8];
+		if(page == null)
+		{
+			page = new String[256];
+			CELL_TEXT[c >>> 8] = page;
+		}
+
+		String s = page[c & 0xff];
+		if(s == null)
+		{
+			s = String.valueOf(c);
+			page[c & 0xff] = s;
+		}
+		return s;
+	}
+
+
 	// TODO provide several methods:
 	// 1. simple (1:1 chars to cells)
 	// 2. complex
@@ -98,15 +142,14 @@ public abstract class CodeParagraph
 			@Override
 			public boolean hasTabs()
 			{
-				return false;
+				return text.indexOf('\t') >= 0;
 			}
 
 
 			@Override
 			public String getCellText(int ix)
 			{
-				char c = text.charAt(ix);
-				return String.valueOf(c);
+				return cellText(text.charAt(ix));
 			}
 
 
@@ -117,6 +160,13 @@ public abstract class CodeParagraph
 			}
 
 
+			@Override
+			public int getStyleRunEnd(int cix)
+			{
+				return Math.max(text.length(), cix + 1);
+			}
+
+
 			@Override
 			public int cellIndexAtOffset(int offset)
 			{
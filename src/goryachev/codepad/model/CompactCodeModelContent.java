@@ -0,0 +1,218 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.model;
+import goryachev.codepad.TextPos;
+import goryachev.common.util.CKit;
+import goryachev.common.util.CList;
+import goryachev.common.util.ElasticIntArray;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+
+/// Read-only [CodeModelContent] which packs the paragraph text into large shared byte pages.
+///
+/// Paragraphs containing only Latin-1 characters are stored one byte per character,
+/// others are encoded in UTF-8.  Each paragraph costs one `int` in the offset table
+/// (the page offset, with the high bit indicating UTF-8), plus the text bytes.
+/// A paragraph never spans pages.  The `String`s are created only when requested.
+///
+/// Use [#of(ParagraphDecorator, String)] or [Builder] to create an instance.
+public class CompactCodeModelContent
+	extends DecoratedContent
+{
+	private static final int PAGE_SIZE = 1 << 20;
+	private static final int UTF8 = 0x8000_0000;
+	private final byte[][] pages;
+	/// index of the first paragraph in each page
+	private final int[] firstIndex;
+	private final int[] offsets;
+
+
+	private CompactCodeModelContent(ParagraphDecorator d, byte[][] pages, int[] firstIndex, int[] offsets)
+	{
+		super(d);
+		this.pages = pages;
+		this.firstIndex = firstIndex;
+		this.offsets = offsets;
+	}
+
+
+	public static CompactCodeModelContent of(ParagraphDecorator d, String text)
+	{
+		Builder b = new Builder(d);
+		for(String s: CKit.split(text, "\n"))
+		{
+			b.addLine(s);
+		}
+		return b.build();
+	}
+
+
+	@Override
+	public boolean isWritable()
+	{
+		return false;
+	}
+
+
+	@Override
+	public boolean isAppendable()
+	{
+		return false;
+	}
+
+
+	@Override
+	public int size()
+	{
+		return offsets.length;
+	}
+
+
+	@Override
+	public String getPlainText(int index)
+	{
+		int p = pageOf(index);
+		byte[] page = pages[p];
+		int off = offsets[index];
+		int start = off & ~UTF8;
+		int end = end(index, p);
+		return new String(page, start, end - start, (off & UTF8) == 0 ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+	}
+
+
+	@Override
+	public int getParagraphLength(int index)
+	{
+		int off = offsets[index];
+		if((off & UTF8) == 0)
+		{
+			return end(index, pageOf(index)) - off;
+		}
+		return getPlainText(index).length();
+	}
+
+
+	@Override
+	public InsertResult replace(TextPos start, TextPos end, String text, boolean undoEnabled)
+	{
+		return null;
+	}
+
+
+	// returns the end offset of the paragraph in the page
+	private int end(int index, int p)
+	{
+		int next = index + 1;
+		int limit = (p + 1 < firstIndex.length) ? firstIndex[p + 1] : offsets.length;
+		if(next < limit)
+		{
+			return offsets[next] & ~UTF8;
+		}
+		return pages[p].length;
+	}
+
+
+	private int pageOf(int index)
+	{
+		int p = Arrays.binarySearch(firstIndex, index);
+		return (p >= 0) ? p : (-p - 2);
+	}
+
+
+	/// Builds the [CompactCodeModelContent] one paragraph at a time.
+	public static class Builder
+	{
+		private final ParagraphDecorator decorator;
+		private final CList<byte[]> pages = new CList<>();
+		private final ElasticIntArray firstIndex = new ElasticIntArray();
+		private final ElasticIntArray offsets = new ElasticIntArray(1024);
+		private byte[] page;
+		private int pos;
+
+
+		public Builder(ParagraphDecorator d)
+		{
+			this.decorator = d;
+		}
+
+
+		/// Adds a paragraph.  The text must not contain line separators.
+		public Builder addLine(String text)
+		{
+			int len = text.length();
+			boolean latin1 = isLatin1(text);
+			byte[] utf8 = null;
+			if(!latin1)
+			{
+				utf8 = text.getBytes(StandardCharsets.UTF_8);
+				len = utf8.length;
+			}
+
+			if((page == null) || (pos + len > page.length))
+			{
+				newPage(len);
+			}
+
+			if(latin1)
+			{
+				for(int i=0; i<len; i++)
+				{
+					page[pos + i] = (byte)text.charAt(i);
+				}
+				offsets.add(pos);
+			}
+			else
+			{
+				System.arraycopy(utf8, 0, page, pos, len);
+				offsets.add(pos | UTF8);
+			}
+			pos += len;
+			return this;
+		}
+
+
+		public CompactCodeModelContent build()
+		{
+			finishPage();
+			byte[][] ps = pages.toArray(new byte[pages.size()][]);
+			return new CompactCodeModelContent(decorator, ps, firstIndex.toArray(), offsets.toArray());
+		}
+
+
+		private void newPage(int len)
+		{
+			finishPage();
+			page = new byte[Math.max(PAGE_SIZE, len)];
+			pos = 0;
+			firstIndex.add(offsets.size());
+		}
+
+
+		private void finishPage()
+		{
+			if(page != null)
+			{
+				if(pos < page.length)
+				{
+					page = Arrays.copyOf(page, pos);
+				}
+				pages.add(page);
+				page = null;
+			}
+		}
+
+
+		private static boolean isLatin1(String s)
+		{
+			int len = s.length();
+			for(int i=0; i<len; i++)
+			{
+				if(s.charAt(i) > 0xff)
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,77 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.model;
+import goryachev.codepad.TextPos;
+import goryachev.common.util.JW;
+
+
+/// Describes a change in the model content: the text between `start` and `end`
+/// has been replaced by the text between `start` and `newEnd`.
+/// The paragraphs before `start` are not affected, and the paragraphs after `end`
+/// are unchanged but shifted by [#getDelta()].
+public final class ContentChange
+{
+	private final TextPos start;
+	private final TextPos end;
+	private final TextPos newEnd;
+
+
+	public ContentChange(TextPos start, TextPos end, TextPos newEnd)
+	{
+		this.start = start;
+		this.end = end;
+		this.newEnd = newEnd;
+	}
+
+
+	@Override
+	public String toString()
+	{
+		return new JW("ContentChange").
+			value("start", start).
+			value("end", end).
+			value("newEnd", newEnd).
+			toString();
+	}
+
+
+	/// Returns the start of the affected range.
+	public TextPos getStart()
+	{
+		return start;
+	}
+
+
+	/// Returns the end of the affected range, before the change.
+	public TextPos getEnd()
+	{
+		return end;
+	}
+
+
+	/// Returns the end of the affected range, after the change.
+	public TextPos getNewEnd()
+	{
+		return newEnd;
+	}
+
+
+	/// Returns the number of line breaks removed.
+	public int getLinesRemoved()
+	{
+		return end.index() - start.index();
+	}
+
+
+	/// Returns the number of line breaks inserted.
+	public int getLinesAdded()
+	{
+		return newEnd.index() - start.index();
+	}
+
+
+	/// Returns the change in the number of paragraphs.
+	public int getDelta()
+	{
+		return newEnd.index() - end.index();
+	}
+}
@@ -0,0 +1,36 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.model;
+
+
+/// [TextSnapshot] backed by the content whose first `size` paragraphs never change.
+final class ContentSnapshot
+	implements TextSnapshot
+{
+	private final CodeModelContent content;
+	private final int size;
+
+
+	public ContentSnapshot(CodeModelContent content, int size)
+	{
+		this.content = content;
+		this.size = size;
+	}
+
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+
+	@Override
+	public String getPlainText(int index)
+	{
+		if((index < 0) || (index >= size))
+		{
+			throw new IndexOutOfBoundsException("index=" + index + " size=" + size);
+		}
+		return content.getPlainText(index);
+	}
+}
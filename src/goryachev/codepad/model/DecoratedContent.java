@@ -6,7 +6,7 @@ package goryachev.codepad.model;
 public abstract class DecoratedContent
 	implements CodeModelContent
 {
-	private ParagraphDecorator decorator;
+	private volatile ParagraphDecorator decorator;
 
 
 	public DecoratedContent()
@@ -26,10 +26,41 @@ public abstract class DecoratedContent
 	}
 	
 	
+	public final ParagraphDecorator getDecorator()
+	{
+		return decorator;
+	}
+	
+	
 	@Override
 	public final CodeParagraph getParagraph(int index)
 	{
 		String text = getPlainText(index);
-		return decorator == null ? CodeParagraph.fast(index, text) : decorator.decorate(this, index, text);
+		ParagraphDecorator d = decorator;
+		CodeParagraph p = decorate(d, index, text);
+		return (p == null) ? d.decorate(this, index, text) : p;
+	}
+
+
+	/// Creates the paragraph from a background thread, see [CodeModel#decorateConcurrently(int, String)].
+	/// Returns `null` if the decorator is not concurrent.
+	CodeParagraph decorate(int index, String text)
+	{
+		return decorate(decorator, index, text);
+	}
+
+
+	// returns null if the decorator is not concurrent
+	private CodeParagraph decorate(ParagraphDecorator d, int index, String text)
+	{
+		if(d == null)
+		{
+			return CodeParagraph.fast(index, text);
+		}
+		else if(d.isConcurrent())
+		{
+			return d.decorate(this, index, text);
+		}
+		return null;
 	}
 }
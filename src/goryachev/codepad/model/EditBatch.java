@@ -0,0 +1,130 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.model;
+import goryachev.codepad.TextPos;
+import goryachev.common.util.CList;
+
+
+/// Batch of edits applied via [CodeModel#edit(EditBatch.Operation)].
+///
+/// The edits within the batch do not fire individual events; instead, a single [ContentChange]
+/// covering all the edits is fired at the end of the batch, and a single undo record is created.
+public final class EditBatch
+{
+	/// The batch operation.
+	@FunctionalInterface
+	public interface Operation
+	{
+		public void apply(EditBatch batch) throws Exception;
+	}
+
+	private final CodeModel model;
+	private final CList<UndoJournal.Edit> edits = new CList<>();
+	/// start of the changed range, the text before it is untouched
+	private TextPos head;
+	/// start of the untouched tail, in the current coordinates
+	private TextPos tail;
+	/// start of the untouched tail, in the original coordinates
+	private TextPos end;
+
+
+	EditBatch(CodeModel model)
+	{
+		this.model = model;
+	}
+
+
+	/// Replaces the text between the two positions, see [CodeModel#replace(TextPos, TextPos, String)].
+	/// The positions are in the current coordinates, i.e. reflect the edits made earlier in this batch.
+	public TextPos replace(TextPos start, TextPos end, String text) throws Exception
+	{
+		return model.replace(start, end, text);
+	}
+
+
+	public CodeModel getModel()
+	{
+		return model;
+	}
+
+
+	void addEdit(UndoJournal.Edit ed)
+	{
+		edits.add(ed);
+	}
+
+
+	/// Returns the accumulated undo record, or null.
+	UndoJournal.Edit getUndoRecord()
+	{
+		switch(edits.size())
+		{
+		case 0:
+			return null;
+		case 1:
+			return edits.get(0);
+		default:
+			UndoJournal.Edit[] subs = edits.toArray(new UndoJournal.Edit[edits.size()]);
+			return new UndoJournal.Edit(head, tail, subs, false);
+		}
+	}
+
+
+	/// Returns the merged change, or null if nothing has changed.
+	ContentChange getChange()
+	{
+		if(head == null)
+		{
+			return null;
+		}
+		return new ContentChange(head, end, tail);
+	}
+
+
+	/// Merges the change.  The text between `start` and `oldEnd` has been replaced by the text
+	/// between `start` and `newEnd`, all in the current coordinates.
+	void merge(TextPos start, TextPos oldEnd, TextPos newEnd)
+	{
+		if(head == null)
+		{
+			head = start;
+			tail = newEnd;
+			end = oldEnd;
+			return;
+		}
+
+		if(start.compareTo(head) < 0)
+		{
+			head = start;
+		}
+
+		if(oldEnd.compareTo(tail) >= 0)
+		{
+			// the edit extends into the untouched tail
+			end = toOriginal(oldEnd);
+			tail = newEnd;
+		}
+		else
+		{
+			// the edit is before the untouched tail, which gets shifted
+			if(tail.index() == oldEnd.index())
+			{
+				tail = new TextPos(newEnd.index(), newEnd.offset() + tail.offset() - oldEnd.offset());
+			}
+			else
+			{
+				tail = new TextPos(tail.index() + newEnd.index() - oldEnd.index(), tail.offset());
+			}
+		}
+	}
+
+
+	// maps a position in the untouched tail to the original coordinates
+	private TextPos toOriginal(TextPos p)
+	{
+		if(p.index() == tail.index())
+		{
+			return new TextPos(end.index(), end.offset() + p.offset() - tail.offset());
+		}
+		return new TextPos(p.index() - tail.index() + end.index(), p.offset());
+	}
+}
@@ -1,10 +1,13 @@
 // Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
 package goryachev.codepad.model;
 import goryachev.codepad.TextPos;
+import goryachev.codepad.internal.BlockList;
 import goryachev.codepad.internal.Defaults;
+import goryachev.codepad.internal.GapBuffer;
 import goryachev.codepad.internal.ParReader;
 import goryachev.common.log.Log;
 import goryachev.common.util.CList;
+import goryachev.common.util.SB;
 import goryachev.fx.FxBoolean;
 import goryachev.fx.FxObject;
 import javafx.beans.property.BooleanProperty;
@@ -22,7 +25,15 @@ public class EditableCodeModel
 
 	public EditableCodeModel()
 	{
-		super(new EditableContent());
+		this(new EditableContent());
+	}
+
+
+	/// Creates the model with the specified writable content,
+	/// for example [PieceTableCodeModelContent].
+	public EditableCodeModel(DecoratedContent c)
+	{
+		super(c, true);
 	}
 
 
@@ -36,7 +47,7 @@ public class EditableCodeModel
 				protected void invalidated()
 				{
 					ParagraphDecorator d = get();
-					((EditableContent)content).setDecorator(d);
+					((DecoratedContent)content).setDecorator(d);
 				}
 			};
 		}
@@ -70,11 +81,17 @@ public class EditableCodeModel
 	}
 
 
-	/// EditableContent backed by a list of Strings.
+	/// EditableContent backed by a [BlockList] of paragraphs.
+	/// A paragraph is either a `String`, or a [GapBuffer] for the long paragraphs being edited.
+	/// Only the most recently created gap buffer is ever modified, all other paragraphs are immutable.
 	private static class EditableContent
 		extends DecoratedContent
 	{
-		private final CList<String> paragraphs = new CList<>();
+		/// paragraphs at or above this length switch to a gap buffer on single-line edits
+		private static final int GAP_BUFFER_THRESHOLD = 4096;
+		private final BlockList<Object> paragraphs = new BlockList<>();
+		/// the only gap buffer which can be modified in place
+		private GapBuffer current;
 
 
 		public EditableContent()
@@ -107,144 +124,165 @@ public class EditableCodeModel
 		@Override
 		public String getPlainText(int index)
 		{
-			return paragraphs.get(index);
+			return paragraphs.get(index).toString();
 		}
-		
-		
-		private void removeRange(TextPos start, TextPos end)
+
+
+		@Override
+		public int getParagraphLength(int index)
 		{
-			int index = start.index();
-			String s = paragraphs.get(index);
-			if(index == end.index())
-			{
-				s = s.substring(0, start.offset()) + s.substring(end.offset());
-				paragraphs.set(index, s);
-			}
-			else
+			return ((CharSequence)paragraphs.get(index)).length();
+		}
+
+
+		@Override
+		public InsertResult replace(TextPos start, TextPos end, String text, boolean undoEnabled) throws Exception
+		{
+			// TODO cell index != character offset!
+			// TODO undo info?
+
+			int startIndex = start.index();
+			if((startIndex == end.index()) && isSingleLine(text))
 			{
-				// last line
-				int eix = end.index();
-				String last = paragraphs.get(eix);
-				paragraphs.set(eix, last.substring(end.offset()));
-				
-				// first line
-				paragraphs.set(index, s.substring(0, start.offset()));
-				index++;
-				
-				// in-between
-				int ct = eix - index;
-				for(int i=0; i<ct; i++)
+				InsertResult r = replaceLong(start, end, text);
+				if(r != null)
 				{
-					paragraphs.remove(index);
+					return r;
 				}
 			}
-		}
-		
-		
-		private void insertLineBreak(int index, int off)
-		{
-			String s = paragraphs.get(index);
-			if(off == 0)
+
+			try(ParReader rd = ParReader.of(text))
 			{
-				paragraphs.add(index, "");
+				return replace(start, end, rd, undoEnabled);
 			}
-			else
+		}
+
+
+		@Override
+		public InsertResult replace(TextPos start, TextPos end, ParReader rd, boolean undoEnabled) throws Exception
+		{
+			int startIndex = start.index();
+			String prefix = substring(paragraphs.get(startIndex), 0, start.offset());
+			Object last = paragraphs.get(end.index());
+			String suffix = substring(last, end.offset(), ((CharSequence)last).length());
+
+			CList<String> lines = new CList<>();
+			SB sb = new SB();
+			sb.append(prefix);
+
+			Object x;
+			while((x = rd.nextToken()) != null)
 			{
-				int len = s.length();
-				if(off < len)
+				if(x == ParReader.NEWLINE)
 				{
-					String s1 = s.substring(0, off);
-					String s2 = s.substring(off);
-					paragraphs.set(index, s2);
-					paragraphs.add(index, s1);
+					lines.add(sb.toString());
+					sb.setLength(0);
+				}
+				else if(x instanceof String s)
+				{
+					sb.append(s);
 				}
 				else
 				{
-					paragraphs.add(index + 1, "");
+					log.error("unexpected token {0}", x);
 				}
 			}
-		}
-		
-		
-		// inserts text into a single paragraph
-		private int insertText(int index, int off, String text)
-		{
-			String s = paragraphs.get(index);
-			if(off == 0)
+
+			int added = lines.size();
+			int top;
+			int bottom;
+			int offset;
+			if(added == 0)
 			{
-				s = text + s;
+				top = sb.length() - prefix.length();
+				bottom = 0;
+				offset = sb.length();
 			}
 			else
 			{
-				int len = s.length();
-				if(off < len)
+				top = lines.get(0).length() - prefix.length();
+				bottom = sb.length();
+				offset = bottom;
+			}
+
+			sb.append(suffix);
+			lines.add(sb.toString());
+
+			paragraphs.splice(startIndex, end.index() - startIndex + 1, lines);
+
+			TextPos newEnd = new TextPos(startIndex + added, offset);
+			return new InsertResult(start, end, top, added, bottom, newEnd);
+		}
+
+
+		@Override
+		public TextSnapshot snapshot()
+		{
+			// the paragraph list copy is O(1), the gap buffers become immutable
+			current = null;
+			BlockList<Object> ps = paragraphs.copy();
+			return new TextSnapshot()
+			{
+				@Override
+				public int size()
 				{
-					s = s.substring(0, off) + text + s.substring(off);
+					return ps.size();
 				}
-				else
+
+
+				@Override
+				public String getPlainText(int index)
 				{
-					s = s + text;
+					return ps.get(index).toString();
 				}
-			}
-			paragraphs.set(index, s);
-			return text.length();
+			};
 		}
 
 
-		@Override
-		public InsertResult replace(TextPos start, TextPos end, String text, boolean undoEnabled) throws Exception
+		// edits a long paragraph in place, returns null if the paragraph is short
+		private InsertResult replaceLong(TextPos start, TextPos end, String text)
 		{
-			// TODO cell index != character offset!
-			
-			if(!start.equals(end))
+			int ix = start.index();
+			Object x = paragraphs.get(ix);
+			GapBuffer g;
+			if(x == current)
 			{
-				// TODO undo info?
-				removeRange(start, end);
+				g = current;
 			}
-
-			int top = 0;
-			int bottom = 0;
-			int startIndex = start.index();
-			int index = startIndex;
-			int offset = start.offset();
-
-			try(ParReader rd = ParReader.of(text))
+			else
 			{
-				Object x;
-				while((x = rd.nextToken()) != null)
+				// other gap buffers might be shared with a snapshot
+				CharSequence s = (CharSequence)x;
+				if(s.length() < GAP_BUFFER_THRESHOLD)
 				{
-					if(x == ParReader.NEWLINE)
-					{
-						insertLineBreak(index, offset);
-						index++;
-						offset = 0;
-						bottom = 0;
-					}
-					else if(x instanceof String s)
-					{
-						int len = insertText(index, offset, s);
-						if(index == startIndex)
-						{
-							top += len;
-						}
-						offset += len;
-						bottom += len;
-					}
-					else
-					{
-						log.error("unexpected token {0}", x);
-					}
+					return null;
 				}
+				g = new GapBuffer(s.toString());
+				paragraphs.set(ix, g);
+				current = g;
 			}
 
-			int added = index - startIndex;
-			if(added == 0)
+			g.replace(start.offset(), end.offset(), text);
+
+			int len = text.length();
+			TextPos newEnd = new TextPos(ix, start.offset() + len);
+			return new InsertResult(start, end, len, 0, 0, newEnd);
+		}
+
+
+		private static boolean isSingleLine(String text)
+		{
+			return (text.indexOf('\n') < 0) && (text.indexOf('\r') < 0);
+		}
+
+
+		private static String substring(Object x, int start, int end)
+		{
+			if(x instanceof GapBuffer g)
 			{
-				bottom = 0;
+				return g.substring(start, end);
 			}
-
-			TextPos newEnd = new TextPos(index, offset);
-			return new InsertResult(start, end, top, added, bottom, newEnd);
+			return ((String)x).substring(start, end);
 		}
 	}
 }
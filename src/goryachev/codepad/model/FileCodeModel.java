@@ -0,0 +1,135 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.model;
+import goryachev.codepad.internal.PulseNotifier;
+import goryachev.common.util.Progress;
+import goryachev.fx.FX;
+import goryachev.fx.FxBoolean;
+import goryachev.fx.FxObject;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyProperty;
+
+
+/// Read-only [CodeModel] backed by a memory-mapped file.
+///
+/// The file is indexed in background threads, the paragraphs becoming available
+/// as soon as they have been indexed: [#size()] grows over time, at most once per pulse,
+/// with the listeners receiving [ChangeListener#onParagraphsAppended(int, int)].
+///
+/// This class must be accessed from the FX application thread.
+public class FileCodeModel
+	extends CodeModel
+	implements Closeable
+{
+	private final MappedFileCodeModelContent mapped;
+	private final MappedFileCodeModelContent.Indexer indexer;
+	private final PulseNotifier notifier;
+	private final FxObject<Progress> progress = new FxObject<>(this, "progress", Progress.UNKNOWN);
+	private final FxBoolean indexing = new FxBoolean(true);
+
+
+	private FileCodeModel(MappedFileCodeModelContent c)
+	{
+		super(c);
+		mapped = c;
+		notifier = new PulseNotifier(this::handlePulse);
+		indexer = c.startIndexing(notifier::signal);
+	}
+
+
+	/// Opens the specified file and starts indexing it in background.
+	/// This method must be called from the FX application thread.
+	///
+	/// @param file the file to open
+	/// @param charset the ASCII-compatible charset, or `null` for UTF-8
+	/// @param d the paragraph decorator, or `null`
+	/// @return the model instance
+	/// @throws IOException if an I/O error occurs
+	public static FileCodeModel open(File file, Charset charset, ParagraphDecorator d) throws IOException
+	{
+		FX.checkThread();
+		MappedFileCodeModelContent c = MappedFileCodeModelContent.openLazily(file, charset, d);
+		return new FileCodeModel(c);
+	}
+
+
+	/// Returns the size of the underlying file, in bytes.
+	public final long getFileSize()
+	{
+		return mapped.getFileSize();
+	}
+
+
+	/// The indexing progress.
+	public final ReadOnlyProperty<Progress> progressProperty()
+	{
+		return progress;
+	}
+
+
+	public final Progress getProgress()
+	{
+		return progress.get();
+	}
+
+
+	/// Indicates whether the file is still being indexed.
+	public final ReadOnlyBooleanProperty indexingProperty()
+	{
+		return indexing;
+	}
+
+
+	public final boolean isIndexing()
+	{
+		return indexing.get();
+	}
+
+
+	/// Returns the exception that terminated the indexing, or `null`.
+	public final Throwable getIndexingError()
+	{
+		return indexer.getError();
+	}
+
+
+	/// Cancels the indexing.  The paragraphs indexed so far remain available.
+	public void cancel()
+	{
+		indexer.cancel();
+	}
+
+
+	/// Cancels the indexing and releases the underlying file.
+	@Override
+	public void close() throws IOException
+	{
+		indexer.cancel();
+		notifier.stop();
+		mapped.close();
+	}
+
+
+	private void handlePulse()
+	{
+		boolean done = indexer.isDone();
+		boolean complete = indexer.isComplete();
+		int start = mapped.publishSize(complete);
+		int count = mapped.size() - start;
+
+		progress.set(indexer.getProgress());
+		if(done)
+		{
+			notifier.stop();
+			indexing.set(false);
+		}
+
+		if(count > 0)
+		{
+			fireParagraphsAppended(start, count);
+		}
+	}
+}
@@ -0,0 +1,586 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.model;
+import goryachev.codepad.TextPos;
+import goryachev.codepad.internal.OffsetIndex;
+import goryachev.common.log.Log;
+import goryachev.common.util.ElasticIntArray;
+import goryachev.common.util.ParallelExecutor;
+import goryachev.common.util.Progress;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/// Read-only CodeModelContent backed by a memory-mapped file.
+///
+/// The file is mapped in segments, and only the paragraph start offsets are kept in memory,
+/// so the heap usage is proportional to the number of paragraphs rather than the file size.
+/// The paragraph text is decoded on demand.
+///
+/// The charset must be ASCII-compatible (i.e. the line separator bytes never appear as a part
+/// of a multi-byte sequence), such as UTF-8 or ISO-8859-1.
+/// A line is considered to be terminated by any one of a LF ('\n'), a CR ('\r'), or a CRLF ("\r\n").
+///
+/// The paragraph index is built by scanning the file in parallel chunks.
+/// While the index is being built, [#size()] returns the number of the paragraphs
+/// published so far, see [FileCodeModel].
+public class MappedFileCodeModelContent
+	extends DecoratedContent
+	implements Closeable
+{
+	private static final int SEGMENT_BITS = 30;
+	private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+	private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+	/// the chunk size must divide the segment size evenly
+	private static final int CHUNK_SIZE = 1 << 26;
+	private static final Log log = Log.get("MappedFileCodeModelContent");
+	private static final ParallelExecutor exec = new ParallelExecutor("MappedFileCodeModelContent.Indexer", 5);
+	private final FileChannel channel;
+	private final long fileSize;
+	private final Charset charset;
+	private final MappedByteBuffer[] segments;
+	private final OffsetIndex index = new OffsetIndex();
+	private volatile int size;
+
+
+	private MappedFileCodeModelContent(FileChannel channel, Charset charset, ParagraphDecorator d) throws IOException
+	{
+		super(d);
+		this.channel = channel;
+		this.charset = charset;
+		this.fileSize = channel.size();
+
+		long n = (fileSize + SEGMENT_SIZE - 1) >>> SEGMENT_BITS;
+		if(n > Integer.MAX_VALUE)
+		{
+			throw new IOException("file is too large: " + fileSize);
+		}
+		segments = new MappedByteBuffer[(int)n];
+	}
+
+
+	/// Opens the specified file and creates the paragraph index,
+	/// blocking until the whole file has been scanned.
+	///
+	/// @param file the file to open
+	/// @param charset the ASCII-compatible charset, or `null` for UTF-8
+	/// @param d the paragraph decorator, or `null`
+	/// @return the content instance
+	/// @throws IOException if an I/O error occurs
+	public static MappedFileCodeModelContent open(File file, Charset charset, ParagraphDecorator d) throws IOException
+	{
+		MappedFileCodeModelContent c = openLazily(file, charset, d);
+		try
+		{
+			Indexer ix = c.startIndexing(null);
+			ix.waitForCompletion();
+			c.publishSize();
+			return c;
+		}
+		catch(Throwable e)
+		{
+			c.close();
+			throw e;
+		}
+	}
+
+
+	/// Opens the specified file without building the paragraph index.
+	/// The caller must invoke [#startIndexing(Runnable)].
+	static MappedFileCodeModelContent openLazily(File file, Charset charset, ParagraphDecorator d) throws IOException
+	{
+		if(charset == null)
+		{
+			charset = StandardCharsets.UTF_8;
+		}
+		checkCharset(charset);
+
+		FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try
+		{
+			return new MappedFileCodeModelContent(ch, charset, d);
+		}
+		catch(Throwable e)
+		{
+			ch.close();
+			throw e;
+		}
+	}
+
+
+	private static void checkCharset(Charset cs)
+	{
+		byte[] b = "\r\n".getBytes(cs);
+		if(!Arrays.equals(b, new byte[] { '\r', '\n' }))
+		{
+			throw new IllegalArgumentException("charset must be ASCII-compatible: " + cs);
+		}
+	}
+
+
+	@Override
+	public void close() throws IOException
+	{
+		synchronized(segments)
+		{
+			Arrays.fill(segments, null);
+		}
+		channel.close();
+	}
+
+
+	@Override
+	public boolean isWritable()
+	{
+		return false;
+	}
+
+
+	@Override
+	public boolean isAppendable()
+	{
+		return false;
+	}
+
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+
+	/// Returns the number of paragraphs whose extent is known at this moment.
+	/// The last indexed offset starts a paragraph whose end is not yet known
+	/// until the indexing is complete.
+	int getIndexedSize(boolean complete)
+	{
+		int sz = index.size();
+		return complete ? sz : Math.max(0, sz - 1);
+	}
+
+
+	/// Makes all the indexed paragraphs visible via [#size()].
+	/// Returns the previous size.
+	int publishSize()
+	{
+		return publishSize(true);
+	}
+
+
+	int publishSize(boolean complete)
+	{
+		int old = size;
+		size = getIndexedSize(complete);
+		return old;
+	}
+
+
+	/// Returns the size of the underlying file, in bytes.
+	public final long getFileSize()
+	{
+		return fileSize;
+	}
+
+
+	/// Returns the charset used to decode the paragraph text.
+	public final Charset getCharset()
+	{
+		return charset;
+	}
+
+
+	@Override
+	public String getPlainText(int ix)
+	{
+		long start = index.get(ix);
+		long end = paragraphEnd(ix);
+		long len = end - start;
+		if(len <= 0)
+		{
+			return "";
+		}
+		else if(len > Integer.MAX_VALUE)
+		{
+			throw new IllegalStateException("paragraph is too long: " + len);
+		}
+
+		byte[] b = new byte[(int)len];
+		read(start, b);
+		return new String(b, charset);
+	}
+
+
+	@Override
+	public InsertResult replace(TextPos start, TextPos end, String text, boolean undoEnabled)
+	{
+		return null;
+	}
+
+
+	// returns the offset of the paragraph end, excluding the line separator
+	private long paragraphEnd(int ix)
+	{
+		int next = ix + 1;
+		if(next >= index.size())
+		{
+			return fileSize;
+		}
+
+		long start = index.get(ix);
+		long end = index.get(next) - 1;
+		if(end > start)
+		{
+			if(byteAt(end) == '\n')
+			{
+				if(byteAt(end - 1) == '\r')
+				{
+					end--;
+				}
+			}
+		}
+		return end;
+	}
+
+
+	private MappedByteBuffer segment(int ix) throws IOException
+	{
+		synchronized(segments)
+		{
+			MappedByteBuffer b = segments[ix];
+			if(b == null)
+			{
+				long off = (long)ix << SEGMENT_BITS;
+				long sz = Math.min(SEGMENT_SIZE, fileSize - off);
+				b = channel.map(FileChannel.MapMode.READ_ONLY, off, sz);
+				segments[ix] = b;
+			}
+			return b;
+		}
+	}
+
+
+	private MappedByteBuffer segmentAt(long offset)
+	{
+		try
+		{
+			return segment((int)(offset >>> SEGMENT_BITS));
+		}
+		catch(IOException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+
+	private byte byteAt(long offset)
+	{
+		return segmentAt(offset).get((int)(offset & SEGMENT_MASK));
+	}
+
+
+	// reads bytes, possibly spanning several segments
+	private void read(long offset, byte[] dst)
+	{
+		int pos = 0;
+		while(pos < dst.length)
+		{
+			MappedByteBuffer b = segmentAt(offset);
+			int off = (int)(offset & SEGMENT_MASK);
+			int len = Math.min(dst.length - pos, b.limit() - off);
+			b.get(off, dst, pos, len);
+			pos += len;
+			offset += len;
+		}
+	}
+
+
+	/// Starts building the paragraph index in background threads.
+	/// The `onUpdate` callback, if not `null`, is invoked from a background thread
+	/// each time a new portion of the index becomes available, and once upon completion.
+	Indexer startIndexing(Runnable onUpdate)
+	{
+		long start = 0;
+		if(fileSize >= 3)
+		{
+			// skip UTF-8 BOM
+			if((byteAt(0) == (byte)0xef) && (byteAt(1) == (byte)0xbb) && (byteAt(2) == (byte)0xbf))
+			{
+				start = 3;
+			}
+		}
+		index.add(start);
+
+		Indexer ix = new Indexer(onUpdate);
+		ix.start();
+		return ix;
+	}
+	
+	
+	/// Scans the file in parallel chunks, appending the paragraph offsets to the index in order.
+	final class Indexer
+	{
+		private final Runnable onUpdate;
+		private final int chunkCount;
+		private final int threadCount;
+		private final ElasticIntArray[] results;
+		private final Semaphore permits;
+		private final AtomicInteger nextChunk = new AtomicInteger();
+		private final AtomicLong scanned = new AtomicLong();
+		private final CountDownLatch done;
+		private int nextToPublish;
+		private volatile boolean cancelled;
+		private volatile Throwable error;
+
+
+		Indexer(Runnable onUpdate)
+		{
+			this.onUpdate = onUpdate;
+			long n = (fileSize + CHUNK_SIZE - 1) / CHUNK_SIZE;
+			if(n > Integer.MAX_VALUE)
+			{
+				throw new IllegalStateException("file is too large: " + fileSize);
+			}
+			chunkCount = (int)n;
+			threadCount = Math.max(1, Math.min(chunkCount, Runtime.getRuntime().availableProcessors()));
+			results = new ElasticIntArray[chunkCount];
+			// limits the number of scanned chunks waiting to be published
+			permits = new Semaphore(2 * threadCount);
+			done = new CountDownLatch(threadCount);
+		}
+
+
+		void start()
+		{
+			if(chunkCount == 0)
+			{
+				for(int i=0; i<threadCount; i++)
+				{
+					done.countDown();
+				}
+				fireUpdate();
+				return;
+			}
+
+			for(int i=0; i<threadCount; i++)
+			{
+				exec.submit(this::work);
+			}
+		}
+
+
+		/// Cancels the indexing.  The paragraphs indexed so far remain available.
+		public void cancel()
+		{
+			cancelled = true;
+		}
+
+
+		public boolean isCancelled()
+		{
+			return cancelled;
+		}
+
+
+		/// Returns true when the indexing has finished, either normally, by cancellation, or due to an error.
+		public boolean isDone()
+		{
+			return done.getCount() == 0;
+		}
+
+
+		/// Returns true when the whole file has been indexed.
+		public boolean isComplete()
+		{
+			return isDone() && !cancelled && (error == null);
+		}
+
+
+		public Throwable getError()
+		{
+			return error;
+		}
+
+
+		public Progress getProgress()
+		{
+			if(isComplete())
+			{
+				return Progress.DONE;
+			}
+			return new Progress(scanned.get(), fileSize);
+		}
+
+
+		void waitForCompletion() throws IOException
+		{
+			try
+			{
+				done.await();
+			}
+			catch(InterruptedException e)
+			{
+				cancel();
+				throw new IOException(e);
+			}
+
+			Throwable e = error;
+			if(e instanceof IOException x)
+			{
+				throw x;
+			}
+			else if(e != null)
+			{
+				throw new IOException(e);
+			}
+		}
+
+
+		private void work()
+		{
+			try
+			{
+				byte[] buf = new byte[65536];
+				for(;;)
+				{
+					if(cancelled)
+					{
+						break;
+					}
+
+					permits.acquire();
+					int ix = nextChunk.getAndIncrement();
+					if(ix >= chunkCount)
+					{
+						permits.release();
+						break;
+					}
+
+					ElasticIntArray r = scan(ix, buf);
+					if(r == null)
+					{
+						permits.release();
+						break;
+					}
+
+					synchronized(this)
+					{
+						results[ix] = r;
+					}
+					publish();
+				}
+			}
+			catch(Throwable e)
+			{
+				log.error(e);
+				error = e;
+				cancelled = true;
+			}
+			finally
+			{
+				done.countDown();
+				if(isDone())
+				{
+					fireUpdate();
+				}
+			}
+		}
+
+
+		// returns line starts relative to the chunk start, or null if cancelled
+		private ElasticIntArray scan(int chunk, byte[] buf) throws IOException
+		{
+			long start = (long)chunk * CHUNK_SIZE;
+			int len = (int)Math.min(CHUNK_SIZE, fileSize - start);
+			MappedByteBuffer seg = segment((int)(start >>> SEGMENT_BITS));
+			int segOffset = (int)(start & SEGMENT_MASK);
+			ElasticIntArray rv = new ElasticIntArray(1024);
+
+			int pos = 0;
+			while(pos < len)
+			{
+				if(cancelled)
+				{
+					return null;
+				}
+
+				int n = Math.min(buf.length, len - pos);
+				seg.get(segOffset + pos, buf, 0, n);
+				for(int i=0; i<n; i++)
+				{
+					switch(buf[i])
+					{
+					case '\n':
+						rv.add(pos + i + 1);
+						break;
+					case '\r':
+						long next = start + pos + i + 1;
+						if((next >= fileSize) || (byteAt(next) != '\n'))
+						{
+							rv.add(pos + i + 1);
+						}
+						break;
+					}
+				}
+				pos += n;
+				scanned.addAndGet(n);
+			}
+			return rv;
+		}
+
+
+		// appends the scanned chunks to the index, in order
+		private void publish()
+		{
+			boolean updated = false;
+			synchronized(this)
+			{
+				while((nextToPublish < chunkCount) && (results[nextToPublish] != null))
+				{
+					ElasticIntArray r = results[nextToPublish];
+					results[nextToPublish] = null;
+					long base = (long)nextToPublish * CHUNK_SIZE;
+					int sz = r.size();
+					for(int i=0; i<sz; i++)
+					{
+						index.add(base + r.get(i));
+					}
+					nextToPublish++;
+					permits.release();
+					updated = true;
+				}
+			}
+
+			if(updated)
+			{
+				fireUpdate();
+			}
+		}
+
+
+		private void fireUpdate()
+		{
+			if(onUpdate != null)
+			{
+				try
+				{
+					onUpdate.run();
+				}
+				catch(Throwable e)
+				{
+					log.error(e);
+				}
+			}
+		}
+	}
+}
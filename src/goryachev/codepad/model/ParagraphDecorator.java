@@ -6,4 +6,22 @@ package goryachev.codepad.model;
 public interface ParagraphDecorator
 {
 	public CodeParagraph decorate(CodeModelContent content, int index, String text);
+	
+	
+	/// Returns `true` if [#decorate(CodeModelContent, int, String)] can be called from a background thread,
+	/// for example when the view prefetches the paragraphs ahead of scrolling.
+	/// Such a decorator must be thread safe, and must not read the content beyond the text passed to it,
+	/// since the content can be modified concurrently.
+	public default boolean isConcurrent()
+	{
+		return false;
+	}
+
+
+	/// Hints the range of paragraphs (inclusive) laid out by the view, so a decorator which processes
+	/// the document in background can serve these paragraphs first.
+	/// Called from the FX application thread.
+	public default void setVisibleRange(int start, int end)
+	{
+	}
 }
@@ -0,0 +1,561 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.model;
+import goryachev.codepad.TextPos;
+import goryachev.codepad.internal.ParReader;
+import goryachev.common.util.ElasticIntArray;
+import java.util.Random;
+
+
+/// Writable [CodeModelContent] based on a piece table.
+///
+/// The text is kept in two buffers: the original (read-only) text, and the append-only buffer
+/// which receives all the inserted text.  The document is a sequence of pieces referring
+/// to the ranges in these buffers, stored in a balanced tree (treap) annotated with the
+/// subtree length and the number of line breaks, making the edits and the paragraph lookups
+/// O(log n) in the number of pieces, regardless of the number of paragraphs.
+///
+/// The line separators are normalized to LF ('\n').
+///
+/// The offsets are `int`, limiting the length of the text to [#MAX_LENGTH] characters;
+/// an edit which would exceed the limit fails with an [IllegalStateException], leaving the content unchanged.
+/// The original text is shared rather than copied, unless its line separators need to be normalized.
+/// The inserted text goes to a new append-only buffer once the current one is full.
+///
+/// Since the tree nodes are immutable and the buffers are append-only, a [#snapshot()] costs O(1):
+/// it shares the tree and seals the append-only buffer, which gets replaced with a new one.
+public class PieceTableCodeModelContent
+	extends DecoratedContent
+{
+	/// the maximum length of the text
+	public static final int MAX_LENGTH = Integer.MAX_VALUE - 8;
+	private final Buffer original;
+	private final Random random;
+	/// the buffer receiving the inserted text, replaced by a new one when a snapshot is taken
+	private Buffer added;
+	private Node root;
+
+
+	public PieceTableCodeModelContent(ParagraphDecorator d, String text)
+	{
+		super(d);
+		random = new Random();
+		if(text.indexOf('\r') < 0)
+		{
+			original = new Buffer(text);
+		}
+		else
+		{
+			original = new Buffer(new StringBuilder(text.length()));
+			original.append(text);
+		}
+		added = new Buffer(new StringBuilder());
+		if(original.length() > 0)
+		{
+			root = node(piece(original, 0, original.length()));
+		}
+	}
+
+
+	// creates a read-only copy sharing the tree and the buffers
+	private PieceTableCodeModelContent(PieceTableCodeModelContent c)
+	{
+		super(null);
+		random = c.random;
+		original = c.original;
+		added = c.added;
+		root = c.root;
+	}
+
+
+	public PieceTableCodeModelContent(String text)
+	{
+		this(null, text);
+	}
+
+
+	public PieceTableCodeModelContent()
+	{
+		this(null, "");
+	}
+
+
+	@Override
+	public boolean isWritable()
+	{
+		return true;
+	}
+
+
+	@Override
+	public boolean isAppendable()
+	{
+		return true;
+	}
+
+
+	@Override
+	public int size()
+	{
+		return breaks(root) + 1;
+	}
+
+
+	/// Returns the number of pieces, for testing.
+	int getPieceCount()
+	{
+		return count(root);
+	}
+
+
+	@Override
+	public String getPlainText(int index)
+	{
+		int start = lineStart(index);
+		int end = (index + 1 < size()) ? lineStart(index + 1) - 1 : length(root);
+		if(start >= end)
+		{
+			return "";
+		}
+
+		StringBuilder sb = new StringBuilder(end - start);
+		collect(root, 0, start, end, sb);
+		return sb.toString();
+	}
+
+
+	/// Returns the snapshot sharing the piece tree, which is immutable.
+	/// The added buffer is sealed, with the subsequent edits going to a new buffer.
+	@Override
+	public TextSnapshot snapshot()
+	{
+		PieceTableCodeModelContent c = new PieceTableCodeModelContent(this);
+		added = new Buffer(new StringBuilder());
+		return new ContentSnapshot(c, c.size());
+	}
+
+
+	@Override
+	public InsertResult replace(TextPos start, TextPos end, String text, boolean undoEnabled)
+	{
+		checkLength((long)length(root) - (offsetOf(end) - offsetOf(start)) + text.length());
+		int pos = reserve(added.length(), text.length());
+		added.append(text);
+		return replace(start, end, pos);
+	}
+
+
+	@Override
+	public InsertResult replace(TextPos start, TextPos end, ParReader rd, boolean undoEnabled) throws Exception
+	{
+		int pos = added.length();
+		Object x;
+		while((x = rd.nextToken()) != null)
+		{
+			String s = (x == ParReader.NEWLINE) ? "\n" : (String)x;
+			pos = reserve(pos, s.length());
+			added.append(s);
+		}
+		return replace(start, end, pos);
+	}
+
+
+	// makes room for the text of the specified length in the added buffer, replacing the buffer when full,
+	// and returns the new position of the text being inserted which starts at `pos`
+	private int reserve(int pos, int len)
+	{
+		if(len <= MAX_LENGTH - added.length())
+		{
+			return pos;
+		}
+
+		// the text being inserted must be contiguous, so it moves to the new buffer
+		int carry = added.length() - pos;
+		checkLength((long)carry + len);
+		Buffer b = new Buffer(new StringBuilder(carry + len));
+		b.append(added.text.subSequence(pos, added.length()));
+		added = b;
+		return 0;
+	}
+
+
+	private static void checkLength(long len)
+	{
+		if(len > MAX_LENGTH)
+		{
+			throw new IllegalStateException("text is too long: " + len);
+		}
+	}
+
+
+	// replaces the range with the text appended to the added buffer starting at `pos`
+	private InsertResult replace(TextPos start, TextPos end, int pos)
+	{
+		int s = offsetOf(start);
+		int e = offsetOf(end);
+
+		Node[] r = split(root, s);
+		Node left = r[0];
+		r = split(r[1], e - s);
+		Node right = r[1];
+
+		// inserted text
+		int len = added.length() - pos;
+		checkLength((long)length(left) + length(right) + len);
+
+		int top = 0;
+		int lines = 0;
+		int bottom = 0;
+		for(int i=0; i<len; i++)
+		{
+			if(added.text.charAt(pos + i) == '\n')
+			{
+				lines++;
+				bottom = 0;
+			}
+			else if(lines == 0)
+			{
+				top++;
+			}
+			else
+			{
+				bottom++;
+			}
+		}
+
+		if(len > 0)
+		{
+			Piece last = (left == null) ? null : rightmost(left).piece;
+			if((last != null) && (last.buffer == added) && (last.start + last.length == pos))
+			{
+				// continuous typing: extend the last piece instead of creating a new one
+				left = replaceRightmost(left, piece(added, last.start, last.length + len));
+			}
+			else
+			{
+				left = merge(left, node(piece(added, pos, len)));
+			}
+		}
+
+		root = merge(left, right);
+
+		TextPos newEnd;
+		if(lines == 0)
+		{
+			newEnd = new TextPos(start.index(), start.offset() + top);
+		}
+		else
+		{
+			newEnd = new TextPos(start.index() + lines, bottom);
+		}
+		return new InsertResult(start, end, top, lines, bottom, newEnd);
+	}
+
+
+	private int offsetOf(TextPos p)
+	{
+		return lineStart(p.index()) + p.offset();
+	}
+
+
+	// returns the offset of the paragraph start
+	private int lineStart(int index)
+	{
+		if(index == 0)
+		{
+			return 0;
+		}
+
+		// find the index-th line break
+		int k = index;
+		int base = 0;
+		Node n = root;
+		while(n != null)
+		{
+			int lb = breaks(n.left);
+			if(k <= lb)
+			{
+				n = n.left;
+			}
+			else
+			{
+				k -= lb;
+				base += length(n.left);
+				Piece p = n.piece;
+				if(k <= p.breaks)
+				{
+					Buffer b = p.buffer;
+					int pos = b.breakAt(b.firstBreak(p.start) + k - 1);
+					return base + (pos - p.start) + 1;
+				}
+				k -= p.breaks;
+				base += p.length;
+				n = n.right;
+			}
+		}
+		throw new IndexOutOfBoundsException(index);
+	}
+
+
+	// appends text in the [start, end) range from the subtree starting at the base offset
+	private static void collect(Node n, int base, int start, int end, StringBuilder sb)
+	{
+		if(n == null)
+		{
+			return;
+		}
+
+		int ps = base + length(n.left);
+		if(start < ps)
+		{
+			collect(n.left, base, start, end, sb);
+		}
+
+		Piece p = n.piece;
+		int pe = ps + p.length;
+		if((start < pe) && (end > ps))
+		{
+			int from = Math.max(start, ps) - ps;
+			int to = Math.min(end, pe) - ps;
+			sb.append(p.buffer.text, p.start + from, p.start + to);
+		}
+
+		if(end > pe)
+		{
+			collect(n.right, pe, start, end, sb);
+		}
+	}
+
+
+	// splits the tree at the specified offset, returning two trees
+	private Node[] split(Node n, int off)
+	{
+		if(n == null)
+		{
+			return new Node[2];
+		}
+
+		int ll = length(n.left);
+		if(off <= ll)
+		{
+			Node[] r = split(n.left, off);
+			r[1] = n.with(r[1], n.right);
+			return r;
+		}
+
+		Piece p = n.piece;
+		int po = off - ll;
+		if(po < p.length)
+		{
+			Piece p1 = piece(p.buffer, p.start, po);
+			Piece p2 = piece(p.buffer, p.start + po, p.length - po);
+			Node left = new Node(p1, n.left, null, n.priority);
+			Node right = merge(node(p2), n.right);
+			return new Node[] { left, right };
+		}
+
+		Node[] r = split(n.right, po - p.length);
+		r[0] = n.with(n.left, r[0]);
+		return r;
+	}
+
+
+	private static Node merge(Node a, Node b)
+	{
+		if(a == null)
+		{
+			return b;
+		}
+		else if(b == null)
+		{
+			return a;
+		}
+		else if(a.priority > b.priority)
+		{
+			return a.with(a.left, merge(a.right, b));
+		}
+		else
+		{
+			return b.with(merge(a, b.left), b.right);
+		}
+	}
+
+
+	private static Node rightmost(Node n)
+	{
+		while(n.right != null)
+		{
+			n = n.right;
+		}
+		return n;
+	}
+
+
+	private static Node replaceRightmost(Node n, Piece p)
+	{
+		if(n.right == null)
+		{
+			return new Node(p, n.left, null, n.priority);
+		}
+		return n.with(n.left, replaceRightmost(n.right, p));
+	}
+
+
+	private Node node(Piece p)
+	{
+		return new Node(p, null, null, random.nextInt());
+	}
+
+
+	private static Piece piece(Buffer b, int start, int length)
+	{
+		int breaks = b.countBreaks(start, start + length);
+		return new Piece(b, start, length, breaks);
+	}
+
+
+	private static int length(Node n)
+	{
+		return n == null ? 0 : n.length;
+	}
+
+
+	private static int breaks(Node n)
+	{
+		return n == null ? 0 : n.breaks;
+	}
+
+
+	private static int count(Node n)
+	{
+		return n == null ? 0 : count(n.left) + 1 + count(n.right);
+	}
+
+
+	/// A range of text in one of the buffers.
+	private record Piece(Buffer buffer, int start, int length, int breaks) { }
+
+
+	/// Immutable treap node, annotated with the subtree length and the number of line breaks.
+	private static final class Node
+	{
+		public final Piece piece;
+		public final Node left;
+		public final Node right;
+		public final int priority;
+		public final int length;
+		public final int breaks;
+
+
+		public Node(Piece piece, Node left, Node right, int priority)
+		{
+			this.piece = piece;
+			this.left = left;
+			this.right = right;
+			this.priority = priority;
+			this.length = length(left) + piece.length + length(right);
+			this.breaks = breaks(left) + piece.breaks + breaks(right);
+		}
+
+
+		public Node with(Node left, Node right)
+		{
+			return new Node(piece, left, right, priority);
+		}
+	}
+
+
+	/// Append-only text buffer with the line break positions.
+	private static final class Buffer
+	{
+		public final CharSequence text;
+		private final ElasticIntArray breaks = new ElasticIntArray();
+
+
+		public Buffer(StringBuilder text)
+		{
+			this.text = text;
+		}
+
+
+		/// Creates a read-only buffer sharing the text, which must contain no CR characters.
+		public Buffer(String text)
+		{
+			this.text = text;
+			int len = text.length();
+			for(int i=0; i<len; i++)
+			{
+				if(text.charAt(i) == '\n')
+				{
+					breaks.add(i);
+				}
+			}
+		}
+
+
+		public int length()
+		{
+			return text.length();
+		}
+
+
+		/// Appends the text, normalizing the line separators.
+		public void append(CharSequence s)
+		{
+			StringBuilder text = (StringBuilder)this.text;
+			int len = s.length();
+			for(int i=0; i<len; i++)
+			{
+				char c = s.charAt(i);
+				switch(c)
+				{
+				case '\r':
+					if((i + 1 < len) && (s.charAt(i + 1) == '\n'))
+					{
+						i++;
+					}
+					// fall through
+				case '\n':
+					breaks.add(text.length());
+					text.append('\n');
+					break;
+				default:
+					text.append(c);
+					break;
+				}
+			}
+		}
+
+
+		public int breakAt(int ix)
+		{
+			return breaks.get(ix);
+		}
+
+
+		/// Returns the index of the first line break at or after the specified position.
+		public int firstBreak(int pos)
+		{
+			int low = 0;
+			int high = breaks.size();
+			while(low < high)
+			{
+				int mid = (low + high) >>> 1;
+				if(breaks.get(mid) < pos)
+				{
+					low = mid + 1;
+				}
+				else
+				{
+					high = mid;
+				}
+			}
+			return low;
+		}
+
+
+		public int countBreaks(int start, int end)
+		{
+			return firstBreak(end) - firstBreak(start);
+		}
+	}
+}
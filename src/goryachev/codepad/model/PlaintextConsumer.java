@@ -0,0 +1,14 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.model;
+
+
+/// Receives the plain text fragments during export, see [CodeModel#export(goryachev.codepad.TextPos, goryachev.codepad.TextPos, goryachev.fx.LineEnding, PlaintextConsumer)].
+@FunctionalInterface
+public interface PlaintextConsumer
+{
+	/// Accepts the next text fragment.
+	///
+	/// @param s the text fragment
+	/// @return true to continue, false to stop the export
+	public boolean consumePlaintextFragment(String s);
+}
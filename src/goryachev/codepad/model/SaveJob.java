@@ -0,0 +1,232 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.model;
+import goryachev.codepad.internal.ByteBufferPool;
+import goryachev.common.util.CJob;
+import goryachev.common.util.CancelledException;
+import goryachev.common.util.Progress;
+import goryachev.fx.LineEnding;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.AclFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+
+
+/// Background job which saves a [TextSnapshot] to a file, see [CodeModel#save(File, Charset, LineEnding, Runnable)].
+///
+/// The text is encoded paragraph by paragraph into a pooled direct buffer and written to a temporary file
+/// in the same directory, which then atomically replaces the target file.  The target file is left
+/// untouched if the job fails or gets cancelled.  The permissions of the existing target file
+/// (and its owner and group, where allowed) are copied to the temporary file before the replacement.
+public class SaveJob
+	extends CJob
+{
+	private static final ByteBufferPool pool = new ByteBufferPool(256 * 1024, 4);
+	private final TextSnapshot snapshot;
+	private final File file;
+	private final Charset charset;
+	private final String lineSeparator;
+	private final Runnable onCompletion;
+	private volatile int done;
+
+
+	SaveJob(TextSnapshot snapshot, File file, Charset charset, LineEnding lineEnding, Runnable onCompletion)
+	{
+		super("SaveJob");
+		this.snapshot = snapshot;
+		this.file = file;
+		this.charset = charset;
+		this.lineSeparator = (lineEnding == null ? LineEnding.getDefault() : lineEnding).getText();
+		this.onCompletion = onCompletion;
+	}
+
+
+	public final File getFile()
+	{
+		return file;
+	}
+
+
+	/// Returns the progress, which can be queried from any thread.
+	public final Progress getProgress()
+	{
+		int total = snapshot.size();
+		return new Progress(done, total);
+	}
+
+
+	/// Returns true if the job has finished, successfully or not.
+	public final boolean isDone()
+	{
+		return hasResult();
+	}
+
+
+	@Override
+	public void run()
+	{
+		if(isCancelled())
+		{
+			// CJob skips the jobs cancelled before they start, the caller still needs to be notified
+			setResult(new CancelledException());
+			onThisJobCompleted();
+			return;
+		}
+		super.run();
+	}
+
+
+	@Override
+	protected void process() throws Exception
+	{
+		Path target = file.toPath().toAbsolutePath();
+		if(Files.exists(target))
+		{
+			// replace the file a symbolic link points to rather than the link
+			target = target.toRealPath();
+		}
+		Path tmp = Files.createTempFile(target.getParent(), "." + target.getFileName(), ".tmp");
+		boolean ok = false;
+		try
+		{
+			try(FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+			{
+				write(ch);
+				ch.force(true);
+			}
+			copyAttributes(target, tmp);
+			move(tmp, target);
+			ok = true;
+		}
+		finally
+		{
+			if(!ok)
+			{
+				Files.deleteIfExists(tmp);
+			}
+		}
+	}
+
+
+	@Override
+	protected void handleJobError(Throwable e)
+	{
+		if(CancelledException.isNot(e))
+		{
+			super.handleJobError(e);
+		}
+	}
+
+
+	@Override
+	protected void onThisJobCompleted()
+	{
+		if(onCompletion != null)
+		{
+			onCompletion.run();
+		}
+	}
+
+
+	private void write(FileChannel ch) throws IOException
+	{
+		CharsetEncoder enc = charset.newEncoder().
+			onMalformedInput(CodingErrorAction.REPLACE).
+			onUnmappableCharacter(CodingErrorAction.REPLACE);
+		CharBuffer nl = CharBuffer.wrap(lineSeparator);
+		ByteBuffer buf = pool.acquire();
+		try
+		{
+			int sz = snapshot.size();
+			for(int i=0; i<sz; i++)
+			{
+				if(isCancelled())
+				{
+					throw new CancelledException();
+				}
+
+				if(i > 0)
+				{
+					CodeModel.encode(enc, nl.rewind(), buf, ch, false);
+				}
+				String s = snapshot.getPlainText(i);
+				CodeModel.encode(enc, CharBuffer.wrap(s), buf, ch, false);
+				done = i + 1;
+			}
+			CodeModel.finishEncoding(enc, buf, ch);
+		}
+		finally
+		{
+			pool.release(buf);
+		}
+	}
+
+
+	// the temporary file is created with the owner-only permissions, the replaced file should keep its own
+	private static void copyAttributes(Path from, Path to) throws IOException
+	{
+		if(!Files.exists(from))
+		{
+			return;
+		}
+
+		PosixFileAttributeView src = Files.getFileAttributeView(from, PosixFileAttributeView.class);
+		PosixFileAttributeView dst = Files.getFileAttributeView(to, PosixFileAttributeView.class);
+		if((src != null) && (dst != null))
+		{
+			PosixFileAttributes a = src.readAttributes();
+			try
+			{
+				dst.setOwner(a.owner());
+			}
+			catch(IOException e)
+			{
+				// requires privileges unless the owner is the same
+			}
+
+			try
+			{
+				dst.setGroup(a.group());
+			}
+			catch(IOException e)
+			{
+				// requires the membership in the group
+			}
+
+			// after the owner change, which might clear the setuid bits
+			dst.setPermissions(a.permissions());
+			return;
+		}
+
+		AclFileAttributeView srcAcl = Files.getFileAttributeView(from, AclFileAttributeView.class);
+		AclFileAttributeView dstAcl = Files.getFileAttributeView(to, AclFileAttributeView.class);
+		if((srcAcl != null) && (dstAcl != null))
+		{
+			dstAcl.setAcl(srcAcl.getAcl());
+		}
+	}
+
+
+	private static void move(Path tmp, Path target) throws IOException
+	{
+		try
+		{
+			Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch(AtomicMoveNotSupportedException e)
+		{
+			Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+}
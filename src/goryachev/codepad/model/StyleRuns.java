@@ -0,0 +1,204 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.model;
+import goryachev.common.util.CList;
+import goryachev.common.util.ElasticIntArray;
+
+
+/// Immutable run-length encoded cell styles of a paragraph.
+///
+/// Each run covers a range of cells sharing the same style; the cells outside of any run
+/// have no style.  The styles are stored as [CellStylePalette] ids, so storing the runs costs
+/// two `int`s and a `short` per run, regardless of the number of cells.
+/// The styles which could not be interned are kept in a separate array referenced by the negative ids.
+///
+/// Use [Builder] to create an instance.
+public final class StyleRuns
+{
+	public static final StyleRuns EMPTY = new StyleRuns(new int[0], new int[0], new short[0], null);
+	private final int[] starts;
+	private final int[] ends;
+	/// the palette id, or -(k + 1) for the k-th style which is not interned
+	private final short[] ids;
+	/// the styles which are not interned, or null
+	private final CellStyle[] others;
+
+
+	private StyleRuns(int[] starts, int[] ends, short[] ids, CellStyle[] others)
+	{
+		this.starts = starts;
+		this.ends = ends;
+		this.ids = ids;
+		this.others = others;
+	}
+
+
+	/// Returns the number of runs.
+	public int getRunCount()
+	{
+		return starts.length;
+	}
+
+
+	/// Returns the index of the first cell of the specified run.
+	public int getRunStart(int run)
+	{
+		return starts[run];
+	}
+
+
+	/// Returns the index of the cell following the specified run.
+	public int getRunEnd(int run)
+	{
+		return ends[run];
+	}
+
+
+	public CellStyle getRunStyle(int run)
+	{
+		return style(ids[run]);
+	}
+
+
+	/// Returns the [CellStylePalette] id of the style of the specified run,
+	/// or [CellStylePalette#NOT_INTERNED].
+	public int getRunStyleId(int run)
+	{
+		int id = ids[run];
+		return (id < 0) ? CellStylePalette.NOT_INTERNED : id;
+	}
+
+
+	/// Returns the style of the specified cell, or `null`.
+	public CellStyle getStyle(int cellIndex)
+	{
+		int k = find(cellIndex);
+		if((k >= 0) && (cellIndex < ends[k]))
+		{
+			return style(ids[k]);
+		}
+		return null;
+	}
+
+
+	private CellStyle style(int id)
+	{
+		return (id < 0) ? others[-id - 1] : CellStylePalette.get(id);
+	}
+
+
+	/// Returns the index of the cell following the run of cells with the same style
+	/// which includes the specified cell, or [Integer#MAX_VALUE] if none of the cells that follow have a style.
+	public int getStyleRunEnd(int cellIndex)
+	{
+		int k = find(cellIndex);
+		if((k >= 0) && (cellIndex < ends[k]))
+		{
+			return ends[k];
+		}
+		k++;
+		return (k < starts.length) ? starts[k] : Integer.MAX_VALUE;
+	}
+
+
+	// returns the last run starting at or before the cell, or -1
+	private int find(int cellIndex)
+	{
+		int low = 0;
+		int high = starts.length - 1;
+		while(low <= high)
+		{
+			int mid = (low + high) >>> 1;
+			if(starts[mid] <= cellIndex)
+			{
+				low = mid + 1;
+			}
+			else
+			{
+				high = mid - 1;
+			}
+		}
+		return high;
+	}
+
+
+	/// Builds the [StyleRuns] from the runs added in order.
+	public static class Builder
+	{
+		private final ElasticIntArray starts = new ElasticIntArray(16);
+		private final ElasticIntArray ends = new ElasticIntArray(16);
+		private final ElasticIntArray ids = new ElasticIntArray(16);
+		private CList<CellStyle> others;
+
+
+		public Builder()
+		{
+		}
+
+
+		/// Adds the run of cells between `start` (inclusive) and `end` (exclusive).
+		/// Empty runs and `null` styles are ignored, the adjacent runs with the same style are merged.
+		public Builder add(int start, int end, CellStyle style)
+		{
+			if((start < end) && (style != null))
+			{
+				int id = CellStylePalette.idOf(style);
+				if(id == CellStylePalette.NOT_INTERNED)
+				{
+					id = otherId(style);
+				}
+				int last = ids.size() - 1;
+				if((last >= 0) && (ids.get(last) == id) && (ends.get(last) == start))
+				{
+					ends.set(last, end);
+				}
+				else
+				{
+					starts.add(start);
+					ends.add(end);
+					ids.add(id);
+				}
+			}
+			return this;
+		}
+
+
+		// returns the negative id of the style which is not interned
+		private int otherId(CellStyle style)
+		{
+			if(others == null)
+			{
+				others = new CList<>();
+			}
+
+			int k = others.indexOf(style);
+			if(k < 0)
+			{
+				if(others.size() > Short.MAX_VALUE)
+				{
+					throw new IllegalStateException("too many styles: " + others.size());
+				}
+				k = others.size();
+				others.add(style);
+			}
+			return -k - 1;
+		}
+
+
+		public StyleRuns build()
+		{
+			int sz = ids.size();
+			if(sz == 0)
+			{
+				return EMPTY;
+			}
+
+			short[] a = new short[sz];
+			for(int i=0; i<sz; i++)
+			{
+				a[i] = (short)ids.get(i);
+			}
+			CellStyle[] os = (others == null) ? null : others.toArray(new CellStyle[others.size()]);
+			return new StyleRuns(starts.toArray(), ends.toArray(), a, os);
+		}
+	}
+}
@@ -0,0 +1,17 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.model;
+
+
+/// Immutable view of the model text as it was at the moment the snapshot was taken,
+/// see [CodeModel#snapshot()].
+///
+/// Unlike the model, the snapshot can be read from any thread while the model is being modified.
+public interface TextSnapshot
+{
+	/// Returns the number of paragraphs.
+	public int size();
+
+
+	/// Returns the plain text of the paragraph at the specified `index`.
+	public String getPlainText(int index);
+}
@@ -0,0 +1,379 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.model;
+import goryachev.codepad.TextPos;
+import goryachev.common.io.DReader;
+import goryachev.common.io.DWriter;
+import goryachev.common.log.Log;
+import goryachev.common.util.CList;
+import goryachev.common.util.SB;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.util.ArrayDeque;
+
+
+/// Bounded undo/redo journal.
+///
+/// Each record stores the delta rather than a snapshot: the start position, the end of the inserted text,
+/// and the text removed by the edit.  Large removed text is spilled to a temporary file,
+/// which is deleted when its record is discarded, when the record becomes unreachable
+/// (for example, with the model), or on exit.
+/// The consecutive typed characters are merged into a single record.
+/// The oldest records are discarded when the total size exceeds the budget.
+final class UndoJournal
+{
+	private static final Log log = Log.get("UndoJournal");
+	/// approximate per-record overhead, in bytes
+	private static final int OVERHEAD = 64;
+	/// deletes the spill files of the records which are no longer reachable
+	private static final Cleaner cleaner = Cleaner.create();
+	private final ArrayDeque<Edit> undo = new ArrayDeque<>();
+	private final ArrayDeque<Edit> redo = new ArrayDeque<>();
+	private long budget;
+	private long spillThreshold;
+	private long size;
+
+
+	public UndoJournal(long budget, long spillThreshold)
+	{
+		this.budget = budget;
+		this.spillThreshold = spillThreshold;
+	}
+
+
+	/// A journal record: replacing the text between `start` and `end` with the `removed` text
+	/// reverses the edit.  The removed text is either a `String`, or a [Spill].
+	/// A compound record (created by a batch edit) contains an array of `Edit`s
+	/// instead of the removed text, to be reverted in the reverse order.
+	public record Edit(TextPos start, TextPos end, Object removed, boolean typing)
+	{
+		public long cost()
+		{
+			if(removed instanceof String s)
+			{
+				return OVERHEAD + 2L * s.length();
+			}
+			else if(removed instanceof Edit[] subs)
+			{
+				long rv = OVERHEAD;
+				for(Edit ed: subs)
+				{
+					rv += ed.cost();
+				}
+				return rv;
+			}
+			return OVERHEAD;
+		}
+
+
+		public void dispose()
+		{
+			if(removed instanceof Spill s)
+			{
+				s.dispose();
+			}
+			else if(removed instanceof Edit[] subs)
+			{
+				for(Edit ed: subs)
+				{
+					ed.dispose();
+				}
+			}
+		}
+	}
+
+
+	public void setBudget(long bytes)
+	{
+		budget = bytes;
+		trim();
+	}
+
+
+	public void setSpillThreshold(long chars)
+	{
+		spillThreshold = chars;
+	}
+
+
+	public boolean canUndo()
+	{
+		return !undo.isEmpty();
+	}
+
+
+	public boolean canRedo()
+	{
+		return !redo.isEmpty();
+	}
+
+
+	/// Adds a new record, clearing the redo stack.
+	public void add(Edit ed)
+	{
+		clear(redo);
+
+		Edit last = undo.peekLast();
+		if(ed.typing() && (last != null) && last.typing() && last.end().equals(ed.start()))
+		{
+			// merge runs of typed characters
+			undo.pollLast();
+			size -= last.cost();
+			push(undo, new Edit(last.start(), ed.end(), last.removed(), true));
+		}
+		else
+		{
+			push(undo, ed);
+		}
+		trim();
+	}
+
+
+	public Edit popUndo()
+	{
+		return pop(undo);
+	}
+
+
+	public Edit popRedo()
+	{
+		return pop(redo);
+	}
+
+
+	public void pushUndo(Edit ed)
+	{
+		push(undo, ed);
+		trim();
+	}
+
+
+	public void pushRedo(Edit ed)
+	{
+		push(redo, ed);
+		trim();
+	}
+
+
+	public void clear()
+	{
+		clear(undo);
+		clear(redo);
+	}
+
+
+	/// Captures the text between `start` and `end`, returning `null` if the range is empty,
+	/// a `String`, or a [Spill] if the text exceeds the spill threshold.
+	public Object capture(CodeModelContent c, TextPos start, TextPos end) throws IOException
+	{
+		if(start.equals(end))
+		{
+			return null;
+		}
+
+		CList<String> parts = new CList<>();
+		long length = 0;
+		Spill spill = null;
+		try
+		{
+			int ix = start.index();
+			int last = end.index();
+			for(;;)
+			{
+				String s = c.getPlainText(ix);
+				if(ix == last)
+				{
+					s = s.substring((ix == start.index()) ? start.offset() : 0, end.offset());
+				}
+				else if(ix == start.index())
+				{
+					s = s.substring(start.offset());
+				}
+
+				if(spill == null)
+				{
+					parts.add(s);
+					length += s.length();
+					if(length > spillThreshold)
+					{
+						spill = new Spill();
+						for(String p: parts)
+						{
+							spill.write(p);
+						}
+						parts = null;
+					}
+				}
+				else
+				{
+					spill.write(s);
+				}
+
+				if(ix == last)
+				{
+					break;
+				}
+				ix++;
+			}
+		}
+		catch(Throwable e)
+		{
+			if(spill != null)
+			{
+				spill.dispose();
+			}
+			throw e;
+		}
+
+		if(spill != null)
+		{
+			spill.close();
+			return spill;
+		}
+
+		SB sb = new SB((int)length + parts.size());
+		for(int i=0; i<parts.size(); i++)
+		{
+			if(i > 0)
+			{
+				sb.append('\n');
+			}
+			sb.append(parts.get(i));
+		}
+		return sb.toString();
+	}
+
+
+	private void push(ArrayDeque<Edit> stack, Edit ed)
+	{
+		stack.addLast(ed);
+		size += ed.cost();
+	}
+
+
+	private Edit pop(ArrayDeque<Edit> stack)
+	{
+		Edit ed = stack.pollLast();
+		if(ed != null)
+		{
+			size -= ed.cost();
+		}
+		return ed;
+	}
+
+
+	private void clear(ArrayDeque<Edit> stack)
+	{
+		Edit ed;
+		while((ed = stack.pollLast()) != null)
+		{
+			size -= ed.cost();
+			ed.dispose();
+		}
+	}
+
+
+	// discards the oldest records (redo first) while over the budget, keeping the most recent record of each stack
+	private void trim()
+	{
+		while(size > budget)
+		{
+			ArrayDeque<Edit> stack;
+			if(redo.size() > 1)
+			{
+				stack = redo;
+			}
+			else if(undo.size() > 1)
+			{
+				stack = undo;
+			}
+			else
+			{
+				break;
+			}
+			Edit ed = stack.pollFirst();
+			size -= ed.cost();
+			ed.dispose();
+		}
+	}
+
+
+	/// Removed text stored in a temporary file, one paragraph per string.
+	public static final class Spill
+	{
+		private final File file;
+		private final Cleaner.Cleanable cleanable;
+		private DWriter wr;
+		private int count;
+
+
+		private Spill() throws IOException
+		{
+			file = File.createTempFile("undo", ".tmp");
+			file.deleteOnExit();
+			// the action must not refer to this instance
+			File f = file;
+			cleanable = cleaner.register(this, () -> delete(f));
+			wr = new DWriter(new BufferedOutputStream(new FileOutputStream(file)));
+		}
+
+
+		private void write(String s) throws IOException
+		{
+			wr.writeString(s);
+			count++;
+		}
+
+
+		private void close() throws IOException
+		{
+			wr.close();
+			wr = null;
+		}
+
+
+		/// Returns the number of paragraphs.
+		public int getParagraphCount()
+		{
+			return count;
+		}
+
+
+		/// Opens the reader, which returns the paragraphs via [DReader#readString()].
+		public DReader open() throws IOException
+		{
+			return new DReader(new BufferedInputStream(new FileInputStream(file)));
+		}
+
+
+		private void dispose()
+		{
+			try
+			{
+				if(wr != null)
+				{
+					wr.close();
+				}
+			}
+			catch(IOException e)
+			{
+				log.error(e);
+			}
+
+			cleanable.clean();
+		}
+
+
+		private static void delete(File f)
+		{
+			if(f.exists() && !f.delete())
+			{
+				log.warn("unable to delete {0}", f);
+			}
+		}
+	}
+}
@@ -0,0 +1,32 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.search;
+import goryachev.codepad.TextRange;
+import java.util.List;
+
+
+/// Receives the results of a [TextFinder].
+///
+/// The methods are invoked from a background thread, one at a time.
+public interface FindListener
+{
+	/// Receives the next batch of hits, in document order starting with the start paragraph
+	/// and wrapping around the end of the document.
+	public void onHits(List<TextRange> hits);
+
+
+	/// Invoked after each batch of paragraphs has been searched and its hits, if any, delivered.
+	///
+	/// @param searched the number of paragraphs searched so far, starting with the start paragraph
+	public default void onSearched(int searched)
+	{
+	}
+
+
+	/// Invoked once after the search has been completed and all the hits have been delivered.
+	/// Not invoked when the search is cancelled or fails.
+	///
+	/// @param count the total number of hits
+	public default void onFinished(int count)
+	{
+	}
+}
@@ -0,0 +1,176 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.search;
+import goryachev.codepad.TextPos;
+import goryachev.codepad.TextRange;
+import goryachev.common.util.ElasticIntArray;
+import goryachev.common.util.ElasticLongArray;
+import java.util.List;
+
+
+/// Compact sorted index of the search hits.
+///
+/// Each hit costs 12 bytes: the paragraph index and the start offset packed into a `long`,
+/// and the end offset (a hit never spans paragraphs).  Navigating to the next or previous hit,
+/// or finding the rank of a position, is a binary search, O(log n); accessing the hit by its
+/// rank is O(1).
+///
+/// The index can be accessed from any thread.
+public final class HitIndex
+{
+	private final ElasticLongArray starts = new ElasticLongArray(1024);
+	private final ElasticIntArray ends = new ElasticIntArray(1024);
+
+
+	public HitIndex()
+	{
+	}
+
+
+	/// Returns the number of hits.
+	public synchronized int size()
+	{
+		return starts.size();
+	}
+
+
+	/// Returns the hit with the specified rank (0 .. size-1).
+	public synchronized TextRange get(int n)
+	{
+		long v = starts.get(n);
+		return new TextRange(index(v), offset(v), ends.get(n));
+	}
+
+
+	/// Returns the rank of the first hit which starts at or after the specified position,
+	/// or [#size()] if there is no such hit.
+	public synchronized int ceiling(TextPos p)
+	{
+		return search(pack(p.index(), p.offset()));
+	}
+
+
+	/// Returns the rank of the first hit which starts at or after the specified position,
+	/// wrapping around to the first hit if `wrap` is true, or -1 if not found.
+	public synchronized int findNext(TextPos p, boolean wrap)
+	{
+		int sz = starts.size();
+		int ix = search(pack(p.index(), p.offset()));
+		if(ix < sz)
+		{
+			return ix;
+		}
+		return (wrap && (sz > 0)) ? 0 : -1;
+	}
+
+
+	/// Returns the rank of the last hit which starts before the specified position,
+	/// wrapping around to the last hit if `wrap` is true, or -1 if not found.
+	public synchronized int findPrevious(TextPos p, boolean wrap)
+	{
+		int sz = starts.size();
+		int ix = search(pack(p.index(), p.offset())) - 1;
+		if(ix >= 0)
+		{
+			return ix;
+		}
+		return (wrap && (sz > 0)) ? (sz - 1) : -1;
+	}
+
+
+	/// Removes all the hits.
+	public synchronized void clear()
+	{
+		starts.clear();
+		ends.clear();
+	}
+
+
+	/// Appends the hits, which must be in order and follow the existing ones.
+	synchronized void addAll(List<TextRange> hits)
+	{
+		for(TextRange r: hits)
+		{
+			starts.add(pack(r.getStart().index(), r.getStart().offset()));
+			ends.add(r.getEnd().offset());
+		}
+	}
+
+
+	/// Replaces the hits in the paragraphs `[startIndex .. endIndex]` with the specified hits,
+	/// shifting the hits in the paragraphs after `endIndex` by `delta` paragraphs.
+	///
+	/// @param startIndex the first paragraph
+	/// @param endIndex the last paragraph, before the change
+	/// @param delta the change in the number of paragraphs
+	/// @param hits the new hits, in order, or null
+	synchronized void update(int startIndex, int endIndex, int delta, List<TextRange> hits)
+	{
+		int from = search(pack(startIndex, 0));
+		int to = search(pack(endIndex + 1, 0));
+
+		if(delta != 0)
+		{
+			long d = ((long)delta) << 32;
+			int sz = starts.size();
+			for(int i=to; i<sz; i++)
+			{
+				starts.set(i, starts.get(i) + d);
+			}
+		}
+
+		ElasticLongArray ss = null;
+		ElasticIntArray es = null;
+		if((hits != null) && !hits.isEmpty())
+		{
+			ss = new ElasticLongArray(hits.size());
+			es = new ElasticIntArray(hits.size());
+			for(TextRange r: hits)
+			{
+				ss.add(pack(r.getStart().index(), r.getStart().offset()));
+				es.add(r.getEnd().offset());
+			}
+		}
+
+		starts.splice(from, to - from, ss);
+		ends.splice(from, to - from, es);
+	}
+
+
+	// returns the rank of the first hit at or after the packed position
+	private int search(long key)
+	{
+		int low = 0;
+		int high = starts.size();
+		while(low < high)
+		{
+			int mid = (low + high) >>> 1;
+			if(starts.get(mid) < key)
+			{
+				low = mid + 1;
+			}
+			else
+			{
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+
+	private static long pack(int index, int offset)
+	{
+		return (((long)index) << 32) | (offset & 0xffff_ffffL);
+	}
+
+
+	private static int index(long v)
+	{
+		return (int)(v >>> 32);
+	}
+
+
+	private static int offset(long v)
+	{
+		return (int)v;
+	}
+}
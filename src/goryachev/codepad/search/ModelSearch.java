@@ -0,0 +1,312 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.search;
+import goryachev.codepad.TextRange;
+import goryachev.codepad.model.ChangeListener;
+import goryachev.codepad.model.CodeModel;
+import goryachev.codepad.model.ContentChange;
+import goryachev.common.util.CList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+
+/// Maintains the [HitIndex] of all the matches in a [CodeModel].
+///
+/// The index is built in background by a [TextFinder], the hits becoming available as they are found.
+/// The model changes are applied incrementally: the affected paragraphs are searched synchronously,
+/// unless there are too many of them, in which case they are searched in background by another finder.
+///
+/// A change made while a finder is running patches the part of the index already covered,
+/// shifts the part which is yet to be searched, and, if the change falls into that part,
+/// restarts searching only the remaining range.
+///
+/// This class must be accessed from the thread that modifies the model (the FX application thread).
+public class ModelSearch
+	implements ChangeListener
+{
+	/// the maximum number of paragraphs searched synchronously on a change
+	private static final int MAX_INCREMENTAL = 1024;
+	private final CodeModel model;
+	private final ParagraphSearch search;
+	private final HitIndex index = new HitIndex();
+	/// the running scans, guarded by the index lock
+	private final CList<Scan> scans = new CList<>();
+
+
+	private ModelSearch(CodeModel model, ParagraphSearch search)
+	{
+		this.model = model;
+		this.search = search;
+	}
+
+
+	/// Starts indexing the matches of the regular expression.
+	public static ModelSearch start(CodeModel m, Pattern pattern)
+	{
+		return start(m, ParagraphSearch.of(pattern));
+	}
+
+
+	/// Starts indexing the matches.
+	public static ModelSearch start(CodeModel m, ParagraphSearch search)
+	{
+		ModelSearch s = new ModelSearch(m, search);
+		m.addListener(s);
+		s.restart();
+		return s;
+	}
+
+
+	public final HitIndex getIndex()
+	{
+		return index;
+	}
+
+
+	/// Returns true when the index contains all the matches.
+	public final boolean isComplete()
+	{
+		synchronized(index)
+		{
+			return scans.isEmpty();
+		}
+	}
+
+
+	/// Waits until the background searches are done.
+	public void waitForCompletion() throws InterruptedException
+	{
+		for(;;)
+		{
+			TextFinder f = null;
+			synchronized(index)
+			{
+				for(Scan s: scans)
+				{
+					if(!s.finder.isDone())
+					{
+						f = s.finder;
+						break;
+					}
+				}
+			}
+
+			if(f == null)
+			{
+				return;
+			}
+			f.waitForCompletion();
+		}
+	}
+
+
+	/// Stops the search and disconnects from the model.
+	public void close()
+	{
+		model.removeListener(this);
+		synchronized(index)
+		{
+			cancelAll();
+		}
+	}
+
+
+	@Override
+	public void onContentChange()
+	{
+		restart();
+	}
+
+
+	@Override
+	public void onContentChange(ContentChange ch)
+	{
+		int start = ch.getStart().index();
+		int end = ch.getEnd().index();
+		int newEnd = ch.getNewEnd().index();
+		int delta = ch.getDelta();
+
+		synchronized(index)
+		{
+			// the range to be searched again, after the change
+			int from = start;
+			int to = newEnd + 1;
+			boolean cancelled = false;
+
+			for(int i=scans.size()-1; i>=0; i--)
+			{
+				Scan s = scans.get(i);
+				int sfrom = s.next + s.shift;
+				int sto = s.end + s.shift;
+				if(sto <= start)
+				{
+					// the remaining range precedes the change
+				}
+				else if(sfrom > end)
+				{
+					// the remaining range follows the change
+					s.shift += delta;
+				}
+				else
+				{
+					// the change falls into the remaining range: search what is left of it again
+					s.cancel();
+					scans.remove(i);
+					cancelled = true;
+					from = Math.min(from, sfrom);
+					to = Math.max(to, Math.max(sto, end + 1) + delta);
+				}
+			}
+
+			if(!cancelled && (to - from < MAX_INCREMENTAL))
+			{
+				index.update(start, end, delta, searchRange(from, to));
+			}
+			else
+			{
+				index.update(start, end, delta, null);
+				index.update(from, to - 1, 0, null);
+				scan(from, to);
+			}
+		}
+	}
+
+
+	@Override
+	public void onParagraphsAppended(int start, int count)
+	{
+		if(count < MAX_INCREMENTAL)
+		{
+			index.update(start, start + count - 1, 0, searchRange(start, start + count));
+		}
+		else
+		{
+			synchronized(index)
+			{
+				scan(start, start + count);
+			}
+		}
+	}
+
+
+	private CList<TextRange> searchRange(int start, int end)
+	{
+		CList<TextRange> hits = new CList<>();
+		for(int ix=start; ix<end; ix++)
+		{
+			int index = ix;
+			search.find(model.getPlainText(ix), (s, e) ->
+			{
+				hits.add(new TextRange(index, s, e));
+			});
+		}
+		return hits;
+	}
+
+
+	private void restart()
+	{
+		synchronized(index)
+		{
+			cancelAll();
+			index.clear();
+			scan(0, model.size());
+		}
+	}
+
+
+	// starts searching the range in background, must be called with the index lock held
+	private void scan(int from, int to)
+	{
+		if(from < to)
+		{
+			Scan s = new Scan(from, to);
+			scans.add(s);
+			s.finder = TextFinder.start(model, search, from, to, s);
+		}
+	}
+
+
+	// must be called with the index lock held
+	private void cancelAll()
+	{
+		for(Scan s: scans)
+		{
+			s.cancel();
+		}
+		scans.clear();
+	}
+
+
+	/// Background search of a range of paragraphs.
+	/// The hits are inserted into the index after each batch of paragraphs has been searched,
+	/// translating the paragraph indexes from the snapshot to the current model.
+	private class Scan
+		implements FindListener
+	{
+		/// the range in the snapshot coordinates
+		private final int from;
+		private final int end;
+		/// the first paragraph not yet searched, in the snapshot coordinates
+		private int next;
+		/// the difference between the model and the snapshot paragraph indexes
+		private int shift;
+		private boolean cancelled;
+		private TextFinder finder;
+		private final CList<TextRange> pending = new CList<>();
+
+
+		public Scan(int from, int end)
+		{
+			this.from = from;
+			this.end = end;
+			this.next = from;
+		}
+
+
+		// must be called with the index lock held
+		public void cancel()
+		{
+			cancelled = true;
+			finder.cancel();
+		}
+
+
+		@Override
+		public void onHits(List<TextRange> hits)
+		{
+			pending.addAll(hits);
+		}
+
+
+		@Override
+		public void onSearched(int searched)
+		{
+			synchronized(index)
+			{
+				if(cancelled)
+				{
+					return;
+				}
+
+				int to = from + searched;
+				CList<TextRange> hits = pending;
+				if(shift != 0)
+				{
+					hits = new CList<>(pending.size());
+					for(TextRange r: pending)
+					{
+						hits.add(new TextRange(r.getStart().index() + shift, r.getStart().offset(), r.getEnd().offset()));
+					}
+				}
+				index.update(next + shift, to - 1 + shift, 0, hits);
+				pending.clear();
+
+				next = to;
+				if(next >= end)
+				{
+					scans.remove(this);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,66 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.search;
+import goryachev.common.util.text.FindOperation;
+import goryachev.common.util.text.FindOperationResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/// Finds the matches within the text of a single paragraph.
+///
+/// The implementations must be thread-safe, since the paragraphs are searched in parallel.
+@FunctionalInterface
+public interface ParagraphSearch
+{
+	/// Reports the matches found in the text, in order.
+	///
+	/// @param text the paragraph text
+	/// @param out the match consumer
+	public void find(String text, Match out);
+
+
+	/// Receives the matches.
+	@FunctionalInterface
+	public interface Match
+	{
+		/// Receives the match between the `start` (inclusive) and `end` (exclusive) offsets.
+		public void accept(int start, int end);
+	}
+
+
+	/// Creates the plain text search, see [FindOperation].
+	public static ParagraphSearch of(FindOperation op)
+	{
+		return (text, out) ->
+		{
+			FindOperationResult r = op.find(text);
+			if(r != null)
+			{
+				int len = r.getMatchLength();
+				for(int ix: r.getIndexes())
+				{
+					out.accept(ix, ix + len);
+				}
+			}
+		};
+	}
+
+
+	/// Creates the regular expression search.  The empty matches are ignored.
+	public static ParagraphSearch of(Pattern pattern)
+	{
+		return (text, out) ->
+		{
+			Matcher m = pattern.matcher(text);
+			while(m.find())
+			{
+				int start = m.start();
+				int end = m.end();
+				if(start < end)
+				{
+					out.accept(start, end);
+				}
+			}
+		};
+	}
+}
@@ -0,0 +1,311 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.search;
+import goryachev.codepad.TextRange;
+import goryachev.codepad.model.CodeModel;
+import goryachev.codepad.model.TextSnapshot;
+import goryachev.common.log.Log;
+import goryachev.common.util.CList;
+import goryachev.common.util.Progress;
+import goryachev.common.util.text.FindOperation;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/// Parallel, cancellable search over a [TextSnapshot] using a [ParagraphSearch],
+/// such as a [FindOperation] or a regular expression.
+///
+/// The paragraphs are split into chunks which are searched in parallel on a [ForkJoinPool].
+/// The chunks are claimed in order starting with the chunk containing the start paragraph,
+/// so the hits near the caret arrive first, and the results are delivered to the [FindListener]
+/// in the same order as they become available, together with the progressively growing count.
+/// The search can also be limited to a range of paragraphs.
+///
+/// A search is performed once; when the query changes, the old search should be cancelled
+/// and a new one started.
+public class TextFinder
+{
+	private static final Log log = Log.get("TextFinder");
+	/// the number of paragraphs in a chunk
+	private static final int CHUNK_SIZE = 4096;
+	private static final CList<TextRange> NO_HITS = new CList<>(0);
+	private final TextSnapshot snapshot;
+	private final ParagraphSearch search;
+	private final FindListener listener;
+	/// the first paragraph of the range
+	private final int first;
+	private final int startIndex;
+	/// the number of paragraphs in the range
+	private final int size;
+	private final int chunkCount;
+	/// the completed chunks waiting to be delivered
+	private final Object[] results;
+	private final AtomicInteger nextChunk = new AtomicInteger();
+	private final AtomicInteger workers = new AtomicInteger();
+	/// the number of chunks delivered
+	private int delivered;
+	private volatile int count;
+	private volatile int searched;
+	private volatile boolean cancelled;
+	private volatile boolean done;
+	private volatile Throwable error;
+
+
+	/// Creates the finder, which needs to be started.
+	///
+	/// @param snapshot the text to search
+	/// @param search the paragraph search
+	/// @param startIndex the paragraph to start the search from
+	/// @param listener the listener
+	public TextFinder(TextSnapshot snapshot, ParagraphSearch search, int startIndex, FindListener listener)
+	{
+		this(snapshot, search, 0, snapshot.size(), startIndex, listener);
+	}
+
+
+	/// Creates the finder which searches the paragraphs `[first .. end-1]` only,
+	/// starting with the start paragraph and wrapping around the end of the range.
+	/// The finder needs to be started.
+	///
+	/// @param snapshot the text to search
+	/// @param search the paragraph search
+	/// @param first the first paragraph of the range
+	/// @param end the paragraph following the range
+	/// @param startIndex the paragraph to start the search from
+	/// @param listener the listener
+	public TextFinder(TextSnapshot snapshot, ParagraphSearch search, int first, int end, int startIndex, FindListener listener)
+	{
+		this.snapshot = snapshot;
+		this.search = search;
+		this.listener = listener;
+		this.first = Math.max(0, first);
+		this.size = Math.max(0, Math.min(end, snapshot.size()) - this.first);
+		this.startIndex = (size == 0) ? this.first : Math.max(this.first, Math.min(startIndex, this.first + size - 1));
+		this.chunkCount = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		this.results = new Object[chunkCount];
+	}
+
+
+	/// Starts searching the snapshot of the model.
+	/// This method must be called from the thread that modifies the model.
+	///
+	/// @param m the model
+	/// @param op the find operation
+	/// @param startIndex the paragraph to start the search from
+	/// @param li the listener
+	/// @return the running finder
+	public static TextFinder start(CodeModel m, FindOperation op, int startIndex, FindListener li)
+	{
+		return start(m, ParagraphSearch.of(op), startIndex, li);
+	}
+
+
+	/// Starts searching the snapshot of the model.
+	/// This method must be called from the thread that modifies the model.
+	///
+	/// @param m the model
+	/// @param search the paragraph search
+	/// @param startIndex the paragraph to start the search from
+	/// @param li the listener
+	/// @return the running finder
+	public static TextFinder start(CodeModel m, ParagraphSearch search, int startIndex, FindListener li)
+	{
+		TextFinder f = new TextFinder(m.snapshot(), search, startIndex, li);
+		f.start(ForkJoinPool.commonPool());
+		return f;
+	}
+
+
+	/// Starts searching the paragraphs `[first .. end-1]` of the snapshot of the model, in order.
+	/// This method must be called from the thread that modifies the model.
+	///
+	/// @param m the model
+	/// @param search the paragraph search
+	/// @param first the first paragraph of the range
+	/// @param end the paragraph following the range
+	/// @param li the listener
+	/// @return the running finder
+	public static TextFinder start(CodeModel m, ParagraphSearch search, int first, int end, FindListener li)
+	{
+		TextFinder f = new TextFinder(m.snapshot(), search, first, end, first, li);
+		f.start(ForkJoinPool.commonPool());
+		return f;
+	}
+
+
+	/// Starts the search using the specified pool.
+	public void start(ForkJoinPool pool)
+	{
+		int n = Math.max(1, Math.min(pool.getParallelism(), chunkCount));
+		workers.set(n);
+		for(int i=0; i<n; i++)
+		{
+			pool.execute(this::work);
+		}
+	}
+
+
+	/// Cancels the search.  The listener might still receive the callback which is already in progress.
+	public void cancel()
+	{
+		cancelled = true;
+	}
+
+
+	public boolean isCancelled()
+	{
+		return cancelled;
+	}
+
+
+	/// Returns true when the search has been completed, cancelled, or failed.
+	public boolean isDone()
+	{
+		return done;
+	}
+
+
+	/// Returns the number of hits delivered so far.
+	public int getCount()
+	{
+		return count;
+	}
+
+
+	/// Returns the fraction of the paragraphs searched and delivered.
+	public Progress getProgress()
+	{
+		return new Progress(searched, size);
+	}
+
+
+	/// Returns the exception which terminated the search, or `null`.
+	public Throwable getError()
+	{
+		return error;
+	}
+
+
+	/// Waits until the search is done.
+	public synchronized void waitForCompletion() throws InterruptedException
+	{
+		while(!done)
+		{
+			wait();
+		}
+	}
+
+
+	private void work()
+	{
+		try
+		{
+			for(;;)
+			{
+				if(cancelled)
+				{
+					return;
+				}
+
+				int ch = nextChunk.getAndIncrement();
+				if(ch >= chunkCount)
+				{
+					return;
+				}
+
+				CList<TextRange> hits = searchChunk(ch);
+				if(hits == null)
+				{
+					return;
+				}
+				deliver(ch, hits);
+			}
+		}
+		catch(Throwable e)
+		{
+			log.error(e);
+			error = e;
+			cancelled = true;
+		}
+		finally
+		{
+			if(workers.decrementAndGet() == 0)
+			{
+				finish();
+			}
+		}
+	}
+
+
+	// returns the hits in the chunk, or null if cancelled
+	private CList<TextRange> searchChunk(int ch)
+	{
+		CList<TextRange> hits = new CList<>();
+		int from = ch * CHUNK_SIZE;
+		int to = Math.min(from + CHUNK_SIZE, size);
+		for(int k=from; k<to; k++)
+		{
+			if(cancelled)
+			{
+				return null;
+			}
+
+			int ix = startIndex + k;
+			if(ix >= first + size)
+			{
+				ix -= size;
+			}
+
+			int index = ix;
+			String text = snapshot.getPlainText(ix);
+			search.find(text, (start, end) ->
+			{
+				hits.add(new TextRange(index, start, end));
+			});
+		}
+		return hits.isEmpty() ? NO_HITS : hits;
+	}
+
+
+	// delivers the completed chunks in order
+	private synchronized void deliver(int ch, CList<TextRange> hits)
+	{
+		results[ch] = hits;
+		while((delivered < chunkCount) && (results[delivered] != null))
+		{
+			@SuppressWarnings("unchecked")
+			CList<TextRange> h = (CList<TextRange>)results[delivered];
+			results[delivered] = null;
+			delivered++;
+			searched = Math.min(delivered * CHUNK_SIZE, size);
+			if(cancelled)
+			{
+				return;
+			}
+
+			if(h.size() > 0)
+			{
+				count += h.size();
+				listener.onHits(h);
+			}
+			listener.onSearched(searched);
+		}
+	}
+
+
+	private synchronized void finish()
+	{
+		if(!cancelled)
+		{
+			try
+			{
+				listener.onFinished(count);
+			}
+			catch(Throwable e)
+			{
+				log.error(e);
+			}
+		}
+		done = true;
+		notifyAll();
+	}
+}
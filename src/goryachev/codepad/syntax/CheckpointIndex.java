@@ -0,0 +1,126 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.syntax;
+import goryachev.common.util.ElasticIntArray;
+
+
+/// Sparse index of the lexer states at the start of selected paragraphs (checkpoints),
+/// allowing a stateful decorator to resume lexing near any paragraph instead of at the start
+/// of the document.
+///
+/// The checkpoints are kept in the order of the paragraph index.  Each costs two `int`s,
+/// so recording one every few hundred paragraphs makes the index small even for the files
+/// with hundreds of millions of paragraphs.
+///
+/// This class is not thread-safe.
+public final class CheckpointIndex
+{
+	private final ElasticIntArray indexes = new ElasticIntArray(256);
+	private final ElasticIntArray states = new ElasticIntArray(256);
+
+
+	public CheckpointIndex()
+	{
+	}
+
+
+	/// Returns the number of checkpoints.
+	public int size()
+	{
+		return indexes.size();
+	}
+
+
+	/// Returns the paragraph index of the specified checkpoint.
+	public int getIndex(int k)
+	{
+		return indexes.get(k);
+	}
+
+
+	/// Returns the lexer state at the start of the checkpoint paragraph.
+	public int getState(int k)
+	{
+		return states.get(k);
+	}
+
+
+	public void setState(int k, int state)
+	{
+		states.set(k, state);
+	}
+
+
+	/// Inserts a checkpoint at position `k`, which must keep the checkpoints in order.
+	public void insert(int k, int index, int state)
+	{
+		ElasticIntArray a = new ElasticIntArray(1);
+		a.add(index);
+		indexes.splice(k, 0, a);
+		a.set(0, state);
+		states.splice(k, 0, a);
+	}
+
+
+	/// Returns the position of the last checkpoint at or before the paragraph `index`, or -1.
+	public int floor(int index)
+	{
+		int low = 0;
+		int high = indexes.size() - 1;
+		while(low <= high)
+		{
+			int mid = (low + high) >>> 1;
+			if(indexes.get(mid) <= index)
+			{
+				low = mid + 1;
+			}
+			else
+			{
+				high = mid - 1;
+			}
+		}
+		return high;
+	}
+
+
+	/// Returns the position of the first checkpoint after the paragraph `index`,
+	/// or [#size()] if none.
+	public int higher(int index)
+	{
+		return floor(index) + 1;
+	}
+
+
+	/// Updates the index after the paragraphs between `start` and `end` (inclusive) have been replaced
+	/// by the paragraphs between `start` and `newEnd`.
+	///
+	/// The checkpoint at `start` is kept, since the state at the start of the paragraph does not depend
+	/// on its text.  The checkpoints inside the changed range are removed, and the ones after it are shifted,
+	/// keeping their (now tentative) states.
+	public void update(int start, int end, int newEnd)
+	{
+		int k1 = higher(start);
+		int k2 = higher(end);
+		if(k2 > k1)
+		{
+			indexes.splice(k1, k2 - k1, null);
+			states.splice(k1, k2 - k1, null);
+		}
+
+		int delta = newEnd - end;
+		if(delta != 0)
+		{
+			int sz = indexes.size();
+			for(int k=k1; k<sz; k++)
+			{
+				indexes.set(k, indexes.get(k) + delta);
+			}
+		}
+	}
+
+
+	public void clear()
+	{
+		indexes.clear();
+		states.clear();
+	}
+}
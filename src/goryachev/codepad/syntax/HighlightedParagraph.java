@@ -0,0 +1,116 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.syntax;
+import goryachev.codepad.model.CellStyle;
+import goryachev.codepad.model.CodeParagraph;
+import goryachev.codepad.model.StyleRuns;
+import javafx.scene.paint.Color;
+
+
+/// Paragraph with the styles produced by a [Lexer], stored as runs.
+final class HighlightedParagraph
+	extends CodeParagraph
+{
+	private final int index;
+	private final String text;
+	private final StyleRuns runs;
+	/// the lexer state at the end of the paragraph
+	private final int endState;
+
+
+	private HighlightedParagraph(int index, String text, StyleRuns runs, int endState)
+	{
+		this.index = index;
+		this.text = text;
+		this.runs = runs;
+		this.endState = endState;
+	}
+
+
+	/// Lexes the text starting with the specified state.
+	public static HighlightedParagraph create(Lexer lexer, int index, String text, int state)
+	{
+		StyleRuns.Builder b = new StyleRuns.Builder();
+		int endState = lexer.lex(text, state, b::add);
+		return new HighlightedParagraph(index, text, b.build(), endState);
+	}
+
+
+	public int getEndState()
+	{
+		return endState;
+	}
+
+
+	@Override
+	public int getIndex()
+	{
+		return index;
+	}
+
+
+	@Override
+	public Color getBackgroundColor()
+	{
+		return null;
+	}
+
+
+	@Override
+	public String getPlainText()
+	{
+		return text;
+	}
+
+
+	@Override
+	public int getTextLength()
+	{
+		return text.length();
+	}
+
+
+	@Override
+	public int getCellCount()
+	{
+		return text.length();
+	}
+
+
+	@Override
+	public String getCellText(int cix)
+	{
+		return cellText(text.charAt(cix));
+	}
+
+
+	@Override
+	public CellStyle getCellStyle(int cix)
+	{
+		return runs.getStyle(cix);
+	}
+
+
+	@Override
+	public int getStyleRunEnd(int cix)
+	{
+		return Math.max(Math.min(runs.getStyleRunEnd(cix), text.length()), cix + 1);
+	}
+
+
+	@Override
+	public boolean hasTabs()
+	{
+		return text.indexOf('\t') >= 0;
+	}
+
+
+	@Override
+	public int cellIndexAtOffset(int offset)
+	{
+		if(offset < 0)
+		{
+			return 0;
+		}
+		return Math.min(offset, text.length());
+	}
+}
@@ -0,0 +1,37 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.syntax;
+import goryachev.codepad.model.CellStyle;
+
+
+/// Stateful lexer used by the [SyntaxHighlighter].
+///
+/// The lexer state is an `int` capturing everything needed to continue lexing at the start
+/// of the next paragraph, for example whether the paragraph ends inside a block comment
+/// or a multi-line string.  The same text lexed from the same state must always produce
+/// the same tokens and the same end state.
+///
+/// The lexer must be thread-safe, since the paragraphs are lexed in background.
+public interface Lexer
+{
+	/// The state at the start of the document.
+	public static final int INITIAL_STATE = 0;
+
+
+	/// Lexes the paragraph text starting in the specified state.
+	///
+	/// @param text the paragraph text
+	/// @param state the state at the start of the paragraph
+	/// @param out the token consumer, or `null` when only the end state is needed
+	/// @return the state at the end of the paragraph
+	public int lex(String text, int state, TokenConsumer out);
+
+
+	/// Receives the styled tokens.
+	@FunctionalInterface
+	public interface TokenConsumer
+	{
+		/// Receives the style of the text between `start` (inclusive) and `end` (exclusive).
+		/// The tokens must be reported in order, and must not overlap.
+		public void accept(int start, int end, CellStyle style);
+	}
+}
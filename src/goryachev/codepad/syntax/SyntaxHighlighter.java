@@ -0,0 +1,741 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.syntax;
+import goryachev.codepad.model.ChangeListener;
+import goryachev.codepad.model.CodeModel;
+import goryachev.codepad.model.CodeModelContent;
+import goryachev.codepad.model.CodeParagraph;
+import goryachev.codepad.model.ContentChange;
+import goryachev.codepad.model.ParagraphDecorator;
+import goryachev.codepad.model.TextSnapshot;
+import goryachev.common.log.Log;
+import goryachev.common.util.ParallelExecutor;
+import goryachev.fx.FX;
+import java.util.function.IntFunction;
+
+
+/// Incremental syntax highlighter: a [ParagraphDecorator] which styles the paragraphs using a [Lexer].
+///
+/// The lexer states are known for all the paragraphs up to the frontier, which advances
+/// as the document is lexed in background.  Instead of storing the state of every paragraph,
+/// the highlighter records it every `checkpointInterval` paragraphs in a [CheckpointIndex],
+/// so styling any paragraph behind the frontier requires lexing at most that many paragraphs
+/// (or just one, when the paragraphs are decorated in order, as they are when painting).
+///
+/// On edit, the frontier moves back to the changed paragraph, and the lexing continues past the edit
+/// until the state at a checkpoint matches the one recorded before the edit, after which all the
+/// checkpoints are known to be correct again.  A small number of paragraphs is re-lexed synchronously,
+/// the rest (for example, after typing the start of a block comment near the top of a large file)
+/// is re-lexed in background.  A paragraph whose start state is not yet known is styled
+/// provisionally, starting at the nearest (tentative) checkpoint, and repainted
+/// via [CodeModel#fireStyleChange(int, int)] once the state is known.
+///
+/// The view posts the range it lays out via [#setVisibleRange(int, int)].  When that range is too far
+/// ahead of the frontier, the background task first lexes it speculatively, starting at the nearest
+/// tentative checkpoint or, lacking one, a fixed number of paragraphs before the range,
+/// and records the tentative checkpoints along the way, so the provisional styling is likely correct
+/// long before the frontier gets there.
+///
+/// Usage: install this instance as the model's decorator, then call [#attach(CodeModel)].
+/// The methods must be called from the FX application thread.
+public class SyntaxHighlighter
+	implements ParagraphDecorator
+{
+	private static final Log log = Log.get("SyntaxHighlighter");
+	private static final ParallelExecutor exec = new ParallelExecutor("SyntaxHighlighter");
+	/// the maximum number of paragraphs re-lexed synchronously
+	private static final int SYNC_LIMIT = 1000;
+	/// the number of paragraphs lexed in background between the updates
+	private static final int BATCH_SIZE = 4096;
+	public static final int DEFAULT_CHECKPOINT_INTERVAL = 512;
+	private final Lexer lexer;
+	private final int interval;
+	private final ChangeListener listener;
+	private CodeModel model;
+	/// the checkpoints up to the frontier are correct, the ones after it are tentative
+	private final CheckpointIndex checkpoints = new CheckpointIndex();
+	/// the number of paragraphs in the model
+	private int size;
+	/// the start states of the paragraphs up to and including the frontier are known
+	private int frontier;
+	/// the start state of the frontier paragraph, when it is less than size
+	private int frontierState;
+	/// the first checkpoint after the frontier
+	private int next;
+	/// the paragraphs before this one have been lexed and checkpointed at some point,
+	/// so the frontier can skip to it once the states converge
+	private int lexedEnd;
+	/// the start state of the `lexedEnd` paragraph, once the states converge
+	private int lexedState;
+	/// the paragraph following the one last decorated, or -1.  Never goes beyond the frontier.
+	private int cursor = -1;
+	private int cursorState;
+	/// the last paragraph changed since the checkpoints were last verified, or -1
+	private int dirtyEnd = -1;
+	/// incremented on each change, to stop the obsolete background tasks
+	private int generation;
+	private boolean running;
+	/// the range of paragraphs styled provisionally, or -1
+	private int provisionalStart = -1;
+	private int provisionalEnd = -1;
+	/// the range of paragraphs to repaint, or -1
+	private int repaintStart = -1;
+	private int repaintEnd = -1;
+	/// the range of paragraphs laid out by the view, or -1
+	private int visibleStart = -1;
+	private int visibleEnd = -1;
+	/// true when the background task is yet to serve the visible range
+	private boolean visiblePending;
+
+
+	public SyntaxHighlighter(Lexer lexer, int checkpointInterval)
+	{
+		if(checkpointInterval < 1)
+		{
+			throw new IllegalArgumentException("checkpointInterval=" + checkpointInterval);
+		}
+
+		this.lexer = lexer;
+		this.interval = checkpointInterval;
+		this.listener = new ChangeListener()
+		{
+			@Override
+			public void onContentChange()
+			{
+				handleReset();
+			}
+
+
+			@Override
+			public void onContentChange(ContentChange ch)
+			{
+				handleChange(ch);
+			}
+
+
+			@Override
+			public void onParagraphsAppended(int start, int count)
+			{
+				handleAppend();
+			}
+		};
+	}
+
+
+	public SyntaxHighlighter(Lexer lexer)
+	{
+		this(lexer, DEFAULT_CHECKPOINT_INTERVAL);
+	}
+
+
+	/// Starts tracking the changes in the specified model, which must use this highlighter as its decorator.
+	public void attach(CodeModel m)
+	{
+		detach();
+		model = m;
+		m.addListener(listener);
+		handleReset();
+	}
+
+
+	/// Stops tracking the changes in the model.
+	public void detach()
+	{
+		if(model != null)
+		{
+			model.removeListener(listener);
+			model = null;
+			synchronized(this)
+			{
+				generation++;
+				checkpoints.clear();
+				size = 0;
+				frontier = 0;
+				lexedEnd = 0;
+				cursor = -1;
+			}
+		}
+	}
+
+
+	@Override
+	public synchronized CodeParagraph decorate(CodeModelContent content, int index, String text)
+	{
+		IntFunction<String> tx = content::getPlainText;
+		int state;
+		boolean known = true;
+		if(index <= frontier)
+		{
+			state = stateAt(tx, index);
+		}
+		else if(index - frontier <= SYNC_LIMIT)
+		{
+			advance(tx, index);
+			state = stateAt(tx, index);
+		}
+		else
+		{
+			// the state will become known once the background task gets here
+			state = tentativeStateAt(tx, index);
+			known = false;
+			if(provisionalEnd < 0)
+			{
+				provisionalStart = index;
+				provisionalEnd = index;
+			}
+			else
+			{
+				provisionalStart = Math.min(provisionalStart, index);
+				provisionalEnd = Math.max(provisionalEnd, index);
+			}
+		}
+
+		HighlightedParagraph p = HighlightedParagraph.create(lexer, index, text, state);
+		if(known && (index < frontier))
+		{
+			cursor = index + 1;
+			cursorState = p.getEndState();
+		}
+		return p;
+	}
+
+
+	@Override
+	public synchronized void setVisibleRange(int start, int end)
+	{
+		if((start != visibleStart) || (end != visibleEnd))
+		{
+			visibleStart = start;
+			visibleEnd = end;
+			visiblePending = true;
+		}
+	}
+
+
+	/// Returns the number of paragraphs whose start state is known.
+	public synchronized int getValidCount()
+	{
+		return Math.min(frontier + 1, size);
+	}
+
+
+	/// Returns the lexer state at the start of the specified paragraph,
+	/// which must be less than [#getValidCount()].
+	public synchronized int getStartState(int index)
+	{
+		if((index < 0) || (index > frontier) || (index >= size))
+		{
+			throw new IllegalArgumentException("index=" + index + " frontier=" + frontier);
+		}
+		return stateAt(model::getPlainText, index);
+	}
+
+
+	/// Returns the number of checkpoints.
+	public synchronized int getCheckpointCount()
+	{
+		return checkpoints.size();
+	}
+
+
+	/// Blocks until the background task, if any, finishes.
+	public synchronized void waitForIdle() throws InterruptedException
+	{
+		while(running)
+		{
+			wait();
+		}
+	}
+
+
+	private void handleReset()
+	{
+		synchronized(this)
+		{
+			generation++;
+			checkpoints.clear();
+			size = model.size();
+			frontier = 0;
+			frontierState = Lexer.INITIAL_STATE;
+			next = 0;
+			lexedEnd = 0;
+			lexedState = Lexer.INITIAL_STATE;
+			cursor = -1;
+			dirtyEnd = -1;
+			provisionalStart = -1;
+			provisionalEnd = -1;
+			visiblePending = (visibleStart >= 0);
+
+			// the small documents need no background processing
+			advance(model::getPlainText, SYNC_LIMIT);
+			repaintStart = -1;
+			repaintEnd = -1;
+		}
+		schedule();
+	}
+
+
+	private void handleAppend()
+	{
+		synchronized(this)
+		{
+			// the running task does not see the new paragraphs
+			generation++;
+			if(frontier >= size)
+			{
+				// the whole document has been lexed
+				frontierState = lexedState;
+				frontier = size;
+			}
+			size = model.size();
+		}
+		schedule();
+	}
+
+
+	private void handleChange(ContentChange ch)
+	{
+		int start;
+		int count;
+		synchronized(this)
+		{
+			generation++;
+
+			int s = ch.getStart().index();
+			int oe = ch.getEnd().index();
+			int ne = ch.getNewEnd().index();
+			int delta = ne - oe;
+
+			if(cursor > s)
+			{
+				cursor = -1;
+			}
+			if(s < frontier)
+			{
+				// the state at the start of the changed paragraph does not depend on its text
+				frontierState = stateAt(model::getPlainText, s);
+				frontier = s;
+			}
+
+			size = model.size();
+			checkpoints.update(s, oe, ne);
+			next = checkpoints.higher(frontier);
+			if(lexedEnd > oe)
+			{
+				lexedEnd += delta;
+			}
+			else if(lexedEnd > s)
+			{
+				// the lexed range ends within the change: fall back to the last checkpoint before it
+				int k = checkpoints.floor(s);
+				if((k >= 0) && (checkpoints.getIndex(k) > frontier))
+				{
+					lexedEnd = checkpoints.getIndex(k);
+					lexedState = checkpoints.getState(k);
+				}
+				else
+				{
+					lexedEnd = frontier;
+					lexedState = frontierState;
+				}
+			}
+			dirtyEnd = Math.max(shift(dirtyEnd, s, oe, ne, delta), ne);
+			if(provisionalEnd >= 0)
+			{
+				provisionalStart = Math.min(provisionalStart, s);
+				provisionalEnd = Math.max(shift(provisionalEnd, s, oe, ne, delta), s);
+			}
+			repaintStart = -1;
+			repaintEnd = -1;
+
+			advance(model::getPlainText, frontier + SYNC_LIMIT);
+
+			start = repaintStart;
+			count = repaintEnd - repaintStart + 1;
+			repaintStart = -1;
+			repaintEnd = -1;
+		}
+
+		if(start >= 0)
+		{
+			// deferred by the model until all the listeners have handled the change
+			model.fireStyleChange(start, count);
+		}
+		schedule();
+	}
+
+
+	// maps a paragraph index across the change
+	private static int shift(int ix, int s, int oe, int ne, int delta)
+	{
+		if(ix > oe)
+		{
+			return ix + delta;
+		}
+		else if(ix >= s)
+		{
+			return ne;
+		}
+		return ix;
+	}
+
+
+	// returns the start state of the paragraph at or before the frontier, lexing from the cursor or the nearest checkpoint
+	private int stateAt(IntFunction<String> text, int index)
+	{
+		if((index == frontier) && (frontier < size))
+		{
+			return frontierState;
+		}
+
+		int ix;
+		int state;
+		if((cursor >= 0) && (cursor <= index) && (index - cursor < interval))
+		{
+			ix = cursor;
+			state = cursorState;
+		}
+		else
+		{
+			int k = checkpoints.floor(index);
+			if(k < 0)
+			{
+				ix = 0;
+				state = Lexer.INITIAL_STATE;
+			}
+			else
+			{
+				ix = checkpoints.getIndex(k);
+				state = checkpoints.getState(k);
+			}
+		}
+
+		while(ix < index)
+		{
+			state = lexer.lex(text.apply(ix), state, null);
+			ix++;
+		}
+
+		cursor = index;
+		cursorState = state;
+		return state;
+	}
+
+
+	// returns the likely start state of the paragraph after the frontier, using the tentative checkpoints
+	private int tentativeStateAt(IntFunction<String> text, int index)
+	{
+		int k = checkpoints.floor(index);
+		int ix;
+		int state;
+		if((k < next) || (index - checkpoints.getIndex(k) > SYNC_LIMIT))
+		{
+			// no usable checkpoint, assume the initial state
+			return Lexer.INITIAL_STATE;
+		}
+
+		ix = checkpoints.getIndex(k);
+		state = checkpoints.getState(k);
+		while(ix < index)
+		{
+			state = lexer.lex(text.apply(ix), state, null);
+			ix++;
+		}
+		return state;
+	}
+
+
+	// lexes the paragraphs from the frontier up to `limit`, under the lock
+	private void advance(IntFunction<String> text, int limit)
+	{
+		int end = Math.min(size, limit);
+		int start = frontier;
+		int last = start;
+		boolean stale = (dirtyEnd >= 0);
+		boolean converged = false;
+		while(frontier < end)
+		{
+			last = frontier;
+			int state = lexer.lex(text.apply(frontier), frontierState, null);
+			if(step(state))
+			{
+				converged = true;
+				break;
+			}
+		}
+
+		if(stale && (frontier > start))
+		{
+			// the paragraphs might have been painted using the states before the change
+			addRepaint(start + 1, (converged || (frontier >= size)) ? last : frontier);
+		}
+	}
+
+
+	// moves the frontier to the next paragraph.  Returns true when the states converge at a checkpoint,
+	// which moves the frontier to the end of the previously lexed range, or when the frontier reaches the end.
+	private boolean step(int state)
+	{
+		frontier++;
+		frontierState = state;
+		if(frontier >= lexedEnd)
+		{
+			lexedEnd = frontier;
+			lexedState = state;
+		}
+
+		if((next < checkpoints.size()) && (checkpoints.getIndex(next) == frontier))
+		{
+			if((frontier > dirtyEnd) && (frontier < lexedEnd) && (checkpoints.getState(next) == state))
+			{
+				// the checkpoints up to the end of the lexed range are known to be correct
+				frontier = lexedEnd;
+				frontierState = lexedState;
+				next = checkpoints.higher(frontier);
+				dirtyEnd = -1;
+				checkProvisional();
+				return true;
+			}
+			else
+			{
+				checkpoints.setState(next, state);
+				next++;
+			}
+		}
+		else if(frontier < size)
+		{
+			int prev = (next == 0) ? 0 : checkpoints.getIndex(next - 1);
+			if(frontier - prev >= interval)
+			{
+				checkpoints.insert(next, frontier, state);
+				next++;
+			}
+		}
+
+		if(frontier >= size)
+		{
+			dirtyEnd = -1;
+		}
+		checkProvisional();
+		return (frontier >= size);
+	}
+
+
+	private void checkProvisional()
+	{
+		if((provisionalEnd >= 0) && (frontier >= provisionalEnd))
+		{
+			addRepaint(provisionalStart, provisionalEnd);
+			provisionalStart = -1;
+			provisionalEnd = -1;
+		}
+	}
+
+
+	private void addRepaint(int start, int end)
+	{
+		if(end < start)
+		{
+			return;
+		}
+		else if(repaintStart < 0)
+		{
+			repaintStart = start;
+			repaintEnd = end;
+		}
+		else
+		{
+			repaintStart = Math.min(repaintStart, start);
+			repaintEnd = Math.max(repaintEnd, end);
+		}
+	}
+
+
+	private void schedule()
+	{
+		CodeModel m = model;
+		if(m == null)
+		{
+			return;
+		}
+
+		int gen;
+		synchronized(this)
+		{
+			if(frontier >= size)
+			{
+				// an obsolete task, if any, stops on its own
+				running = false;
+				notifyAll();
+				return;
+			}
+			gen = generation;
+			running = true;
+		}
+
+		TextSnapshot snapshot = m.snapshot();
+		exec.submit(() -> scan(m, snapshot, gen));
+	}
+
+
+	// lexes the visible range speculatively starting at the specified paragraph and state,
+	// records the tentative checkpoints, and repaints the range.  Returns false if the task is obsolete.
+	private boolean serveVisible(CodeModel m, TextSnapshot snapshot, int gen, int ix, int state, int vs, int ve)
+	{
+		if(ve < vs)
+		{
+			return true;
+		}
+
+		int n = ve + 1 - ix;
+		int[] states = new int[n];
+		for(int i=0; i<n; i++)
+		{
+			states[i] = state;
+			state = lexer.lex(snapshot.getPlainText(ix + i), state, null);
+		}
+
+		synchronized(this)
+		{
+			if(gen != generation)
+			{
+				return false;
+			}
+
+			// only past the lexed range, where the states are never compared to find the convergence
+			for(int p=Math.max(ix + 1, Math.max(lexedEnd, frontier + 1)); p<=ve; p++)
+			{
+				int k = checkpoints.floor(p);
+				int prev = (k < 0) ? 0 : checkpoints.getIndex(k);
+				if(p - prev >= interval)
+				{
+					checkpoints.insert(k + 1, p, states[p - ix]);
+				}
+			}
+		}
+
+		FX.later(() -> m.fireStyleChange(vs, ve - vs + 1));
+		return true;
+	}
+
+
+	// lexes the remaining paragraphs in background
+	private void scan(CodeModel m, TextSnapshot snapshot, int gen)
+	{
+		try
+		{
+			int sz = snapshot.size();
+			int[] batch = new int[BATCH_SIZE];
+			for(;;)
+			{
+				int start;
+				int state;
+				int vs = -1;
+				int ve = -1;
+				int vix = 0;
+				int vstate = Lexer.INITIAL_STATE;
+				synchronized(this)
+				{
+					if((gen != generation) || (frontier >= sz))
+					{
+						return;
+					}
+					start = frontier;
+					state = frontierState;
+
+					if(visiblePending)
+					{
+						visiblePending = false;
+						// the paragraphs closer to the frontier are lexed synchronously when decorated
+						if(visibleStart - frontier > SYNC_LIMIT)
+						{
+							vs = visibleStart;
+							ve = Math.min(visibleEnd, sz - 1);
+							int k = checkpoints.floor(vs);
+							if(k >= next)
+							{
+								vix = checkpoints.getIndex(k);
+								vstate = checkpoints.getState(k);
+							}
+							else
+							{
+								vix = vs - SYNC_LIMIT;
+							}
+						}
+					}
+				}
+
+				if(vs >= 0)
+				{
+					if(!serveVisible(m, snapshot, gen, vix, vstate, vs, ve))
+					{
+						return;
+					}
+				}
+
+				int n = Math.min(BATCH_SIZE, sz - start);
+				for(int i=0; i<n; i++)
+				{
+					state = lexer.lex(snapshot.getPlainText(start + i), state, null);
+					batch[i] = state;
+				}
+
+				int rs;
+				int re;
+				synchronized(this)
+				{
+					if(gen != generation)
+					{
+						return;
+					}
+
+					if(frontier == start)
+					{
+						int last = start;
+						boolean stale = (dirtyEnd >= 0);
+						boolean converged = false;
+						for(int i=0; i<n; i++)
+						{
+							last = start + i;
+							if(step(batch[i]))
+							{
+								converged = true;
+								break;
+							}
+						}
+
+						if(stale)
+						{
+							addRepaint(start + 1, (converged || (frontier >= size)) ? last : frontier);
+						}
+					}
+					// otherwise the paragraphs have been lexed synchronously in the meantime
+
+					rs = repaintStart;
+					re = repaintEnd;
+					repaintStart = -1;
+					repaintEnd = -1;
+				}
+
+				if(rs >= 0)
+				{
+					FX.later(() -> m.fireStyleChange(rs, re - rs + 1));
+				}
+			}
+		}
+		catch(Throwable e)
+		{
+			log.error(e);
+		}
+		finally
+		{
+			synchronized(this)
+			{
+				if(gen == generation)
+				{
+					running = false;
+				}
+				notifyAll();
+			}
+		}
+	}
+}
@@ -171,6 +171,37 @@ public class ElasticLongArray
 	}
 
 
+	/** removes count elements starting at index, and inserts the content of the specified array (can be null) in their place */
+	public void splice(int index, int count, ElasticLongArray a)
+	{
+		if((index < 0) || (count < 0) || (index + count > size))
+		{
+			throw new IndexOutOfBoundsException("index=" + index + " count=" + count + " size=" + size);
+		}
+		
+		int len = (a == null) ? 0 : a.size;
+		int tail = size - index - count;
+		int sz = size - count + len;
+		if(sz > array.length)
+		{
+			long[] b = new long[sz + Math.max(16, sz / 2)];
+			System.arraycopy(array, 0, b, 0, index);
+			System.arraycopy(array, index + count, b, index + len, tail);
+			array = b;
+		}
+		else if(len != count)
+		{
+			System.arraycopy(array, index + count, array, index + len, tail);
+		}
+		
+		if(len > 0)
+		{
+			System.arraycopy(a.array, 0, array, index, len);
+		}
+		size = sz;
+	}
+
+
 	public long[] toArray()
 	{
 		long[] rv = new long[size];
@@ -33,7 +33,7 @@ public class FindOperation
 		
 		if(!caseSensitive)
 		{
-			s = s.toLowerCase(locale);
+			s = toLowerCase(s);
 		}
 		
 		if(ignoreAccents)
@@ -45,6 +45,39 @@ public class FindOperation
 	}
 
 	
+	/** converts to lower case keeping the length, so the match offsets refer to the original text */
+	protected String toLowerCase(String s)
+	{
+		String lc = s.toLowerCase(locale);
+		if(lc.length() == s.length())
+		{
+			return lc;
+		}
+		
+		// some characters, such as U+0130, expand into several: convert one by one
+		StringBuilder sb = new StringBuilder(s.length());
+		int len = s.length();
+		for(int i=0; i<len; )
+		{
+			int c = s.codePointAt(i);
+			int n = Character.charCount(c);
+			String one = s.substring(i, i + n);
+			lc = one.toLowerCase(locale);
+			if(lc.length() == n)
+			{
+				sb.append(lc);
+			}
+			else
+			{
+				int cp = Character.toLowerCase(c);
+				sb.appendCodePoint((Character.charCount(cp) == n) ? cp : c);
+			}
+			i += n;
+		}
+		return sb.toString();
+	}
+	
+	
 	protected static boolean isWholeWord(String a, int ix, int len)
 	{
 		if(ix > 0)
@@ -18,6 +18,20 @@ public class FindOperationResult
 	}
 	
 	
+	/** returns the offsets of the matches in the (normalized) text */
+	public int[] getIndexes()
+	{
+		return indexes;
+	}
+	
+	
+	/** returns the length of each match */
+	public int getMatchLength()
+	{
+		return pattern.length();
+	}
+	
+	
 	public String replace(String replace)
 	{
 		SB sb = new SB(2 * original.length());
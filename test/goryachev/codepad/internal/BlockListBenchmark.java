@@ -0,0 +1,43 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.internal;
+import goryachev.common.util.SW;
+import java.util.Collections;
+import java.util.List;
+
+
+/// Manual BlockList benchmark: deletes and pastes 10M lines in a 20M line document.
+public class BlockListBenchmark
+{
+	public static void main(String[] args)
+	{
+		int size = 20_000_000;
+		int count = 10_000_000;
+		List<String> lines = Collections.nCopies(count, "line");
+
+		BlockList<String> list = new BlockList<>();
+		list.splice(0, 0, lines);
+		list.splice(count, 0, lines);
+		check(size, list);
+
+		SW sw = new SW();
+		list.splice(count / 2, count, List.of());
+		long delete = sw.getElapsedTimeMilli();
+		check(size - count, list);
+
+		sw.reset();
+		list.splice(count / 2, 0, lines);
+		long paste = sw.getElapsedTimeMilli();
+		check(size, list);
+
+		System.out.println("BlockList: delete 10M lines " + delete + " ms, paste 10M lines " + paste + " ms");
+	}
+
+
+	private static void check(int expected, BlockList<?> list)
+	{
+		if(list.size() != expected)
+		{
+			throw new IllegalStateException("size=" + list.size() + " expected=" + expected);
+		}
+	}
+}
@@ -0,0 +1,74 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.internal;
+import goryachev.common.util.CList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/// Tests BlockList
+public class TestBlockList
+{
+	@Test
+	public void random()
+	{
+		Random r = new Random(1);
+		BlockList<Integer> list = new BlockList<>();
+		ArrayList<Integer> expected = new ArrayList<>();
+		int value = 0;
+		for(int i=0; i<5000; i++)
+		{
+			int sz = expected.size();
+			int ix = r.nextInt(sz + 1);
+			switch(r.nextInt(3))
+			{
+			case 0:
+				if(sz > 0)
+				{
+					int k = Math.min(sz - 1, ix);
+					list.set(k, value);
+					expected.set(k, value);
+					value++;
+				}
+				break;
+			default:
+				int count = r.nextInt(Math.min(600, sz - ix) + 1);
+				CList<Integer> items = new CList<>();
+				int n = r.nextInt(600);
+				for(int j=0; j<n; j++)
+				{
+					items.add(value++);
+				}
+				list.splice(ix, count, items);
+				expected.subList(ix, ix + count).clear();
+				expected.addAll(ix, items);
+				break;
+			}
+
+			Assertions.assertEquals(expected.size(), list.size());
+		}
+
+		for(int i=0; i<expected.size(); i++)
+		{
+			Assertions.assertEquals(expected.get(i), list.get(i));
+		}
+	}
+
+
+	@Test
+	public void copy()
+	{
+		BlockList<String> list = new BlockList<>();
+		list.splice(0, 0, List.of("a", "b", "c"));
+		BlockList<String> copy = list.copy();
+		list.set(1, "x");
+		list.splice(0, 1, List.of());
+		Assertions.assertEquals("x", list.get(0));
+		Assertions.assertEquals(2, list.size());
+		Assertions.assertEquals("b", copy.get(1));
+		Assertions.assertEquals(3, copy.size());
+	}
+
+}
@@ -0,0 +1,153 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.internal;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/// Tests BufferedParReader implementations
+public class TestBufferedParReader
+{
+	private static final Object NL = ParReader.NEWLINE;
+
+
+	@Test
+	public void nextToken() throws Exception
+	{
+		test("");
+		test("\n\r\r\n", NL, NL, NL);
+		test("aaaaaa\rbbb", "aaaaaa", NL, "bbb");
+		test("\n1\n\n2\n3\n\n\n", NL, "1", NL, NL, "2", NL, "3", NL, NL, NL);
+		test("1\n2\r3\r\n4", "1", NL, "2", NL, "3", NL, "4");
+		test("日本語\r\n", "日本語", NL);
+	}
+
+
+	@Test
+	public void bom() throws Exception
+	{
+		byte[] b = "﻿1\r\n2".getBytes(StandardCharsets.UTF_8);
+		Assertions.assertEquals(list("1", NL, "2"), read(ParReader.of(new ByteArrayInputStream(b), StandardCharsets.UTF_8)));
+	}
+
+
+	@Test
+	public void longText() throws Exception
+	{
+		// CR and LF straddling the buffer boundaries
+		StringBuilder sb = new StringBuilder();
+		ArrayList<Object> expected = new ArrayList<>();
+		for(int i=0; i<10_000; i++)
+		{
+			String s = "line " + i + "日本語".repeat(i % 17);
+			sb.append(s).append("\r\n");
+			expected.add(s);
+			expected.add(NL);
+		}
+		String text = sb.toString();
+
+		File f = File.createTempFile("TestBufferedParReader", ".txt");
+		try
+		{
+			Files.writeString(f.toPath(), text, StandardCharsets.UTF_8);
+			try(ParReader rd = ParReader.of(FileChannel.open(f.toPath(), StandardOpenOption.READ), StandardCharsets.UTF_8))
+			{
+				Assertions.assertEquals(expected, merge(read(rd)));
+			}
+		}
+		finally
+		{
+			f.delete();
+		}
+
+		try(ParReader rd = ParReader.of(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8))
+		{
+			Assertions.assertEquals(expected, merge(read(rd)));
+		}
+	}
+
+
+	private static void test(String text, Object ... expected) throws Exception
+	{
+		ArrayList<Object> exp = list(expected);
+		Assertions.assertEquals(exp, read(ParReader.of(text)));
+		Assertions.assertEquals(exp, read(ParReader.of(new StringReader(text))));
+		// one character at a time
+		Assertions.assertEquals(exp, merge(read(ParReader.of(new SlowReader(text)))));
+		Assertions.assertEquals(exp, read(ParReader.of(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8)));
+	}
+
+
+	private static ArrayList<Object> list(Object ... items)
+	{
+		ArrayList<Object> rv = new ArrayList<>();
+		for(Object x: items)
+		{
+			rv.add(x);
+		}
+		return rv;
+	}
+
+
+	private static ArrayList<Object> read(ParReader rd) throws IOException
+	{
+		try(rd)
+		{
+			ArrayList<Object> rv = new ArrayList<>();
+			Object x;
+			while((x = rd.nextToken()) != null)
+			{
+				rv.add(x);
+			}
+			return rv;
+		}
+	}
+
+
+	// merges consecutive String tokens
+	private static ArrayList<Object> merge(ArrayList<Object> tokens)
+	{
+		ArrayList<Object> rv = new ArrayList<>();
+		for(Object x: tokens)
+		{
+			int last = rv.size() - 1;
+			if((x instanceof String s) && (last >= 0) && (rv.get(last) instanceof String prev))
+			{
+				rv.set(last, prev + s);
+			}
+			else
+			{
+				rv.add(x);
+			}
+		}
+		return rv;
+	}
+
+
+	/// Returns one character at a time.
+	private static class SlowReader
+		extends FilterReader
+	{
+		public SlowReader(String text)
+		{
+			super(new StringReader(text));
+		}
+
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException
+		{
+			return super.read(cbuf, off, Math.min(1, len));
+		}
+	}
+}
@@ -0,0 +1,173 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.internal;
+import goryachev.codepad.TextPos;
+import goryachev.codepad.model.EditableCodeModel;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/// Tests CellCache
+public class TestCellCache
+{
+	@Test
+	public void hitsAndMisses() throws Exception
+	{
+		CellCache c = cache(model(100), 8);
+		WrapInfo wi = c.getWrapInfo(5);
+		Assertions.assertEquals(5, wi.getIndex());
+		Assertions.assertSame(wi, c.getWrapInfo(5));
+		Assertions.assertEquals(1, c.getHitCount());
+		Assertions.assertEquals(1, c.getMissCount());
+		Assertions.assertNull(c.getWrapInfo(100));
+	}
+
+
+	@Test
+	public void eviction() throws Exception
+	{
+		CellCache c = cache(model(100), 4);
+		WrapInfo w0 = c.getWrapInfo(0);
+		for(int i=1; i<4; i++)
+		{
+			c.getWrapInfo(i);
+		}
+		// 0 is referenced and gets a second chance
+		c.getWrapInfo(0);
+		c.getWrapInfo(4);
+		Assertions.assertEquals(4, c.size());
+		Assertions.assertEquals(1, c.getEvictionCount());
+		Assertions.assertSame(w0, c.getWrapInfo(0));
+
+		c.getWrapInfo(1);
+		Assertions.assertEquals(2, c.getEvictionCount());
+		Assertions.assertEquals(6, c.getMissCount());
+	}
+
+
+	@Test
+	public void invalidate() throws Exception
+	{
+		CellCache c = cache(model(100), 16);
+		for(int i=0; i<10; i++)
+		{
+			c.getWrapInfo(i);
+		}
+		c.invalidate(3, 5);
+		Assertions.assertEquals(7, c.size());
+		for(int i=0; i<10; i++)
+		{
+			Assertions.assertEquals(i, c.getWrapInfo(i).getIndex());
+		}
+		Assertions.assertEquals(10, c.size());
+		Assertions.assertEquals(13, c.getMissCount());
+		Assertions.assertEquals(0, c.getEvictionCount());
+	}
+
+
+	@Test
+	public void churn() throws Exception
+	{
+		EditableCodeModel m = model(1000);
+		CellCache c = cache(m, 50);
+		for(int i=0; i<10_000; i++)
+		{
+			int ix = (i * 7919) % 1000;
+			Assertions.assertEquals(ix, c.getWrapInfo(ix).getIndex());
+			if((i % 100) == 0)
+			{
+				c.invalidate(ix, ix + 10);
+			}
+		}
+		Assertions.assertTrue(c.size() <= 50);
+
+		c.ensureCapacity(200);
+		Assertions.assertTrue(c.size() <= 50);
+		for(int i=0; i<1000; i++)
+		{
+			Assertions.assertEquals(i, c.getWrapInfo(i).getIndex());
+		}
+		Assertions.assertEquals(200, c.size());
+	}
+
+
+	@Test
+	public void shift() throws Exception
+	{
+		EditableCodeModel m = model(100);
+		CellCache c = cache(m, 64);
+		for(int i=0; i<20; i++)
+		{
+			c.getWrapInfo(i);
+		}
+		WrapInfo w12 = c.getWrapInfo(12);
+
+		// join the lines 5..7
+		m.replace(new TextPos(5, 0), new TextPos(7, 0), "");
+		c.invalidate(5, 7);
+		c.shift(8, -2);
+		Assertions.assertEquals(17, c.size());
+		Assertions.assertSame(w12, c.getWrapInfo(10));
+		Assertions.assertEquals(10, w12.getIndex());
+		Assertions.assertEquals(new TextPos(10, 2), w12.atCell(2));
+
+		// insert two lines at 3
+		m.replace(new TextPos(3, 0), new TextPos(3, 0), "a\nb\n");
+		c.invalidate(3, 3);
+		c.shift(4, 2);
+		Assertions.assertSame(w12, c.getWrapInfo(12));
+
+		long misses = c.getMissCount();
+		for(int i=0; i<m.size(); i++)
+		{
+			WrapInfo wi = c.getWrapInfo(i);
+			Assertions.assertEquals(i, wi.getIndex());
+			Assertions.assertEquals(new TextPos(i, m.getPlainText(i).length()), wi.atEnd());
+		}
+		// only the changed paragraphs 3, 4, 5, 7 and the ones never cached are created
+		Assertions.assertEquals(misses + 4 + (m.size() - 20), c.getMissCount());
+	}
+
+
+	@Test
+	public void put() throws Exception
+	{
+		EditableCodeModel m = model(10);
+		CellCache c = cache(m, 16);
+		int gen = c.getGeneration();
+		WrapInfo wi = WrapInfo.create(m.decorateConcurrently(3, m.getPlainText(3)), 4, -1, false);
+		c.put(gen, 3, wi);
+		Assertions.assertTrue(c.contains(3));
+		Assertions.assertSame(wi, c.getWrapInfo(3));
+		Assertions.assertEquals(0, c.getMissCount());
+
+		// stale
+		c.invalidate(5, 5);
+		c.put(gen, 4, wi);
+		Assertions.assertFalse(c.contains(4));
+	}
+
+
+	private static CellCache cache(EditableCodeModel m, int capacity)
+	{
+		CellCache c = new CellCache(capacity);
+		c.check(m, 4, -1, false);
+		return c;
+	}
+
+
+	private static EditableCodeModel model(int lines) throws Exception
+	{
+		StringBuilder sb = new StringBuilder();
+		for(int i=0; i<lines; i++)
+		{
+			if(i > 0)
+			{
+				sb.append('\n');
+			}
+			sb.append("line ").append(i);
+		}
+		EditableCodeModel m = new EditableCodeModel();
+		m.replace(TextPos.ZERO, TextPos.ZERO, sb.toString());
+		return m;
+	}
+}
@@ -0,0 +1,33 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.internal;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/// Tests GapBuffer
+public class TestGapBuffer
+{
+	@Test
+	public void random()
+	{
+		Random r = new Random(1);
+		StringBuilder expected = new StringBuilder("0123456789");
+		GapBuffer g = new GapBuffer(expected.toString());
+		for(int i=0; i<5000; i++)
+		{
+			int len = expected.length();
+			int start = r.nextInt(len + 1);
+			int end = start + r.nextInt(Math.min(5, len - start) + 1);
+			String s = "abcdefghijklmnopqrstuvwxyz".substring(0, r.nextInt(r.nextInt(10) == 0 ? 26 : 3));
+			expected.replace(start, end, s);
+			g.replace(start, end, s);
+
+			Assertions.assertEquals(expected.length(), g.length());
+			int a = r.nextInt(expected.length() + 1);
+			int b = a + r.nextInt(expected.length() - a + 1);
+			Assertions.assertEquals(expected.substring(a, b), g.substring(a, b));
+		}
+		Assertions.assertEquals(expected.toString(), g.toString());
+	}
+}
@@ -0,0 +1,95 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.internal;
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/// Tests IntervalTree
+public class TestIntervalTree
+{
+	@Test
+	public void query()
+	{
+		IntervalTree<String> t = new IntervalTree<>();
+		t.add(10, 20, "a");
+		t.add(5, 30, "b");
+		t.add(25, 25, "c");
+		t.add(40, 50, "d");
+
+		Assertions.assertEquals(list("b", "a"), query(t, 12, 18));
+		Assertions.assertEquals(list("b", "c"), query(t, 21, 26));
+		Assertions.assertEquals(list(), query(t, 31, 39));
+		Assertions.assertEquals(list("d"), query(t, 50, 60));
+
+		Assertions.assertTrue(t.remove(5, "b"));
+		Assertions.assertFalse(t.remove(5, "b"));
+		Assertions.assertEquals(list("a"), query(t, 12, 18));
+		Assertions.assertEquals(3, t.size());
+	}
+
+
+	@Test
+	public void random()
+	{
+		Random rnd = new Random(1);
+		IntervalTree<long[]> t = new IntervalTree<>();
+		ArrayList<long[]> all = new ArrayList<>();
+		for(int i=0; i<2000; i++)
+		{
+			long s = rnd.nextInt(10_000);
+			long[] v = { s, s + rnd.nextInt(100) };
+			t.add(v[0], v[1], v);
+			all.add(v);
+
+			if(rnd.nextInt(4) == 0)
+			{
+				long[] r = all.remove(rnd.nextInt(all.size()));
+				Assertions.assertTrue(t.remove(r[0], r));
+			}
+		}
+		Assertions.assertEquals(all.size(), t.size());
+
+		for(int i=0; i<200; i++)
+		{
+			long from = rnd.nextInt(10_000);
+			long to = from + rnd.nextInt(200);
+			int expected = 0;
+			for(long[] v: all)
+			{
+				if((v[0] <= to) && (v[1] >= from))
+				{
+					expected++;
+				}
+			}
+
+			ArrayList<long[]> found = new ArrayList<>();
+			t.query(from, to, found::add);
+			Assertions.assertEquals(expected, found.size());
+			for(int k=1; k<found.size(); k++)
+			{
+				Assertions.assertTrue(found.get(k - 1)[0] <= found.get(k)[0]);
+			}
+		}
+	}
+
+
+	private static ArrayList<String> list(String ... items)
+	{
+		ArrayList<String> rv = new ArrayList<>();
+		for(String s: items)
+		{
+			rv.add(s);
+		}
+		return rv;
+	}
+
+
+	private static ArrayList<String> query(IntervalTree<String> t, long from, long to)
+	{
+		ArrayList<String> rv = new ArrayList<>();
+		t.query(from, to, rv::add);
+		return rv;
+	}
+}
@@ -0,0 +1,200 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.internal;
+import goryachev.codepad.TextPos;
+import goryachev.codepad.model.CodeParagraph;
+import goryachev.codepad.model.CompactCodeModelContent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/// Tests WrapInfo
+public class TestWrapInfo
+{
+	// a=0, tab=1..3, b=4, c=5, tab=6..7, tab=8..11, d=12
+	private static final String TEXT = "a\tbc\t\td";
+
+
+	@Test
+	public void tabs()
+	{
+		WrapInfo wi = WrapInfo.create(par(TEXT), 4, 0);
+		Assertions.assertEquals(13, wi.getCellCount());
+		Assertions.assertEquals(1, wi.getRowCount());
+
+		Assertions.assertEquals(0, wi.cellIndexAtOffset(0));
+		Assertions.assertEquals(1, wi.cellIndexAtOffset(1));
+		Assertions.assertEquals(4, wi.cellIndexAtOffset(2));
+		Assertions.assertEquals(8, wi.cellIndexAtOffset(5));
+		Assertions.assertEquals(12, wi.cellIndexAtOffset(6));
+		Assertions.assertEquals(13, wi.cellIndexAtOffset(7));
+
+		Assertions.assertEquals("a", wi.getCellText(0));
+		Assertions.assertNull(wi.getCellText(1));
+		Assertions.assertNull(wi.getCellText(3));
+		Assertions.assertEquals("b", wi.getCellText(4));
+		Assertions.assertNull(wi.getCellText(11));
+		Assertions.assertEquals("d", wi.getCellText(12));
+
+		// within a tab: the nearest side
+		Assertions.assertEquals(new TextPos(0, 1), wi.atCell(2));
+		Assertions.assertEquals(new TextPos(0, 2), wi.atCell(3));
+		Assertions.assertEquals(new TextPos(0, 3), wi.atCell(5));
+		Assertions.assertEquals(new TextPos(0, 6), wi.atCell(12));
+		Assertions.assertEquals(new TextPos(0, 7), wi.atCell(20));
+
+		Assertions.assertEquals(4, wi.moveByCells(1, 1));
+		Assertions.assertEquals(1, wi.moveByCells(4, -1));
+		Assertions.assertEquals(6, wi.moveByCells(7, 0));
+		Assertions.assertEquals(-1, wi.moveByCells(0, -1));
+		Assertions.assertEquals(14, wi.moveByCells(13, 1));
+	}
+
+
+	@Test
+	public void wrappedTabs()
+	{
+		WrapInfo wi = WrapInfo.create(par(TEXT), 4, 5);
+		Assertions.assertEquals(3, wi.getRowCount());
+		Assertions.assertEquals(5, wi.getCellIndexAtRow(1));
+		Assertions.assertEquals(2, wi.getRowAtCellIndex(12));
+		Assertions.assertEquals(10, wi.nextRow(7));
+		Assertions.assertEquals(-1, wi.nextRow(12));
+	}
+
+
+	@Test
+	public void longLine()
+	{
+		StringBuilder sb = new StringBuilder();
+		for(int i=0; i<100_000; i++)
+		{
+			sb.append("\tx");
+		}
+		WrapInfo wi = WrapInfo.create(par(sb.toString()), 8, 0);
+		// each x is at the tab stop
+		Assertions.assertEquals(800_001, wi.getCellCount());
+		Assertions.assertEquals(8 * 50_000 + 8, wi.cellIndexAtOffset(100_001));
+		Assertions.assertEquals(new TextPos(0, 100_001), wi.atCell(8 * 50_000 + 8));
+		Assertions.assertEquals("x", wi.getCellText(800_000));
+	}
+
+
+	@Test
+	public void complex()
+	{
+		// wide, combining sequence, surrogate pair, tab
+		String text = "\u65e5e\u0301\ud83d\ude00\tx";
+		WrapInfo wi = WrapInfo.create(par(text), 4, 0);
+
+		// wide=0..1, combining=2, emoji=3..4, tab=5..7, x=8
+		Assertions.assertEquals(9, wi.getCellCount());
+		Assertions.assertEquals("\u65e5", wi.getCellText(0));
+		Assertions.assertEquals(2, wi.getCellSpan(0));
+		Assertions.assertNull(wi.getCellText(1));
+		Assertions.assertEquals("e\u0301", wi.getCellText(2));
+		Assertions.assertEquals("\ud83d\ude00", wi.getCellText(3));
+		Assertions.assertNull(wi.getCellText(5));
+		Assertions.assertEquals("x", wi.getCellText(8));
+
+		Assertions.assertEquals(2, wi.cellIndexAtOffset(1));
+		Assertions.assertEquals(2, wi.cellIndexAtOffset(2));
+		Assertions.assertEquals(3, wi.cellIndexAtOffset(3));
+		Assertions.assertEquals(5, wi.cellIndexAtOffset(5));
+		Assertions.assertEquals(8, wi.cellIndexAtOffset(6));
+
+		Assertions.assertEquals(new TextPos(0, 1), wi.atCell(2));
+		Assertions.assertEquals(new TextPos(0, 3), wi.atCell(3));
+		Assertions.assertEquals(new TextPos(0, 5), wi.atCell(4));
+		Assertions.assertEquals(new TextPos(0, 7), wi.atCell(9));
+
+		Assertions.assertEquals(2, wi.moveByCells(0, 1));
+		Assertions.assertEquals(3, wi.moveByCells(2, 1));
+		Assertions.assertEquals(5, wi.moveByCells(3, 1));
+		Assertions.assertEquals(0, wi.moveByCells(2, -1));
+	}
+
+
+	@Test
+	public void wideCharacterWraps()
+	{
+		WrapInfo wi = WrapInfo.create(par("ab\u65e5\u672c"), 4, 3);
+		// a=0, b=1, padding=2, wide=3..4, padding=5, wide=6..7
+		Assertions.assertEquals(8, wi.getCellCount());
+		Assertions.assertEquals(3, wi.getRowCount());
+		Assertions.assertNull(wi.getCellText(2));
+		Assertions.assertEquals("\u65e5", wi.getCellText(3));
+		Assertions.assertEquals(3, wi.cellIndexAtOffset(2));
+		Assertions.assertEquals(6, wi.cellIndexAtOffset(3));
+		Assertions.assertEquals(new TextPos(0, 2), wi.atCell(2));
+	}
+
+
+	@Test
+	public void simple()
+	{
+		// Latin-1 text uses the simple layout
+		WrapInfo wi = WrapInfo.create(par("caf\u00e9"), 4, 0);
+		Assertions.assertEquals(4, wi.getCellCount());
+		Assertions.assertEquals("SingleRow", wi.getClass().getSimpleName());
+	}
+	
+	
+	@Test
+	public void wordWrap()
+	{
+		WrapInfo wi = WrapInfo.create(par("hello world foo"), 4, 8, true);
+		Assertions.assertEquals(3, wi.getRowCount());
+		Assertions.assertEquals(6, wi.getCellIndexAtRow(1));
+		Assertions.assertEquals(12, wi.getCellIndexAtRow(2));
+		Assertions.assertEquals(1, wi.getRowAtCellIndex(11));
+		Assertions.assertEquals(12, wi.nextRow(6));
+		Assertions.assertEquals(-1, wi.nextRow(12));
+		Assertions.assertEquals(6, wi.getRowLength(0));
+		Assertions.assertEquals(3, wi.getRowLength(12));
+		
+		// fits, no wrapping
+		wi = WrapInfo.create(par("hello"), 4, 8, true);
+		Assertions.assertEquals(1, wi.getRowCount());
+	}
+	
+	
+	@Test
+	public void wordWrapPunctuation()
+	{
+		WrapInfo wi = WrapInfo.create(par("foo.bar(baz)"), 4, 6, true);
+		Assertions.assertEquals(3, wi.getRowCount());
+		Assertions.assertEquals(4, wi.getCellIndexAtRow(1));
+		Assertions.assertEquals(8, wi.getCellIndexAtRow(2));
+	}
+	
+	
+	@Test
+	public void wordWrapLongWord()
+	{
+		WrapInfo wi = WrapInfo.create(par("ab abcdefghij"), 4, 4, true);
+		// ab_=0..2, abcd=3..6, efgh=7..10, ij=11..12
+		Assertions.assertEquals(4, wi.getRowCount());
+		Assertions.assertEquals(3, wi.getCellIndexAtRow(1));
+		Assertions.assertEquals(7, wi.getCellIndexAtRow(2));
+		Assertions.assertEquals(11, wi.getCellIndexAtRow(3));
+		Assertions.assertEquals(new TextPos(0, 7), wi.atCell(7));
+	}
+	
+	
+	@Test
+	public void wordWrapComplex()
+	{
+		// wide=0..1, wide=2..3, space=4, wide=5..6, wide=7..8
+		WrapInfo wi = WrapInfo.create(par("\u65e5\u672c \u65e5\u672c"), 4, 5, true);
+		Assertions.assertEquals(9, wi.getCellCount());
+		Assertions.assertEquals(2, wi.getRowCount());
+		Assertions.assertEquals(5, wi.getCellIndexAtRow(1));
+		Assertions.assertEquals("\u65e5", wi.getCellText(5));
+	}
+
+
+	private static CodeParagraph par(String text)
+	{
+		return CompactCodeModelContent.of(null, text).getParagraph(0);
+	}
+}
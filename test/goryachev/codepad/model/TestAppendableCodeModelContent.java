@@ -0,0 +1,50 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.model;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/// Tests AppendableCodeModelContent
+public class TestAppendableCodeModelContent
+{
+	@Test
+	public void appendLines()
+	{
+		test("");
+		test("1", "1");
+		test("1\n", "1");
+		test("1\r\n2\r3\n\n4", "1", "2", "3", "", "4");
+		test("\n\n", "", "");
+	}
+	
+	
+	@Test
+	public void publish()
+	{
+		AppendableCodeModelContent c = new AppendableCodeModelContent();
+		for(int i=0; i<10_000; i++)
+		{
+			c.appendLine(String.valueOf(i));
+		}
+		Assertions.assertEquals(0, c.size());
+		
+		Assertions.assertEquals(0, c.publish());
+		Assertions.assertEquals(10_000, c.size());
+		Assertions.assertEquals("9999", c.getPlainText(9999));
+	}
+
+
+	private static void test(String text, String ... expected)
+	{
+		AppendableCodeModelContent c = new AppendableCodeModelContent();
+		c.appendLines(text);
+		c.publish();
+		int sz = c.size();
+		String[] result = new String[sz];
+		for(int i=0; i<sz; i++)
+		{
+			result[i] = c.getPlainText(i);
+		}
+		Assertions.assertArrayEquals(expected, result);
+	}
+}
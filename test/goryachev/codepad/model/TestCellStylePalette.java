@@ -0,0 +1,81 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.model;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/// Tests CellStylePalette
+public class TestCellStylePalette
+{
+	@Test
+	public void interning()
+	{
+		CellStyle a = CellStyle.builder().bold().textColor(Color.RED).build();
+		CellStyle b = CellStyle.builder().textColor(Color.rgb(255, 0, 0)).bold().build();
+		CellStyle c = CellStyle.builder().bold().build();
+
+		Assertions.assertSame(a, b);
+		Assertions.assertNotSame(a, c);
+		Assertions.assertNotEquals(CellStylePalette.idOf(a), CellStylePalette.idOf(c));
+		Assertions.assertSame(a, CellStylePalette.get(CellStylePalette.idOf(a)));
+		Assertions.assertTrue(CellStylePalette.idOf(a) < CellStylePalette.size());
+
+		Assertions.assertEquals(0, CellStylePalette.idOf(null));
+		Assertions.assertEquals(0, CellStylePalette.idOf(CellStyle.EMPTY));
+		Assertions.assertSame(CellStyle.EMPTY, CellStyle.builder().build());
+	}
+
+
+	@Test
+	public void foreignStyle()
+	{
+		CellStyle italic = CellStyle.builder().italic().build();
+		CellStyle custom = new CellStyle()
+		{
+			@Override
+			public Color getTextColor()
+			{
+				return null;
+			}
+
+
+			@Override
+			public Color getBackgroundColor()
+			{
+				return null;
+			}
+
+
+			@Override
+			public boolean isUnderline()
+			{
+				return false;
+			}
+
+
+			@Override
+			public boolean isStrikeThrough()
+			{
+				return false;
+			}
+
+
+			@Override
+			public boolean isBold()
+			{
+				return false;
+			}
+
+
+			@Override
+			public boolean isItalic()
+			{
+				return true;
+			}
+		};
+
+		Assertions.assertSame(italic, CellStylePalette.intern(custom));
+		Assertions.assertEquals(CellStylePalette.idOf(italic), CellStylePalette.idOf(custom));
+	}
+}
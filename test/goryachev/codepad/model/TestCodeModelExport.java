@@ -0,0 +1,86 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.model;
+import goryachev.codepad.TextPos;
+import goryachev.fx.LineEnding;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/// Tests CodeModel export
+public class TestCodeModelExport
+{
+	@Test
+	public void consumer()
+	{
+		CodeModel m = model("11\n22\n33");
+		Assertions.assertEquals("11\r\n22\r\n33", export(m, TextPos.ZERO, new TextPos(2, 2), LineEnding.CRLF));
+		Assertions.assertEquals("1\n22\n3", export(m, new TextPos(0, 1), new TextPos(2, 1), LineEnding.LF));
+		Assertions.assertEquals("2\r3", export(m, new TextPos(2, 1), new TextPos(1, 1), LineEnding.CR));
+		Assertions.assertEquals("", export(m, new TextPos(1, 1), new TextPos(1, 1), LineEnding.CR));
+	}
+
+
+	@Test
+	public void earlyStop()
+	{
+		CodeModel m = model("11\n22\n33");
+		int[] count = new int[1];
+		m.export(TextPos.ZERO, m.getDocumentEnd(), LineEnding.LF, (s) ->
+		{
+			count[0]++;
+			return false;
+		});
+		Assertions.assertEquals(1, count[0]);
+	}
+
+
+	@Test
+	public void longParagraph() throws Exception
+	{
+		String s = "日本語".repeat(100_000);
+		CodeModel m = model(s + "\n" + s);
+		String expected = s + "\r\n" + s;
+
+		StringWriter wr = new StringWriter();
+		m.export(TextPos.ZERO, m.getDocumentEnd(), LineEnding.CRLF, wr);
+		Assertions.assertEquals(expected, wr.toString());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		m.export(TextPos.ZERO, m.getDocumentEnd(), LineEnding.CRLF, StandardCharsets.UTF_8, Channels.newChannel(out));
+		Assertions.assertEquals(expected, out.toString(StandardCharsets.UTF_8));
+	}
+
+
+	@Test
+	public void surrogatePairAtChunkBoundary() throws Exception
+	{
+		String s = "x".repeat(65535) + "\ud83d\ude00" + "tail";
+		CodeModel m = model(s);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		m.export(TextPos.ZERO, m.getDocumentEnd(), LineEnding.LF, StandardCharsets.UTF_8, Channels.newChannel(out));
+		Assertions.assertEquals(s, out.toString(StandardCharsets.UTF_8));
+	}
+
+
+	private static CodeModel model(String text)
+	{
+		return new CodeModel(new PieceTableCodeModelContent(text));
+	}
+
+
+	private static String export(CodeModel m, TextPos start, TextPos end, LineEnding le)
+	{
+		StringBuilder sb = new StringBuilder();
+		m.export(start, end, le, (s) ->
+		{
+			sb.append(s);
+			return true;
+		});
+		return sb.toString();
+	}
+}
@@ -0,0 +1,56 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.model;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/// Tests CompactCodeModelContent
+public class TestCompactCodeModelContent
+{
+	@Test
+	public void paragraphs()
+	{
+		test("");
+		test("", "");
+		test("ascii", "", "Latin-1 ©àé", "日本語", "mixed ascii and 日本語");
+		test("a".repeat(2_000_000), "short", "b".repeat(1_500_000), "日本語".repeat(500_000), "end");
+	}
+
+
+	@Test
+	public void manyLines()
+	{
+		int count = 1_000_000;
+		CompactCodeModelContent.Builder b = new CompactCodeModelContent.Builder(null);
+		for(int i=0; i<count; i++)
+		{
+			b.addLine("line " + i);
+		}
+		CompactCodeModelContent c = b.build();
+
+		Assertions.assertEquals(count, c.size());
+		for(int i=0; i<count; i+=997)
+		{
+			Assertions.assertEquals("line " + i, c.getPlainText(i));
+		}
+		Assertions.assertEquals("line " + (count - 1), c.getPlainText(count - 1));
+	}
+
+
+	private static void test(String ... lines)
+	{
+		CompactCodeModelContent.Builder b = new CompactCodeModelContent.Builder(null);
+		for(String s: lines)
+		{
+			b.addLine(s);
+		}
+		CompactCodeModelContent c = b.build();
+
+		Assertions.assertEquals(lines.length, c.size());
+		for(int i=0; i<lines.length; i++)
+		{
+			Assertions.assertEquals(lines[i], c.getPlainText(i));
+			Assertions.assertEquals(lines[i].length(), c.getParagraphLength(i));
+		}
+	}
+}
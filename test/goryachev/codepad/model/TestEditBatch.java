@@ -0,0 +1,161 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.model;
+import goryachev.codepad.TextPos;
+import goryachev.common.util.CList;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/// Tests EditBatch
+public class TestEditBatch
+{
+	@Test
+	public void replaceAll() throws Exception
+	{
+		EditableCodeModel m = new EditableCodeModel();
+		m.replace(TextPos.ZERO, TextPos.ZERO, "a.b.c\n.d.\ne");
+		CList<ContentChange> changes = listen(m);
+
+		m.edit((b) ->
+		{
+			for(int ix=0; ix<m.size(); ix++)
+			{
+				String s = m.getPlainText(ix);
+				for(int off=s.length()-1; off>=0; off--)
+				{
+					if(s.charAt(off) == '.')
+					{
+						b.replace(new TextPos(ix, off), new TextPos(ix, off + 1), "::");
+					}
+				}
+			}
+		});
+
+		check(m, "a::b::c", "::d::", "e");
+		Assertions.assertEquals(1, changes.size());
+		ContentChange ch = changes.get(0);
+		Assertions.assertEquals(new TextPos(0, 1), ch.getStart());
+		Assertions.assertEquals(new TextPos(1, 3), ch.getEnd());
+		Assertions.assertEquals(new TextPos(1, 5), ch.getNewEnd());
+
+		m.undo();
+		check(m, "a.b.c", ".d.", "e");
+		Assertions.assertEquals(2, changes.size());
+		m.redo();
+		check(m, "a::b::c", "::d::", "e");
+		Assertions.assertEquals(3, changes.size());
+		m.undo();
+		check(m, "a.b.c", ".d.", "e");
+	}
+
+
+	@Test
+	public void randomMerge() throws Exception
+	{
+		Random r = new Random(1);
+		for(int iter=0; iter<200; iter++)
+		{
+			EditableCodeModel m = new EditableCodeModel();
+			m.replace(TextPos.ZERO, TextPos.ZERO, "0123\n4567\n89ab\ncdef\nghij");
+			String before = text(m);
+			CList<ContentChange> changes = listen(m);
+
+			m.edit((b) ->
+			{
+				int n = 1 + r.nextInt(5);
+				for(int i=0; i<n; i++)
+				{
+					TextPos p1 = random(r, m);
+					TextPos p2 = random(r, m);
+					String s = switch(r.nextInt(3))
+					{
+					case 0 -> "";
+					case 1 -> "x\ny";
+					default -> "z";
+					};
+					b.replace(p1, p2, s);
+				}
+			});
+
+			String after = text(m);
+			Assertions.assertEquals(1, changes.size());
+			ContentChange ch = changes.get(0);
+			// the text outside of the reported range is unchanged
+			String head = before.substring(0, offset(before, ch.getStart()));
+			Assertions.assertEquals(head, after.substring(0, head.length()));
+			String tail = before.substring(offset(before, ch.getEnd()));
+			Assertions.assertEquals(tail, after.substring(offset(after, ch.getNewEnd())));
+
+			m.undo();
+			Assertions.assertEquals(before, text(m));
+		}
+	}
+
+
+	private static TextPos random(Random r, CodeModel m)
+	{
+		int ix = r.nextInt(m.size());
+		return new TextPos(ix, r.nextInt(m.getParagraphLength(ix) + 1));
+	}
+
+
+	private static int offset(String text, TextPos p)
+	{
+		int off = 0;
+		for(int i=0; i<p.index(); i++)
+		{
+			off = text.indexOf('\n', off) + 1;
+		}
+		return off + p.offset();
+	}
+
+
+	private static CList<ContentChange> listen(CodeModel m)
+	{
+		CList<ContentChange> changes = new CList<>();
+		m.addListener(new ChangeListener()
+		{
+			@Override
+			public void onContentChange()
+			{
+				Assertions.fail();
+			}
+
+
+			@Override
+			public void onContentChange(ContentChange ch)
+			{
+				changes.add(ch);
+			}
+		});
+		return changes;
+	}
+
+
+	private static String text(CodeModel m)
+	{
+		StringBuilder sb = new StringBuilder();
+		for(int i=0; i<m.size(); i++)
+		{
+			if(i > 0)
+			{
+				sb.append('\n');
+			}
+			sb.append(m.getPlainText(i));
+		}
+		return sb.toString();
+	}
+
+
+	private static void check(CodeModel m, String ... expected)
+	{
+		int sz = m.size();
+		String[] rv = new String[sz];
+		for(int i=0; i<sz; i++)
+		{
+			rv[i] = m.getPlainText(i);
+		}
+		Assertions.assertArrayEquals(expected, rv);
+	}
+}
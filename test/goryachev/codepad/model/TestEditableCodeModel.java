@@ -2,6 +2,7 @@
 package goryachev.codepad.model;
 import goryachev.codepad.TextPos;
 import goryachev.codepad.internal.ParReader;
+import java.io.StringReader;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -23,9 +24,80 @@ public class TestEditableCodeModel
 	@Test
 	public void replaceMultiLine() throws Exception
 	{
-		// FIX
-		//test("11\n22", 0, 0, 1, 99, "", "");
-		test("11\n22\n33", 0, 1, 2, 1, "", "1", "3");
+		test("11\n22", 0, 0, 1, 99, "", "");
+		test("11\n22\n33", 0, 1, 2, 1, "", "13");
+		test("11\n22\n33", 0, 1, 2, 1, "a\nb", "1a", "b3");
+		test("11\n22", 1, 0, 1, 0, "x\n", "11", "x", "22");
+	}
+	
+	
+	@Test
+	public void longParagraph() throws Exception
+	{
+		String s = "x".repeat(100_000);
+		EditableCodeModel m = new EditableCodeModel();
+		m.replace(TextPos.ZERO, TextPos.ZERO, s);
+		TextPos p = new TextPos(0, 50_000);
+		for(int i=0; i<1000; i++)
+		{
+			p = m.replace(p, p, "a");
+		}
+		m.replace(new TextPos(0, 0), new TextPos(0, 1), "");
+		Assertions.assertEquals(100_999, m.getParagraphLength(0));
+		Assertions.assertEquals("x".repeat(49_999) + "a".repeat(1000) + "x".repeat(50_000), m.getPlainText(0));
+		
+		m.replace(new TextPos(0, 49_999), new TextPos(0, 50_999), "\n");
+		Assertions.assertArrayEquals(new String[] { "x".repeat(49_999), "x".repeat(50_000) }, toArray(m));
+	}
+	
+	
+	@Test
+	public void changeEvent() throws Exception
+	{
+		EditableCodeModel m = new EditableCodeModel();
+		m.replace(TextPos.ZERO, TextPos.ZERO, "11\n22\n33\n44");
+		ContentChange[] result = new ContentChange[1];
+		m.addListener(new ChangeListener()
+		{
+			@Override
+			public void onContentChange()
+			{
+				Assertions.fail();
+			}
+
+
+			@Override
+			public void onContentChange(ContentChange ch)
+			{
+				result[0] = ch;
+			}
+		});
+		
+		m.replace(new TextPos(1, 1), new TextPos(2, 1), "a\nb\nc");
+		ContentChange ch = result[0];
+		Assertions.assertEquals(new TextPos(1, 1), ch.getStart());
+		Assertions.assertEquals(new TextPos(2, 1), ch.getEnd());
+		Assertions.assertEquals(new TextPos(3, 1), ch.getNewEnd());
+		Assertions.assertEquals(1, ch.getLinesRemoved());
+		Assertions.assertEquals(2, ch.getLinesAdded());
+		Assertions.assertEquals(1, ch.getDelta());
+	}
+	
+	
+	@Test
+	public void replaceFromReader() throws Exception
+	{
+		EditableCodeModel m = new EditableCodeModel();
+		m.replace(TextPos.ZERO, TextPos.ZERO, "11\n22");
+		try(ParReader rd = ParReader.of(new StringReader("a\r\nb\rc")))
+		{
+			TextPos p = m.replace(new TextPos(0, 1), new TextPos(1, 1), rd);
+			Assertions.assertEquals(new TextPos(2, 1), p);
+		}
+		Assertions.assertArrayEquals(new String[] { "1a", "b", "c2" }, toArray(m));
+		
+		m.undo();
+		Assertions.assertArrayEquals(new String[] { "11", "22" }, toArray(m));
 	}
 	
 	
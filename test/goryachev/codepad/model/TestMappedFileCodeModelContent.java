@@ -0,0 +1,47 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.model;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/// Tests MappedFileCodeModelContent
+public class TestMappedFileCodeModelContent
+{
+	@Test
+	public void paragraphs() throws Exception
+	{
+		test("", "");
+		test("1", "1");
+		test("1\n", "1", "");
+		test("1\r\n2\r3\n\n4", "1", "2", "3", "", "4");
+		test("\r\r\n\n", "", "", "", "");
+		test("\ufeffBOM\n日本語", "BOM", "日本語");
+	}
+
+
+	private static void test(String text, String ... expected) throws Exception
+	{
+		File f = File.createTempFile("TestMappedFileCodeModelContent", ".txt");
+		try
+		{
+			Files.writeString(f.toPath(), text, StandardCharsets.UTF_8);
+			try(MappedFileCodeModelContent c = MappedFileCodeModelContent.open(f, null, null))
+			{
+				int sz = c.size();
+				String[] result = new String[sz];
+				for(int i=0; i<sz; i++)
+				{
+					result[i] = c.getPlainText(i);
+				}
+				Assertions.assertArrayEquals(expected, result);
+			}
+		}
+		finally
+		{
+			f.delete();
+		}
+	}
+}
@@ -0,0 +1,122 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.model;
+import goryachev.codepad.TextPos;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/// Tests PieceTableCodeModelContent
+public class TestPieceTableCodeModelContent
+{
+	@Test
+	public void initial()
+	{
+		check(new PieceTableCodeModelContent(""), "");
+		check(new PieceTableCodeModelContent("1"), "1");
+		check(new PieceTableCodeModelContent("1\n"), "1", "");
+		check(new PieceTableCodeModelContent("1\r\n2\r3\n\n4"), "1", "2", "3", "", "4");
+	}
+	
+	
+	@Test
+	public void replace() throws Exception
+	{
+		test("123", 0, 0, 0, 3, "", "");
+		test("123", 0, 1, 0, 2, "", "13");
+		test("12345", 0, 0, 0, 2, "", "345");
+		test("11\n22\n33", 0, 1, 2, 1, "", "13");
+		test("11\n22\n33", 0, 1, 2, 1, "a\nb", "1a", "b3");
+		test("11\n22", 1, 0, 1, 0, "x\n", "11", "x", "22");
+		test("11\n22", 0, 2, 1, 0, "", "1122");
+		test("", 0, 0, 0, 0, "a\r\nb\rc", "a", "b", "c");
+	}
+	
+	
+	@Test
+	public void typing() throws Exception
+	{
+		PieceTableCodeModelContent c = new PieceTableCodeModelContent("start\nend");
+		TextPos p = new TextPos(0, 5);
+		for(int i=0; i<1000; i++)
+		{
+			p = c.replace(p, p, (i % 10 == 9) ? "\n" : "x", false).getNewEnd();
+		}
+		Assertions.assertEquals(3, c.getPieceCount());
+		Assertions.assertEquals(102, c.size());
+		Assertions.assertEquals("startxxxxxxxxx", c.getPlainText(0));
+		Assertions.assertEquals("end", c.getPlainText(101));
+	}
+	
+	
+	@Test
+	public void random() throws Exception
+	{
+		Random r = new Random(1);
+		PieceTableCodeModelContent c = new PieceTableCodeModelContent("");
+		String expected = "";
+		for(int i=0; i<2000; i++)
+		{
+			String[] lines = expected.split("\n", -1);
+			int ix1 = r.nextInt(lines.length);
+			int ix2 = ix1 + r.nextInt(Math.min(3, lines.length - ix1));
+			TextPos p1 = new TextPos(ix1, r.nextInt(lines[ix1].length() + 1));
+			TextPos p2 = new TextPos(ix2, r.nextInt(lines[ix2].length() + 1));
+			if(p1.compareTo(p2) > 0)
+			{
+				TextPos t = p1;
+				p1 = p2;
+				p2 = t;
+			}
+			String s = switch(r.nextInt(4))
+			{
+			case 0 -> "";
+			case 1 -> "\n";
+			case 2 -> "ab\ncd";
+			default -> "xyz";
+			};
+			
+			int start = offset(lines, p1);
+			expected = expected.substring(0, start) + s + expected.substring(offset(lines, p2));
+			c.replace(p1, p2, s, false);
+			check(c, expected.split("\n", -1));
+		}
+	}
+	
+	
+	private static int offset(String[] lines, TextPos p)
+	{
+		int off = 0;
+		for(int i=0; i<p.index(); i++)
+		{
+			off += lines[i].length() + 1;
+		}
+		return off + p.offset();
+	}
+
+
+	private static void test(String initialText, int ix1, int off1, int ix2, int off2, String replace, String ... expected) throws Exception
+	{
+		PieceTableCodeModelContent c = new PieceTableCodeModelContent(initialText);
+		c.replace(new TextPos(ix1, off1), new TextPos(ix2, off2), replace, false);
+		check(c, expected);
+	}
+	
+	
+	private static void check(CodeModelContent c, String ... expected)
+	{
+		Assertions.assertArrayEquals(expected, toArray(c));
+	}
+	
+	
+	private static String[] toArray(CodeModelContent c)
+	{
+		int sz = c.size();
+		String[] rv = new String[sz];
+		for(int i=0; i<sz; i++)
+		{
+			rv[i] = c.getPlainText(i);
+		}
+		return rv;
+	}
+}
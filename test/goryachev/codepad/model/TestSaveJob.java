@@ -0,0 +1,186 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.model;
+import goryachev.codepad.TextPos;
+import goryachev.common.util.CancelledException;
+import goryachev.fx.LineEnding;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+
+/// Tests snapshots and SaveJob
+public class TestSaveJob
+{
+	@Test
+	public void snapshot() throws Exception
+	{
+		String longLine = "x".repeat(10_000);
+		for(CodeModel m: models(longLine + "\n22\n33"))
+		{
+			m.replace(new TextPos(0, 1), new TextPos(0, 1), "a");
+			TextSnapshot s1 = m.snapshot();
+			String expected = "x" + "a" + longLine.substring(1);
+			Assertions.assertEquals(expected, s1.getPlainText(0));
+
+			// edits after the snapshot, including the in-place long line edit
+			m.replace(new TextPos(0, 2), new TextPos(0, 2), "b");
+			m.replace(new TextPos(1, 0), new TextPos(2, 1), "c\nd\ne");
+			TextSnapshot s2 = m.snapshot();
+			m.replace(new TextPos(0, 0), new TextPos(0, 5), "");
+
+			Assertions.assertEquals(3, s1.size());
+			Assertions.assertEquals(expected, s1.getPlainText(0));
+			Assertions.assertEquals("22", s1.getPlainText(1));
+			Assertions.assertEquals("33", s1.getPlainText(2));
+
+			Assertions.assertEquals(4, s2.size());
+			Assertions.assertEquals("xab" + longLine.substring(1), s2.getPlainText(0));
+			Assertions.assertEquals("c", s2.getPlainText(1));
+			Assertions.assertEquals("e3", s2.getPlainText(3));
+		}
+	}
+
+
+	@Test
+	public void save() throws Exception
+	{
+		File dir = Files.createTempDirectory("TestSaveJob").toFile();
+		File f = new File(dir, "test.txt");
+		try
+		{
+			Files.writeString(f.toPath(), "old");
+			String s = "日本語".repeat(100_000);
+			CodeModel m = new CodeModel(new PieceTableCodeModelContent(s + "\n\n" + s));
+
+			SaveJob j = m.save(f, StandardCharsets.UTF_8, LineEnding.CRLF, null);
+			// modifying the model does not affect the job
+			m.replace(TextPos.ZERO, m.getDocumentEnd(), "");
+			j.waitForCompletion();
+
+			Assertions.assertTrue(j.isDone());
+			Assertions.assertEquals(1.0, j.getProgress().getProgress());
+			Assertions.assertEquals(s + "\r\n\r\n" + s, Files.readString(f.toPath(), StandardCharsets.UTF_8));
+			Assertions.assertArrayEquals(new String[] { "test.txt" }, dir.list());
+		}
+		finally
+		{
+			for(File x: dir.listFiles())
+			{
+				x.delete();
+			}
+			dir.delete();
+		}
+	}
+
+
+	@Test
+	public void preservePermissions() throws Exception
+	{
+		File dir = Files.createTempDirectory("TestSaveJob").toFile();
+		File f = new File(dir, "test.txt");
+		try
+		{
+			Files.writeString(f.toPath(), "old");
+			PosixFileAttributeView v = Files.getFileAttributeView(f.toPath(), PosixFileAttributeView.class);
+			Assumptions.assumeTrue(v != null, "POSIX file attributes are not supported");
+
+			Set<PosixFilePermission> perms = PosixFilePermissions.fromString("rwxr-xr--");
+			v.setPermissions(perms);
+
+			CodeModel m = new CodeModel(new PieceTableCodeModelContent("new"));
+			SaveJob j = m.save(f, StandardCharsets.UTF_8, LineEnding.LF, null);
+			j.waitForCompletion();
+
+			Assertions.assertEquals("new", Files.readString(f.toPath(), StandardCharsets.UTF_8));
+			Assertions.assertEquals(perms, Files.getPosixFilePermissions(f.toPath()));
+		}
+		finally
+		{
+			for(File x: dir.listFiles())
+			{
+				x.delete();
+			}
+			dir.delete();
+		}
+	}
+
+
+	@Test
+	public void symbolicLink() throws Exception
+	{
+		File dir = Files.createTempDirectory("TestSaveJob").toFile();
+		File f = new File(dir, "test.txt");
+		File link = new File(dir, "link.txt");
+		try
+		{
+			Files.writeString(f.toPath(), "old");
+			try
+			{
+				Files.createSymbolicLink(link.toPath(), f.toPath());
+			}
+			catch(UnsupportedOperationException | IOException e)
+			{
+				Assumptions.abort("symbolic links are not supported");
+			}
+
+			CodeModel m = new CodeModel(new PieceTableCodeModelContent("new"));
+			SaveJob j = m.save(link, StandardCharsets.UTF_8, LineEnding.LF, null);
+			j.waitForCompletion();
+
+			Assertions.assertTrue(Files.isSymbolicLink(link.toPath()));
+			Assertions.assertEquals("new", Files.readString(f.toPath(), StandardCharsets.UTF_8));
+			Assertions.assertEquals(2, dir.listFiles().length);
+		}
+		finally
+		{
+			for(File x: dir.listFiles())
+			{
+				x.delete();
+			}
+			dir.delete();
+		}
+	}
+
+
+	@Test
+	public void cancel() throws Exception
+	{
+		File dir = Files.createTempDirectory("TestSaveJob").toFile();
+		File f = new File(dir, "test.txt");
+		try
+		{
+			CodeModel m = new CodeModel(new PieceTableCodeModelContent("1\n2"));
+			SaveJob j = new SaveJob(m.snapshot(), f, StandardCharsets.UTF_8, LineEnding.LF, null);
+			j.cancel();
+			j.run();
+
+			Assertions.assertTrue(j.isDone());
+			Assertions.assertTrue(CancelledException.is(j.getJobError()));
+			Assertions.assertEquals(0, dir.list().length);
+		}
+		finally
+		{
+			dir.delete();
+		}
+	}
+
+
+	private static CodeModel[] models(String text) throws Exception
+	{
+		EditableCodeModel ed = new EditableCodeModel();
+		ed.replace(TextPos.ZERO, TextPos.ZERO, text);
+		return new CodeModel[]
+		{
+			ed,
+			new EditableCodeModel(new PieceTableCodeModelContent(text))
+		};
+	}
+}
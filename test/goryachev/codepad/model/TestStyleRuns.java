@@ -0,0 +1,145 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.model;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/// Tests StyleRuns and CodeParagraph.getStyleRunEnd()
+public class TestStyleRuns
+{
+	private static final CellStyle A = CellStyle.builder().bold().build();
+	private static final CellStyle B = CellStyle.builder().italic().build();
+
+
+	@Test
+	public void runs()
+	{
+		StyleRuns.Builder b = new StyleRuns.Builder();
+		b.add(2, 4, A);
+		b.add(4, 6, A);
+		b.add(6, 6, B);
+		b.add(8, 10, B);
+		b.add(10, 12, null);
+		StyleRuns r = b.build();
+
+		// adjacent runs with the same style are merged
+		Assertions.assertEquals(2, r.getRunCount());
+		Assertions.assertEquals(2, r.getRunStart(0));
+		Assertions.assertEquals(6, r.getRunEnd(0));
+
+		Assertions.assertNull(r.getStyle(0));
+		Assertions.assertEquals(A, r.getStyle(2));
+		Assertions.assertEquals(A, r.getStyle(5));
+		Assertions.assertNull(r.getStyle(6));
+		Assertions.assertEquals(B, r.getStyle(9));
+		Assertions.assertNull(r.getStyle(10));
+
+		Assertions.assertEquals(2, r.getStyleRunEnd(0));
+		Assertions.assertEquals(6, r.getStyleRunEnd(3));
+		Assertions.assertEquals(8, r.getStyleRunEnd(6));
+		Assertions.assertEquals(10, r.getStyleRunEnd(8));
+		Assertions.assertEquals(Integer.MAX_VALUE, r.getStyleRunEnd(10));
+
+		Assertions.assertSame(StyleRuns.EMPTY, new StyleRuns.Builder().build());
+	}
+
+
+	@Test
+	public void notInterned()
+	{
+		CellStyle x = CellStylePalette.notInterned(Color.RED, null, true, false, false, false);
+		CellStyle y = CellStylePalette.notInterned(Color.RED, null, true, false, false, false);
+		CellStyle z = CellStylePalette.notInterned(Color.BLUE, null, false, false, false, false);
+		Assertions.assertEquals(CellStylePalette.NOT_INTERNED, CellStylePalette.idOf(x));
+
+		StyleRuns.Builder b = new StyleRuns.Builder();
+		b.add(0, 2, x);
+		b.add(2, 4, y);
+		b.add(4, 6, A);
+		b.add(6, 8, z);
+		StyleRuns r = b.build();
+
+		Assertions.assertEquals(3, r.getRunCount());
+		Assertions.assertSame(x, r.getStyle(3));
+		Assertions.assertSame(A, r.getStyle(5));
+		Assertions.assertSame(z, r.getRunStyle(2));
+		Assertions.assertEquals(CellStylePalette.NOT_INTERNED, r.getRunStyleId(0));
+		Assertions.assertEquals(CellStylePalette.idOf(A), r.getRunStyleId(1));
+	}
+
+
+	@Test
+	public void defaultRunEnd()
+	{
+		StyleRuns r = new StyleRuns.Builder().add(1, 3, A).build();
+		CodeParagraph p = new CodeParagraph()
+		{
+			@Override
+			public int getIndex()
+			{
+				return 0;
+			}
+
+
+			@Override
+			public Color getBackgroundColor()
+			{
+				return null;
+			}
+
+
+			@Override
+			public String getPlainText()
+			{
+				return "abcde";
+			}
+
+
+			@Override
+			public int getTextLength()
+			{
+				return 5;
+			}
+
+
+			@Override
+			public int getCellCount()
+			{
+				return 5;
+			}
+
+
+			@Override
+			public String getCellText(int cix)
+			{
+				return getPlainText().substring(cix, cix + 1);
+			}
+
+
+			@Override
+			public CellStyle getCellStyle(int cix)
+			{
+				return r.getStyle(cix);
+			}
+
+
+			@Override
+			public boolean hasTabs()
+			{
+				return false;
+			}
+
+
+			@Override
+			public int cellIndexAtOffset(int offset)
+			{
+				return offset;
+			}
+		};
+
+		Assertions.assertEquals(1, p.getStyleRunEnd(0));
+		Assertions.assertEquals(3, p.getStyleRunEnd(1));
+		Assertions.assertEquals(5, p.getStyleRunEnd(3));
+	}
+}
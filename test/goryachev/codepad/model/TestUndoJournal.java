@@ -0,0 +1,138 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.model;
+import goryachev.codepad.TextPos;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/// Tests UndoJournal
+public class TestUndoJournal
+{
+	@Test
+	public void undoRedo() throws Exception
+	{
+		EditableCodeModel m = new EditableCodeModel();
+		m.replace(TextPos.ZERO, TextPos.ZERO, "11\n22\n33");
+		m.replace(new TextPos(0, 1), new TextPos(2, 1), "a\nb");
+		check(m, "1a", "b3");
+
+		Assertions.assertEquals(new TextPos(2, 1), m.undo());
+		check(m, "11", "22", "33");
+		Assertions.assertEquals(new TextPos(1, 1), m.redo());
+		check(m, "1a", "b3");
+
+		m.undo();
+		m.undo();
+		check(m, "");
+		Assertions.assertFalse(m.canUndo());
+		Assertions.assertNull(m.undo());
+
+		m.redo();
+		m.redo();
+		check(m, "1a", "b3");
+		Assertions.assertFalse(m.canRedo());
+	}
+
+
+	@Test
+	public void typing() throws Exception
+	{
+		EditableCodeModel m = new EditableCodeModel();
+		TextPos p = TextPos.ZERO;
+		for(char c: "hello".toCharArray())
+		{
+			p = m.replace(p, p, String.valueOf(c));
+		}
+		p = m.replace(p, p, "\n");
+		for(char c: "world".toCharArray())
+		{
+			p = m.replace(p, p, String.valueOf(c));
+		}
+		check(m, "hello", "world");
+
+		m.undo();
+		check(m, "hello", "");
+		m.undo();
+		check(m, "hello");
+		m.undo();
+		check(m, "");
+	}
+
+
+	@Test
+	public void spill() throws Exception
+	{
+		EditableCodeModel m = new EditableCodeModel();
+		m.setUndoSpillThreshold(10);
+		try
+		{
+			m.replace(TextPos.ZERO, TextPos.ZERO, "line 1\nline 2\nline 3\n\nline 5");
+			m.replace(new TextPos(0, 2), new TextPos(4, 2), "");
+			check(m, "line 5");
+
+			m.undo();
+			check(m, "line 1", "line 2", "line 3", "", "line 5");
+			m.redo();
+			check(m, "line 5");
+		}
+		finally
+		{
+			// deletes the spill files
+			m.setUndoRedoEnabled(false);
+		}
+	}
+
+
+	@Test
+	public void budget() throws Exception
+	{
+		EditableCodeModel m = new EditableCodeModel();
+		m.setUndoBudget(1000);
+		for(int i=0; i<100; i++)
+		{
+			m.replace(TextPos.ZERO, m.getDocumentEnd(), "text " + i);
+		}
+
+		int count = 0;
+		while(m.undo() != null)
+		{
+			count++;
+		}
+		Assertions.assertTrue(count > 0);
+		Assertions.assertTrue(count < 100);
+	}
+
+
+	@Test
+	public void budgetWithSingleRedo() throws Exception
+	{
+		EditableCodeModel m = new EditableCodeModel();
+		for(int i=0; i<100; i++)
+		{
+			m.replace(TextPos.ZERO, m.getDocumentEnd(), "text " + i);
+		}
+		m.undo();
+		m.setUndoBudget(1000);
+
+		int count = 0;
+		while(m.undo() != null)
+		{
+			count++;
+		}
+		Assertions.assertTrue(count > 0);
+		Assertions.assertTrue(count < 90);
+		Assertions.assertTrue(m.canRedo());
+	}
+
+
+	private static void check(CodeModel m, String ... expected)
+	{
+		int sz = m.size();
+		String[] rv = new String[sz];
+		for(int i=0; i<sz; i++)
+		{
+			rv[i] = m.getPlainText(i);
+		}
+		Assertions.assertArrayEquals(expected, rv);
+	}
+}
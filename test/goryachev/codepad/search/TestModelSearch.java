@@ -0,0 +1,261 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.search;
+import goryachev.codepad.TextPos;
+import goryachev.codepad.TextRange;
+import goryachev.codepad.model.CodeModel;
+import goryachev.codepad.model.DecoratedContent;
+import goryachev.codepad.model.EditableCodeModel;
+import goryachev.codepad.model.InsertResult;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/// Tests ModelSearch and HitIndex
+public class TestModelSearch
+{
+	private static final Pattern PATTERN = Pattern.compile("[0-9]+");
+
+
+	@Test
+	public void navigation() throws Exception
+	{
+		CodeModel m = model("a1 b22\nnone\n333");
+		ModelSearch s = ModelSearch.start(m, PATTERN);
+		s.waitForCompletion();
+		Assertions.assertTrue(s.isComplete());
+
+		HitIndex h = s.getIndex();
+		Assertions.assertEquals(3, h.size());
+		Assertions.assertEquals(new TextRange(0, 1, 2), h.get(0));
+		Assertions.assertEquals(new TextRange(0, 4, 6), h.get(1));
+		Assertions.assertEquals(new TextRange(2, 0, 3), h.get(2));
+
+		Assertions.assertEquals(1, h.findNext(new TextPos(0, 2), false));
+		Assertions.assertEquals(2, h.findNext(new TextPos(1, 0), false));
+		Assertions.assertEquals(-1, h.findNext(new TextPos(2, 1), false));
+		Assertions.assertEquals(0, h.findNext(new TextPos(2, 1), true));
+
+		Assertions.assertEquals(1, h.findPrevious(new TextPos(2, 0), false));
+		Assertions.assertEquals(-1, h.findPrevious(new TextPos(0, 1), false));
+		Assertions.assertEquals(2, h.findPrevious(new TextPos(0, 1), true));
+		Assertions.assertEquals(2, h.ceiling(new TextPos(1, 3)));
+		s.close();
+	}
+
+
+	@Test
+	public void incrementalUpdate() throws Exception
+	{
+		Random rnd = new Random(1);
+		StringBuilder sb = new StringBuilder();
+		for(int i=0; i<5000; i++)
+		{
+			sb.append(line(rnd)).append('\n');
+		}
+		CodeModel m = model(sb.toString());
+		ModelSearch s = ModelSearch.start(m, PATTERN);
+		s.waitForCompletion();
+
+		for(int i=0; i<500; i++)
+		{
+			TextPos start = m.clamp(new TextPos(rnd.nextInt(m.size()), rnd.nextInt(20)));
+			TextPos end = m.clamp(new TextPos(start.index() + rnd.nextInt(3), rnd.nextInt(20)));
+			String text = rnd.nextBoolean() ? line(rnd) : line(rnd) + "\n" + line(rnd);
+			m.replace(start, end, text);
+			Assertions.assertTrue(s.isComplete());
+		}
+		Assertions.assertEquals(expected(m), actual(s.getIndex()));
+
+		ModelSearch full = ModelSearch.start(m, PATTERN);
+		full.waitForCompletion();
+		Assertions.assertEquals(expected(m), actual(full.getIndex()));
+		full.close();
+		s.close();
+	}
+
+
+	@Test
+	public void restart() throws Exception
+	{
+		CodeModel m = model("1\n2\n3");
+		ModelSearch s = ModelSearch.start(m, PATTERN);
+		// an edit made before the index is complete might restart the search
+		m.replace(TextPos.ZERO, new TextPos(1, 1), "44 5");
+		s.waitForCompletion();
+		Assertions.assertEquals(expected(m), actual(s.getIndex()));
+		s.close();
+	}
+
+
+	@Test
+	public void editDuringScan() throws Exception
+	{
+		Random rnd = new Random(2);
+		StringBuilder sb = new StringBuilder();
+		for(int i=0; i<100_000; i++)
+		{
+			sb.append(line(rnd)).append('\n');
+		}
+		CodeModel m = model(sb.toString());
+		ModelSearch s = ModelSearch.start(m, PATTERN);
+
+		for(int i=0; i<200; i++)
+		{
+			TextPos start = m.clamp(new TextPos(rnd.nextInt(m.size()), rnd.nextInt(20)));
+			TextPos end = m.clamp(new TextPos(start.index() + rnd.nextInt(3), rnd.nextInt(20)));
+			String text = rnd.nextBoolean() ? line(rnd) : line(rnd) + "\n" + line(rnd);
+			m.replace(start, end, text);
+		}
+		s.waitForCompletion();
+		Assertions.assertTrue(s.isComplete());
+		Assertions.assertEquals(expected(m), actual(s.getIndex()));
+		s.close();
+	}
+
+
+	@Test
+	public void append() throws Exception
+	{
+		Random rnd = new Random(3);
+		String[] lines = new String[200_000];
+		for(int i=0; i<lines.length; i++)
+		{
+			lines[i] = line(rnd);
+		}
+		AppendingModel m = new AppendingModel(lines);
+		ModelSearch s = ModelSearch.start(m, PATTERN);
+
+		for(int i=0; i<20; i++)
+		{
+			int count = rnd.nextBoolean() ? rnd.nextInt(10) : 5000 + rnd.nextInt(5000);
+			m.publish(count);
+		}
+		s.waitForCompletion();
+		Assertions.assertEquals(expected(m), actual(s.getIndex()));
+		s.close();
+	}
+
+
+	private static String line(Random rnd)
+	{
+		StringBuilder sb = new StringBuilder();
+		int n = rnd.nextInt(12);
+		for(int i=0; i<n; i++)
+		{
+			sb.append(rnd.nextInt(4) == 0 ? (char)('0' + rnd.nextInt(10)) : 'x');
+		}
+		return sb.toString();
+	}
+
+
+	private static CodeModel model(String text) throws Exception
+	{
+		EditableCodeModel m = new EditableCodeModel();
+		m.replace(TextPos.ZERO, TextPos.ZERO, text);
+		return m;
+	}
+
+
+	private static ArrayList<TextRange> expected(CodeModel m)
+	{
+		ArrayList<TextRange> rv = new ArrayList<>();
+		for(int i=0; i<m.size(); i++)
+		{
+			int ix = i;
+			ParagraphSearch.of(PATTERN).find(m.getPlainText(i), (s, e) -> rv.add(new TextRange(ix, s, e)));
+		}
+		return rv;
+	}
+
+
+	private static ArrayList<TextRange> actual(HitIndex h)
+	{
+		ArrayList<TextRange> rv = new ArrayList<>();
+		for(int i=0; i<h.size(); i++)
+		{
+			rv.add(h.get(i));
+		}
+		return rv;
+	}
+
+
+	/// Makes the prepared paragraphs visible on demand
+	private static class AppendingModel
+		extends CodeModel
+	{
+		private final ArrayContent content;
+
+
+		public AppendingModel(String[] lines)
+		{
+			this(new ArrayContent(lines));
+		}
+
+
+		private AppendingModel(ArrayContent c)
+		{
+			super(c);
+			content = c;
+		}
+
+
+		public void publish(int count)
+		{
+			int start = content.size;
+			content.size = start + count;
+			fireParagraphsAppended(start, count);
+		}
+	}
+
+
+	private static class ArrayContent
+		extends DecoratedContent
+	{
+		private final String[] lines;
+		private volatile int size;
+
+
+		public ArrayContent(String[] lines)
+		{
+			this.lines = lines;
+		}
+
+
+		@Override
+		public boolean isWritable()
+		{
+			return false;
+		}
+
+
+		@Override
+		public boolean isAppendable()
+		{
+			return true;
+		}
+
+
+		@Override
+		public int size()
+		{
+			return size;
+		}
+
+
+		@Override
+		public String getPlainText(int index)
+		{
+			return lines[index];
+		}
+
+
+		@Override
+		public InsertResult replace(TextPos start, TextPos end, String text, boolean undoEnabled)
+		{
+			return null;
+		}
+	}
+}
@@ -0,0 +1,130 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.search;
+import goryachev.codepad.TextRange;
+import goryachev.codepad.model.CodeModel;
+import goryachev.codepad.model.CompactCodeModelContent;
+import goryachev.common.util.text.FindOperation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/// Tests TextFinder
+public class TestTextFinder
+{
+	@Test
+	public void order() throws Exception
+	{
+		// hits span multiple chunks
+		int size = 20_000;
+		CompactCodeModelContent.Builder b = new CompactCodeModelContent.Builder(null);
+		for(int i=0; i<size; i++)
+		{
+			b.addLine((i % 7 == 0) ? "aXa Xb x" : "none");
+		}
+		CodeModel m = new CodeModel(b.build());
+
+		int start = 12_345;
+		Collector c = find(m, new FindOperation(Locale.ENGLISH, "x", false, false, false), start);
+
+		ArrayList<TextRange> expected = new ArrayList<>();
+		for(int k=0; k<size; k++)
+		{
+			int ix = (start + k) % size;
+			if(ix % 7 == 0)
+			{
+				expected.add(new TextRange(ix, 1, 2));
+				expected.add(new TextRange(ix, 4, 5));
+				expected.add(new TextRange(ix, 7, 8));
+			}
+		}
+		Assertions.assertEquals(expected, c.hits);
+		Assertions.assertEquals(expected.size(), c.finished);
+	}
+
+
+	@Test
+	public void options() throws Exception
+	{
+		CodeModel m = new CodeModel(CompactCodeModelContent.of(null, "Résumé resume\nRESUME"));
+		Assertions.assertEquals(3, find(m, new FindOperation(Locale.ENGLISH, "resume", false, true, false), 0).finished);
+		Assertions.assertEquals(1, find(m, new FindOperation(Locale.ENGLISH, "resume", true, true, false), 0).finished);
+		Assertions.assertEquals(1, find(m, new FindOperation(Locale.ENGLISH, "resume", true, false, true), 0).finished);
+		Assertions.assertEquals(0, find(m, new FindOperation(Locale.ENGLISH, "sum", false, false, true), 0).finished);
+	}
+
+
+	@Test
+	public void expandingLowerCase() throws Exception
+	{
+		// U+0130 becomes two characters in lower case, which must not shift the offsets
+		CodeModel m = new CodeModel(CompactCodeModelContent.of(null, "\u0130stanbul ISTANBUL"));
+		Collector c = find(m, new FindOperation(Locale.ENGLISH, "istanbul", false, false, false), 0);
+		Assertions.assertEquals(List.of(new TextRange(0, 0, 8), new TextRange(0, 9, 17)), c.hits);
+	}
+
+
+	@Test
+	public void cancel() throws Exception
+	{
+		CompactCodeModelContent.Builder b = new CompactCodeModelContent.Builder(null);
+		for(int i=0; i<100_000; i++)
+		{
+			b.addLine("x");
+		}
+		CodeModel m = new CodeModel(b.build());
+
+		Collector c = new Collector();
+		TextFinder f = TextFinder.start(m, new FindOperation(Locale.ENGLISH, "x", false, false, false), 0, new FindListener()
+		{
+			@Override
+			public void onHits(List<TextRange> hits)
+			{
+				c.onHits(hits);
+				throw new IllegalStateException("stop");
+			}
+		});
+		f.waitForCompletion();
+
+		Assertions.assertTrue(f.isCancelled());
+		Assertions.assertNotNull(f.getError());
+		Assertions.assertEquals(-1, c.finished);
+		Assertions.assertTrue(c.hits.size() < 100_000);
+	}
+
+
+	private static Collector find(CodeModel m, FindOperation op, int start) throws Exception
+	{
+		Collector c = new Collector();
+		TextFinder f = TextFinder.start(m, op, start, c);
+		f.waitForCompletion();
+		Assertions.assertNull(f.getError());
+		Assertions.assertEquals(c.hits.size(), f.getCount());
+		Assertions.assertEquals(1.0, f.getProgress().getProgress());
+		return c;
+	}
+
+
+	private static class Collector
+		implements FindListener
+	{
+		public final ArrayList<TextRange> hits = new ArrayList<>();
+		public int finished = -1;
+
+
+		@Override
+		public void onHits(List<TextRange> list)
+		{
+			hits.addAll(list);
+		}
+
+
+		@Override
+		public void onFinished(int count)
+		{
+			finished = count;
+		}
+	}
+}
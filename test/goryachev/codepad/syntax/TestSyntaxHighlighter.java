@@ -0,0 +1,260 @@
+// Copyright © 2026-2026 Andy Goryachev <andy@goryachev.com>
+package goryachev.codepad.syntax;
+import goryachev.codepad.TextPos;
+import goryachev.codepad.model.CellStyle;
+import goryachev.codepad.model.CodeModel;
+import goryachev.codepad.model.CodeParagraph;
+import goryachev.codepad.model.EditableCodeModel;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/// Tests SyntaxHighlighter
+public class TestSyntaxHighlighter
+{
+	private static final CellStyle COMMENT = CellStyle.builder().italic().build();
+	private static final int IN_COMMENT = 1;
+	/// recognizes the block comments only
+	private static final Lexer LEXER = (text, state, out) ->
+	{
+		int len = text.length();
+		int start = 0;
+		int i = 0;
+		while(i < len)
+		{
+			if(state == IN_COMMENT)
+			{
+				int ix = text.indexOf("*/", i);
+				if(ix < 0)
+				{
+					break;
+				}
+				i = ix + 2;
+				if(out != null)
+				{
+					out.accept(start, i, COMMENT);
+				}
+				state = Lexer.INITIAL_STATE;
+			}
+			else
+			{
+				int ix = text.indexOf("/*", i);
+				if(ix < 0)
+				{
+					return state;
+				}
+				start = ix;
+				i = ix + 2;
+				state = IN_COMMENT;
+			}
+		}
+
+		if((state == IN_COMMENT) && (out != null))
+		{
+			out.accept(start, len, COMMENT);
+		}
+		return state;
+	};
+
+
+	@Test
+	public void styles() throws Exception
+	{
+		EditableCodeModel m = model("a\nb /* c\nd\ne */ f\ng");
+		SyntaxHighlighter h = attach(m);
+
+		Assertions.assertNull(style(m, 0, 0));
+		Assertions.assertNull(style(m, 1, 0));
+		Assertions.assertEquals(COMMENT, style(m, 1, 2));
+		Assertions.assertEquals(COMMENT, style(m, 2, 0));
+		Assertions.assertEquals(COMMENT, style(m, 3, 3));
+		Assertions.assertNull(style(m, 3, 5));
+		Assertions.assertNull(style(m, 4, 0));
+		Assertions.assertEquals(5, h.getValidCount());
+	}
+
+
+	@Test
+	public void openAndCloseComment() throws Exception
+	{
+		EditableCodeModel m = model("a\nb\nc\nd");
+		SyntaxHighlighter h = attach(m);
+		check(m, h);
+
+		m.replace(new TextPos(1, 0), new TextPos(1, 0), "/*");
+		check(m, h);
+		Assertions.assertEquals(IN_COMMENT, h.getStartState(3));
+		Assertions.assertEquals(COMMENT, style(m, 3, 0));
+
+		m.replace(new TextPos(2, 1), new TextPos(2, 1), "*/");
+		check(m, h);
+		Assertions.assertEquals(Lexer.INITIAL_STATE, h.getStartState(3));
+		Assertions.assertNull(style(m, 3, 0));
+
+		m.replace(new TextPos(1, 0), new TextPos(1, 2), "");
+		check(m, h);
+	}
+
+
+	@Test
+	public void randomEdits() throws Exception
+	{
+		Random rnd = new Random(1);
+		String[] inserts = { "/*", "*/", "\n", "x", "x\ny" };
+		StringBuilder sb = new StringBuilder();
+		for(int i=0; i<300; i++)
+		{
+			sb.append("line ").append(i).append('\n');
+		}
+		EditableCodeModel m = model(sb.toString());
+		SyntaxHighlighter h = attach(m, 8);
+
+		for(int i=0; i<500; i++)
+		{
+			int ix = rnd.nextInt(m.size());
+			int off = rnd.nextInt(m.getParagraphLength(ix) + 1);
+			TextPos p = new TextPos(ix, off);
+			if(rnd.nextInt(4) == 0)
+			{
+				// delete up to the start of another paragraph
+				int ix2 = Math.min(m.size() - 1, ix + rnd.nextInt(3));
+				TextPos p2 = new TextPos(ix2, Math.min(m.getParagraphLength(ix2), ix2 == ix ? off + 2 : 1));
+				m.replace(p, p2, "");
+			}
+			else
+			{
+				m.replace(p, p, inserts[rnd.nextInt(inserts.length)]);
+			}
+			check(m, h);
+		}
+	}
+
+
+	@Test
+	public void backgroundScan() throws Exception
+	{
+		StringBuilder sb = new StringBuilder();
+		for(int i=0; i<20_000; i++)
+		{
+			sb.append((i % 100 == 0) ? "/* " : "x ").append(i).append((i % 100 == 50) ? " */\n" : "\n");
+		}
+		EditableCodeModel m = model(sb.toString());
+		SyntaxHighlighter h = attach(m);
+		h.waitForIdle();
+
+		Assertions.assertEquals(m.size(), h.getValidCount());
+		Assertions.assertEquals(m.size() / SyntaxHighlighter.DEFAULT_CHECKPOINT_INTERVAL, h.getCheckpointCount());
+		check(m, h);
+	}
+
+
+	@Test
+	public void editDuringScan() throws Exception
+	{
+		StringBuilder sb = new StringBuilder();
+		for(int i=0; i<100_000; i++)
+		{
+			sb.append("x ").append(i).append('\n');
+		}
+		EditableCodeModel m = model(sb.toString());
+		SyntaxHighlighter h = attach(m);
+
+		// the edit converges at the first checkpoint, while the rest is not yet lexed
+		m.replace(new TextPos(5, 0), new TextPos(5, 0), "y");
+		Assertions.assertTrue(h.getValidCount() < m.size());
+		h.waitForIdle();
+
+		Assertions.assertEquals(m.size(), h.getValidCount());
+		Assertions.assertEquals((m.size() - 1) / SyntaxHighlighter.DEFAULT_CHECKPOINT_INTERVAL, h.getCheckpointCount());
+		check(m, h);
+	}
+
+
+	@Test
+	public void convergeAtCheckpoint() throws Exception
+	{
+		StringBuilder sb = new StringBuilder();
+		for(int i=0; i<900; i++)
+		{
+			sb.append((i % 10 == 0) ? "/* " : "x ").append(i).append((i % 10 == 5) ? " */\n" : "\n");
+		}
+		EditableCodeModel m = model(sb.toString());
+		SyntaxHighlighter h = attach(m, 16);
+		int count = h.getCheckpointCount();
+		Assertions.assertEquals(899 / 16, count);
+
+		// the edit not affecting the states keeps all the checkpoints
+		m.replace(new TextPos(101, 0), new TextPos(101, 1), "yy");
+		check(m, h);
+		Assertions.assertEquals(count, h.getCheckpointCount());
+
+		// the edit affecting the states of all the following paragraphs
+		m.replace(new TextPos(3, 0), new TextPos(3, 0), "/*");
+		check(m, h);
+	}
+
+
+	@Test
+	public void checkpointUpdate()
+	{
+		CheckpointIndex ix = new CheckpointIndex();
+		for(int i=0; i<5; i++)
+		{
+			ix.insert(i, i * 10, i);
+		}
+		Assertions.assertEquals(2, ix.floor(25));
+		Assertions.assertEquals(-1, ix.floor(-1));
+		Assertions.assertEquals(3, ix.higher(20));
+
+		// paragraphs 10..25 replaced by 10..12
+		ix.update(10, 25, 12);
+		Assertions.assertEquals(4, ix.size());
+		Assertions.assertEquals(10, ix.getIndex(1));
+		Assertions.assertEquals(17, ix.getIndex(2));
+		Assertions.assertEquals(3, ix.getState(2));
+	}
+
+
+	private static EditableCodeModel model(String text) throws Exception
+	{
+		EditableCodeModel m = new EditableCodeModel();
+		m.replace(TextPos.ZERO, TextPos.ZERO, text);
+		return m;
+	}
+
+
+	private static SyntaxHighlighter attach(EditableCodeModel m)
+	{
+		return attach(m, SyntaxHighlighter.DEFAULT_CHECKPOINT_INTERVAL);
+	}
+
+
+	private static SyntaxHighlighter attach(EditableCodeModel m, int checkpointInterval)
+	{
+		SyntaxHighlighter h = new SyntaxHighlighter(LEXER, checkpointInterval);
+		m.decoratorProperty().set(h);
+		h.attach(m);
+		return h;
+	}
+
+
+	private static CellStyle style(CodeModel m, int index, int cix)
+	{
+		CodeParagraph p = m.getParagraph(index);
+		return p.getCellStyle(cix);
+	}
+
+
+	// verifies the states against lexing the whole model
+	private static void check(CodeModel m, SyntaxHighlighter h)
+	{
+		Assertions.assertEquals(m.size(), h.getValidCount());
+		int state = Lexer.INITIAL_STATE;
+		for(int i=0; i<m.size(); i++)
+		{
+			Assertions.assertEquals(state, h.getStartState(i), "paragraph " + i);
+			state = LEXER.lex(m.getPlainText(i), state, null);
+		}
+	}
+}